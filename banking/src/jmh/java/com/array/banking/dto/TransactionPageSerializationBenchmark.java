@@ -0,0 +1,94 @@
+package com.array.banking.dto;
+
+import com.array.banking.model.Transaction;
+import com.array.banking.model.TransactionStatus;
+import com.array.banking.model.TransactionType;
+import com.array.banking.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON bodies of GET /banking/v1/transactions and /transactions/feed. The entity variants are what the endpoints
+ * used to return, a PageImpl or CursorPage of Transaction entities with their user; the others are the current
+ * PageResponse and CursorPage of TransactionResponse.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionPageSerializationBenchmark {
+
+    @Param({"10", "100"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+    private Page<Transaction> entityPage;
+    private CursorPage<Transaction> entityCursorPage;
+    private PageResponse<TransactionResponse> page;
+    private CursorPage<TransactionResponse> cursorPage;
+
+    @Setup
+    public void setUp() {
+        // Same modules and features as the MVC message converter
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        User user = new User("benchmark", "hashedpassword", "benchmark@example.com");
+        user.setUserId(1);
+        List<Transaction> content = new ArrayList<>(pageSize);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < pageSize; i++) {
+            Transaction transaction = new Transaction(user, 1000L + i, TransactionType.DEPOSIT, TransactionStatus.COMPLETED);
+            transaction.setTransactionId(i + 1);
+            transaction.setTimestamp(now.minusMinutes(i));
+            content.add(transaction);
+        }
+        entityPage = new PageImpl<>(content, PageRequest.of(0, pageSize), 10_000);
+        List<TransactionResponse> responses = content.stream().map(TransactionResponse::fromTransaction).toList();
+        String nextCursor = TransactionCursor.after(responses.get(pageSize - 1)).encode();
+        entityCursorPage = new CursorPage<>(content, nextCursor);
+        page = PageResponse.of(new PageImpl<>(responses, PageRequest.of(0, pageSize), 10_000), response -> response);
+        cursorPage = new CursorPage<>(responses, nextCursor);
+    }
+
+    @Benchmark
+    public byte[] entityOffsetPage() throws Exception {
+        return objectMapper.writeValueAsBytes(entityPage);
+    }
+
+    @Benchmark
+    public byte[] entityCursorPage() throws Exception {
+        return objectMapper.writeValueAsBytes(entityCursorPage);
+    }
+
+    @Benchmark
+    public byte[] offsetPage() throws Exception {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] cursorPage() throws Exception {
+        return objectMapper.writeValueAsBytes(cursorPage);
+    }
+}
@@ -0,0 +1,69 @@
+package com.array.banking.security;
+
+import com.array.banking.model.User;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issue and validation. With verifiedCacheSize=0 every validation pays for the signature check,
+ * otherwise repeated validations of the same token hit the verified token cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtTokenProviderBenchmark {
+
+    @Param({"0", "10000"})
+    private long verifiedCacheSize;
+
+    private JwtTokenProvider jwtTokenProvider;
+    private BankingUserDetails principal;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtTokenProvider = new JwtTokenProvider(new StaticApplicationContext(),
+                new TokenDenylist(3_600_000L), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtTokenProvider, "secretKey", "benchmark_secret_key_that_is_long_enough_for_hmac");
+        ReflectionTestUtils.setField(jwtTokenProvider, "validityInMilliseconds", 3_600_000L);
+        ReflectionTestUtils.setField(jwtTokenProvider, "stateless", true);
+        ReflectionTestUtils.setField(jwtTokenProvider, "verifiedCacheSize", verifiedCacheSize);
+        jwtTokenProvider.init();
+
+        User user = new User("benchmark", "hashedpassword", "benchmark@example.com");
+        user.setUserId(1);
+        principal = new BankingUserDetails(user, List.of(new SimpleGrantedAuthority("USER")));
+        token = jwtTokenProvider.createToken(principal);
+    }
+
+    @Benchmark
+    public String createToken() {
+        return jwtTokenProvider.createToken(principal);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtTokenProvider.validateToken(token);
+    }
+}
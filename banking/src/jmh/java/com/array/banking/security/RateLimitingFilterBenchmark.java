@@ -0,0 +1,132 @@
+package com.array.banking.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allowed-request path through the rate limiter, cycling over a fixed set of client IPs.
+ * The buckets are sized so no request is ever throttled.
+ * Run with the GC profiler to see the allocation rate per request (gc.alloc.rate.norm, bytes/op):
+ * -Djmh.args="RateLimitingFilterBenchmark -prof gc"
+ * Request and response are thin stubs because the Spring mocks allocate on every header access,
+ * unlike Tomcat's recycled request objects.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RateLimitingFilterBenchmark {
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+
+    @Param({"1", "1000"})
+    private int clientCount;
+
+    private RateLimitingFilter filter;
+    private HttpServletRequest[] requests;
+    private HttpServletRequest proxiedRequest;
+    private HttpServletRequest staticRequest;
+    private HttpServletResponse response;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        RateLimitPolicy unlimited = RateLimitPolicy.of("default", 1_000_000_000_000L, 1_000_000_000L,
+                Duration.ofMinutes(1), 1, RateLimitKey.IP);
+        RateLimitPolicy history = RateLimitPolicy.of("history", 1_000_000_000_000L, 1_000_000_000L,
+                Duration.ofMinutes(1), 2, RateLimitKey.USER);
+        RateLimitPolicyResolver resolver = new RateLimitPolicyResolver(List.of(
+                new RateLimitPolicyResolver.RouteDefinition(List.of("/banking/v1/transactions/**"), Set.of(), history)),
+                unlimited);
+        filter = new RateLimitingFilter(resolver, new LocalBucketStore(100_000, Duration.ofMinutes(1)),
+                new ClientAddressResolver(List.of("127.0.0.1")), new SimpleMeterRegistry());
+
+        requests = new HttpServletRequest[clientCount];
+        for (int i = 0; i < clientCount; i++) {
+            requests[i] = request("/banking/v1/balance", "10.0." + (i / 256) + "." + (i % 256), null);
+        }
+        proxiedRequest = request("/banking/v1/transactions", "127.0.0.1", "203.0.113.7, 127.0.0.1");
+        staticRequest = request("/webjars/htmx.org/1.9.10/dist/htmx.min.js", "10.0.0.1", null);
+        response = new HttpServletResponseWrapper(new MockHttpServletResponse()) {
+            @Override
+            public void setHeader(String name, String value) {
+            }
+
+            @Override
+            public void setStatus(int status) {
+            }
+        };
+    }
+
+    @Benchmark
+    public void apiRequest() throws Exception {
+        HttpServletRequest request = requests[next];
+        next = (next + 1) % requests.length;
+        filter.doFilterInternal(request, response, NO_OP_CHAIN);
+    }
+
+    @Benchmark
+    public void proxiedPatternRequest() throws Exception {
+        filter.doFilterInternal(proxiedRequest, response, NO_OP_CHAIN);
+    }
+
+    @Benchmark
+    public void staticResource() throws Exception {
+        filter.doFilterInternal(staticRequest, response, NO_OP_CHAIN);
+    }
+
+    private static HttpServletRequest request(String uri, String remoteAddr, String forwardedFor) {
+        return new HttpServletRequestWrapper(new MockHttpServletRequest("GET", uri)) {
+            @Override
+            public String getRequestURI() {
+                return uri;
+            }
+
+            @Override
+            public String getContextPath() {
+                return "";
+            }
+
+            @Override
+            public String getMethod() {
+                return "GET";
+            }
+
+            @Override
+            public String getRemoteAddr() {
+                return remoteAddr;
+            }
+
+            @Override
+            public String getHeader(String name) {
+                return "X-Forwarded-For".equals(name) ? forwardedFor : null;
+            }
+        };
+    }
+}
@@ -0,0 +1,97 @@
+package com.array.banking.service;
+
+import com.array.banking.BankingApplication;
+import com.array.banking.model.User;
+import com.array.banking.repository.UserRepository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TransactionService.transfer end to end against an embedded Postgres, including the Spring
+ * transaction and the single conditional statement that checks the balance, debits the sender and
+ * writes both legs. Settlement of the incoming leg runs in the background as usual.
+ * Both users are loaded in the surrounding transaction, like a request that resolves them before
+ * transferring, so the lookups are part of each measured call.
+ * The schema is created by the application's Flyway migrations on startup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransferBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private UserRepository userRepository;
+    private TransactionTemplate transactionTemplate;
+    private Integer senderId;
+    private Integer recipientId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+
+        // Passed as arguments so they take precedence over application.yml
+        context = new SpringApplicationBuilder(BankingApplication.class).run(
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=postgres",
+                "--server.port=0",
+                "--management.tracing.enabled=false",
+                "--logging.level.root=WARN");
+        transactionService = context.getBean(TransactionService.class);
+        userRepository = context.getBean(UserRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+
+        UserService userService = context.getBean(UserService.class);
+        senderId = userService.createUser("bench_sender", "password", "sender@example.com").getUserId();
+        recipientId = userService.createUser("bench_recipient", "password", "recipient@example.com").getUserId();
+        // Fund the sender directly so the benchmark never runs out of balance
+        context.getBean(JdbcTemplate.class).update(
+                "INSERT INTO account_balances (user_id, balance) VALUES (?, ?)", senderId, Long.MAX_VALUE / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (context != null) {
+            context.close();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Benchmark
+    public Integer transfer() {
+        return transactionTemplate.execute(status -> {
+            User sender = userRepository.findById(senderId).orElseThrow();
+            User recipient = userRepository.findById(recipientId).orElseThrow();
+            return transactionService.transfer(sender, recipient, AMOUNT);
+        });
+    }
+}
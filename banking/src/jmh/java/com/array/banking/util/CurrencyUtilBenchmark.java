@@ -0,0 +1,43 @@
+package com.array.banking.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CurrencyUtilBenchmark {
+
+    private BigDecimal dollars;
+    private Long cents;
+
+    @Setup
+    public void setUp() {
+        dollars = new BigDecimal("1234.56");
+        cents = 123456L;
+    }
+
+    @Benchmark
+    public Long dollarsToCents() {
+        return CurrencyUtil.dollarsToCents(dollars);
+    }
+
+    @Benchmark
+    public BigDecimal centsToDollars() {
+        return CurrencyUtil.centsToDollars(cents);
+    }
+}
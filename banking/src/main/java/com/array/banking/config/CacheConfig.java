@@ -0,0 +1,83 @@
+package com.array.banking.config;
+
+import com.array.banking.service.CachedUser;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.Optional;
+
+@Configuration
+public class CacheConfig {
+
+    @Value("${balance.cache.maximum-size}")
+    private long balanceCacheMaximumSize;
+
+    @Value("${balance.cache.expire-after-write}")
+    private Duration balanceCacheExpireAfterWrite;
+
+    @Value("${user.cache.maximum-size}")
+    private long userCacheMaximumSize;
+
+    @Value("${user.cache.expire-after-write}")
+    private Duration userCacheExpireAfterWrite;
+
+    @Value("${user.cache.unknown-expire-after-write}")
+    private Duration userCacheUnknownExpireAfterWrite;
+
+    /**
+     * In-process cache of user balances in cents, keyed by user ID.
+     * Entries are evicted whenever a transaction for the user settles.
+     */
+    @Bean
+    public Cache<Integer, Long> balanceCache(MeterRegistry meterRegistry) {
+        Cache<Integer, Long> cache = Caffeine.newBuilder()
+                .maximumSize(balanceCacheMaximumSize)
+                .expireAfterWrite(balanceCacheExpireAfterWrite)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "balance");
+    }
+
+    /**
+     * In-process cache of users keyed by username, empty for usernames that don't exist.
+     * Unknown usernames expire sooner, so a user registered on another instance is found shortly after.
+     */
+    @Bean
+    public Cache<String, Optional<CachedUser>> userCache(MeterRegistry meterRegistry) {
+        long knownNanos = userCacheExpireAfterWrite.toNanos();
+        long unknownNanos = userCacheUnknownExpireAfterWrite.toNanos();
+        Cache<String, Optional<CachedUser>> cache = Caffeine.newBuilder()
+                .maximumSize(userCacheMaximumSize)
+                .expireAfter(new Expiry<String, Optional<CachedUser>>() {
+                    @Override
+                    public long expireAfterCreate(String username, Optional<CachedUser> user, long currentTime) {
+                        return user.isPresent() ? knownNanos : unknownNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String username, Optional<CachedUser> user, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(username, user, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String username, Optional<CachedUser> user, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "user");
+    }
+}
@@ -0,0 +1,62 @@
+package com.array.banking.config;
+
+import com.array.banking.service.FileLedgerEventLog;
+import com.array.banking.service.InMemoryLedgerEventLog;
+import com.array.banking.service.JdbcLedgerEventLog;
+import com.array.banking.service.LedgerEventLog;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+@Slf4j
+public class LedgerEventConfig {
+
+    /**
+     * Log the outbox relay publishes to, unless another LedgerEventLog bean is declared, chosen by
+     * outbox.log.store: jdbc (the default), file or memory. The relay deletes what it publishes from the
+     * outbox, so only the durable stores keep the events across restarts.
+     */
+    @Bean
+    @ConditionalOnMissingBean(LedgerEventLog.class)
+    public LedgerEventLog ledgerEventLog(@Value("${outbox.log.store}") String store,
+                                         @Value("${outbox.log.file:}") String file,
+                                         @Value("${outbox.log.retention}") int retention,
+                                         JdbcTemplate jdbcTemplate,
+                                         ObjectMapper objectMapper,
+                                         MeterRegistry meterRegistry) throws IOException {
+        LedgerEventLog eventLog = switch (store) {
+            case "jdbc" -> new JdbcLedgerEventLog(jdbcTemplate, retention);
+            case "file" -> {
+                if (file.isBlank()) {
+                    throw new IllegalStateException("outbox.log.store is file but outbox.log.file isn't set");
+                }
+                log.warn("Ledger events are published to {}, other instances won't see the events this one relays, run a single instance", file);
+                yield new FileLedgerEventLog(Path.of(file), objectMapper);
+            }
+            case "memory" -> {
+                log.warn("Ledger events are only kept in memory, lost on restart and not seen by other instances, use outbox.log.store=memory for tests only");
+                yield new InMemoryLedgerEventLog(retention);
+            }
+            default -> throw new IllegalStateException("Unknown outbox.log.store: " + store + ", expected jdbc, file or memory");
+        };
+
+        Gauge.builder("banking.outbox.log.end_offset", eventLog, LedgerEventLog::endOffset)
+                .description("Offset the next ledger event will be published at")
+                .register(meterRegistry);
+        return eventLog;
+    }
+}
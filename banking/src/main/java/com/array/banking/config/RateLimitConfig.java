@@ -1,48 +1,96 @@
 package com.array.banking.config;
 
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.Refill;
-import org.springframework.beans.factory.annotation.Value;
+import com.array.banking.security.ClientAddressResolver;
+import com.array.banking.security.LocalBucketStore;
+import com.array.banking.security.ProxyManagerBucketStore;
+import com.array.banking.security.RateLimitBucketStore;
+import com.array.banking.security.RateLimitKey;
+import com.array.banking.security.RateLimitPolicy;
+import com.array.banking.security.RateLimitPolicyResolver;
+import com.array.banking.security.RateLimitPolicyResolver.RouteDefinition;
+
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.time.Duration;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Supplier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+@RequiredArgsConstructor
+@Slf4j
 public class RateLimitConfig {
 
-    @Value("${rate-limit.capacity}")
-    private int capacity;
-
-    @Value("${rate-limit.refill.tokens}")
-    private int refillTokens;
-
-    @Value("${rate-limit.refill.duration}")
-    private int refillDuration;
+    private final RateLimitProperties properties;
 
     /**
-     * Cache to store rate limiters by IP address
+     * Route and user aware policies from rate-limit.policies, compiled once at startup
      */
     @Bean
-    public Map<String, Bucket> buckets() {
-        return new ConcurrentHashMap<>();
+    public RateLimitPolicyResolver rateLimitPolicyResolver() {
+        RateLimitPolicy defaultPolicy = RateLimitPolicy.of("default", properties.getCapacity(),
+                properties.getRefill().getTokens(), Duration.ofMinutes(properties.getRefill().getDuration()),
+                1, RateLimitKey.IP);
+
+        List<RouteDefinition> routes = new ArrayList<>();
+        for (RateLimitProperties.Policy policy : properties.getPolicies()) {
+            RateLimitPolicy compiled = RateLimitPolicy.of(policy.getName(), policy.getCapacity(),
+                    policy.getRefill().getTokens(), Duration.ofMinutes(policy.getRefill().getDuration()),
+                    policy.getCost(), policy.getKey());
+            Set<String> methods = policy.getMethods().stream()
+                    .map(method -> method.toUpperCase(Locale.ROOT))
+                    .collect(Collectors.toUnmodifiableSet());
+            routes.add(new RouteDefinition(policy.getPatterns(), methods, compiled));
+        }
+        return new RateLimitPolicyResolver(routes, defaultPolicy);
+    }
+
+    @Bean
+    public ClientAddressResolver clientAddressResolver() {
+        return new ClientAddressResolver(properties.getTrustedProxies());
     }
 
     /**
-     * Factory method to create a supplier of rate limiter buckets
+     * Store for rate limiter buckets by policy and client.
+     * Uses a shared ProxyManager backend when one is defined, otherwise a bounded in-process cache.
      */
     @Bean
-    public Supplier<Bucket> bucketSupplier() {
-        return () -> {
-            Bandwidth limit = Bandwidth.classic(capacity, 
-                    Refill.intervally(refillTokens, Duration.ofMinutes(refillDuration)));
-            return Bucket.builder()
-                    .addLimit(limit)
-                    .build();
-        };
+    public RateLimitBucketStore rateLimitBucketStore(ObjectProvider<ProxyManager<String>> proxyManager,
+                                                     MeterRegistry meterRegistry) {
+        ProxyManager<String> sharedBackend = proxyManager.getIfAvailable();
+        RateLimitBucketStore store;
+        if (sharedBackend != null) {
+            log.info("Rate limit buckets are shared through {}", sharedBackend.getClass().getSimpleName());
+            store = new ProxyManagerBucketStore(sharedBackend);
+        } else {
+            // A bucket idle for a full refill period is full again, so it can be dropped and recreated
+            store = new LocalBucketStore(properties.getStore().getMaximumSize(), longestRefillPeriod());
+        }
+
+        Gauge.builder("banking.ratelimit.buckets.active", store, RateLimitBucketStore::activeBuckets)
+                .description("Rate limit buckets currently held, -1 when the backend doesn't report it")
+                .register(meterRegistry);
+        return store;
+    }
+
+    private Duration longestRefillPeriod() {
+        int minutes = properties.getRefill().getDuration();
+        for (RateLimitProperties.Policy policy : properties.getPolicies()) {
+            minutes = Math.max(minutes, policy.getRefill().getDuration());
+        }
+        return Duration.ofMinutes(minutes);
     }
 }
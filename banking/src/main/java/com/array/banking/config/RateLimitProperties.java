@@ -0,0 +1,51 @@
+package com.array.banking.config;
+
+import com.array.banking.security.RateLimitKey;
+
+import lombok.Data;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * rate-limit.* settings. The top level capacity/refill is the default policy for any route
+ * that none of the listed policies match.
+ */
+@Data
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    private long capacity;
+    private Refill refill = new Refill();
+    private Store store = new Store();
+    // Proxies whose X-Forwarded-For header is trusted, matched by exact address
+    private List<String> trustedProxies = new ArrayList<>();
+    private List<Policy> policies = new ArrayList<>();
+
+    @Data
+    public static class Refill {
+        private long tokens;
+        private int duration; // minutes
+    }
+
+    @Data
+    public static class Store {
+        private long maximumSize;
+    }
+
+    @Data
+    public static class Policy {
+        private String name;
+        // PathPattern syntax, e.g. /banking/v1/transactions/**
+        private List<String> patterns = new ArrayList<>();
+        // Empty matches every HTTP method
+        private List<String> methods = new ArrayList<>();
+        private long capacity;
+        private Refill refill = new Refill();
+        // Tokens taken from the bucket per request
+        private long cost = 1;
+        private RateLimitKey key = RateLimitKey.IP;
+    }
+}
@@ -6,10 +6,14 @@ import com.array.banking.security.RateLimitingFilter;
 import com.array.banking.security.SsrJwtCookieFilter;
 
 import java.util.Arrays;
+import java.util.List;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -25,10 +29,13 @@ public class SecurityConfig {
 
     private final JwtTokenProvider jwtTokenProvider;
     private final RateLimitingFilter rateLimitingFilter;
+    private final List<String> ingestionOperators;
 
-    public SecurityConfig(JwtTokenProvider jwtTokenProvider, RateLimitingFilter rateLimitingFilter) {
+    public SecurityConfig(JwtTokenProvider jwtTokenProvider, RateLimitingFilter rateLimitingFilter,
+                          @Value("${ingestion.operators}") List<String> ingestionOperators) {
       this.jwtTokenProvider = jwtTokenProvider;
       this.rateLimitingFilter = rateLimitingFilter;
+      this.ingestionOperators = ingestionOperators;
     }
 
     @Bean
@@ -44,6 +51,8 @@ public class SecurityConfig {
           .authorizeHttpRequests(auth -> auth
               // Actuator endpoints - add this line to permit all actuator endpoints
               .requestMatchers(EndpointRequest.toAnyEndpoint()).permitAll()
+              // Needs the user's token, unlike the rest of /auth
+              .requestMatchers("/banking/v1/auth/password").authenticated()
               // Public endpoints
               .requestMatchers("/banking/v1/auth/**").permitAll()
               // SSR public endpoints
@@ -62,18 +71,23 @@ public class SecurityConfig {
               .requestMatchers("/h2-console/**").permitAll()
               // Allow direct access to all actuator endpoints
               .requestMatchers("/actuator/**").permitAll()
+              // Bulk deposits credit any account, only configured operators may run them
+              .requestMatchers(HttpMethod.POST, "/banking/v1/transactions/bulk")
+              .access((authentication, context) -> new AuthorizationDecision(
+                  authentication.get().isAuthenticated() && ingestionOperators.contains(authentication.get().getName())))
               .anyRequest().authenticated());
 
-      // Add JWT cookie authentication filter first for SSR pages (before rate limiting)
+      // Add JWT cookie authentication filter first for SSR pages
       http.addFilterBefore(new SsrJwtCookieFilter(jwtTokenProvider), UsernamePasswordAuthenticationFilter.class);
-      
-      // Add rate limiting filter
-      http.addFilterBefore(rateLimitingFilter, UsernamePasswordAuthenticationFilter.class);
 
       // Add JWT token filter for API requests
       http.addFilterBefore(new JwtTokenFilter(jwtTokenProvider),
           UsernamePasswordAuthenticationFilter.class);
 
+      // Rate limit by IP before any token is verified, then apply per-user policies once the user is known
+      http.addFilterBefore(rateLimitingFilter, SsrJwtCookieFilter.class);
+      http.addFilterAfter(rateLimitingFilter.userPolicyFilter(), JwtTokenFilter.class);
+
       return http.build();
     }
     
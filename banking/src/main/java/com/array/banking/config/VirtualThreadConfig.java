@@ -0,0 +1,80 @@
+package com.array.banking.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * Virtual thread execution mode, enabled with the virtual-threads profile and built for Java 21 with the
+ * Maven profile of the same name. It refuses to start on an older runtime rather than quietly measuring
+ * platform threads. Tomcat request handling and the scheduler switch through spring.threads.virtual.enabled
+ * (see application-virtual-threads.yml); this class provides the matching transaction executor and
+ * a permit gate in front of the connection pool so virtual threads can't stampede Hikari.
+ */
+@Configuration
+@Profile("virtual-threads")
+@Slf4j
+public class VirtualThreadConfig {
+
+    private static final boolean VIRTUAL_THREADS_SUPPORTED = Runtime.version().feature() >= 21;
+
+    @Value("${db-permits.max-concurrent}")
+    private int maxConcurrentConnections;
+
+    @Bean(name = "transactionExecutor")
+    public Executor transactionExecutor() {
+        if (!VIRTUAL_THREADS_SUPPORTED) {
+            throw new IllegalStateException("The virtual-threads profile needs Java 21+, running on Java "
+                    + Runtime.version().feature());
+        }
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("Transaction-");
+        executor.setVirtualThreads(true);
+        // Each settlement batch holds a connection, so don't start more than there are database permits
+        executor.setConcurrencyLimit(maxConcurrentConnections);
+        return executor;
+    }
+
+    @Bean
+    public static BeanPostProcessor dbPermitDataSourcePostProcessor(
+            @Value("${db-permits.max-concurrent}") int maxConcurrent,
+            @Value("${db-permits.acquire-timeout}") Duration acquireTimeout,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof DbPermitDataSource)) {
+                    if (dataSource instanceof HikariDataSource hikari && maxConcurrent >= hikari.getMaximumPoolSize()) {
+                        log.warn("db-permits.max-concurrent ({}) should stay below the connection pool size ({}), "
+                                + "or permit holders queue in Hikari as well", maxConcurrent, hikari.getMaximumPoolSize());
+                    }
+                    DbPermitDataSource gated = new DbPermitDataSource(dataSource, maxConcurrent, acquireTimeout);
+                    meterRegistry.ifAvailable(registry -> {
+                        Gauge.builder("banking.db.permits.available", gated, DbPermitDataSource::getAvailablePermits)
+                                .description("Database permits currently free")
+                                .register(registry);
+                        Gauge.builder("banking.db.permits.waiting", gated, DbPermitDataSource::getQueueLength)
+                                .description("Threads waiting for a database permit")
+                                .register(registry);
+                    });
+                    return gated;
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -1,10 +1,13 @@
 package com.array.banking.controller;
 
+import com.array.banking.dto.ChangePasswordRequest;
 import com.array.banking.dto.LoginRequest;
 import com.array.banking.dto.LoginResponse;
 import com.array.banking.dto.RegisterRequest;
 import com.array.banking.dto.RegisterResponse;
 import com.array.banking.model.User;
+import com.array.banking.security.BankingUserDetails;
+import com.array.banking.security.CurrentUser;
 import com.array.banking.security.JwtTokenProvider;
 import com.array.banking.service.RandomTransactionService;
 import com.array.banking.service.UserService;
@@ -15,9 +18,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -40,17 +45,19 @@ public class AuthController {
         String username = loginRequest.getUsername();
         String password = loginRequest.getPassword();
         
-        authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(username, password));
+        Authentication authentication = authenticationManager.authenticate(
+            new UsernamePasswordAuthenticationToken(username, password));
+        BankingUserDetails principal = (BankingUserDetails) authentication.getPrincipal();
         
         // Generate token
-        String token = jwtTokenProvider.createToken(username);
+        String token = jwtTokenProvider.createToken(principal);
         
         // Create response
         LoginResponse response = new LoginResponse(token, username);
         
         try {
             // Simulate random transactions for the user on login
-            randomTransactionService.generateRandomTransactions(userService.getUserByUsername(username).get());
+            randomTransactionService.generateRandomTransactions(principal.getUser());
         } catch (Exception e) {
             log.error("Failed to generate random transactions", e);
             return ResponseEntity.internalServerError().body("Failed to generate random transactions");
@@ -75,4 +82,31 @@ public class AuthController {
         
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Revoke the bearer token so it can't be used again before it expires
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(value = "Authorization", required = false) String authorization) {
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            jwtTokenProvider.revokeToken(authorization.substring(7));
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Change the authenticated user's password. Every token issued before the change, this one included,
+     * stops working, so the client has to log in again with the new password.
+     */
+    @PostMapping("/password")
+    public ResponseEntity<?> changePassword(@Valid @RequestBody ChangePasswordRequest changePasswordRequest,
+                                            @CurrentUser User user) {
+        try {
+            userService.changePassword(user.getUserId(), changePasswordRequest.getCurrentPassword(),
+                changePasswordRequest.getNewPassword());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -1,28 +1,54 @@
 package com.array.banking.controller;
 
 import com.array.banking.dto.BalanceResponse;
+import com.array.banking.dto.BatchTransferRequest;
+import com.array.banking.dto.BatchTransferResponse;
+import com.array.banking.dto.BulkIngestionResponse;
+import com.array.banking.dto.CursorPage;
+import com.array.banking.dto.PageResponse;
+import com.array.banking.dto.TransactionResponse;
 import com.array.banking.dto.TransferRequest;
 import com.array.banking.dto.TransferResponse;
-import com.array.banking.model.Transaction;
 import com.array.banking.model.User;
+import com.array.banking.security.CurrentUser;
 import com.array.banking.service.BalanceService;
+import com.array.banking.service.BatchTransferService;
+import com.array.banking.service.BulkIngestionService;
+import com.array.banking.service.IdempotencyService;
+import com.array.banking.service.LedgerSnapshotService;
+import com.array.banking.service.LedgerUpdateFanout;
+import com.array.banking.service.RecordFormat;
+import com.array.banking.service.TransactionExportService;
 import com.array.banking.service.TransactionService;
 import com.array.banking.service.UserService;
-import org.springframework.data.domain.Page;
+import com.array.banking.util.CurrencyUtil;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/banking/v1")
@@ -33,14 +59,23 @@ public class BankingController {
     private final BalanceService balanceService;
     private final UserService userService;
     private final TransactionService transactionService;
+    private final BulkIngestionService bulkIngestionService;
+    private final TransactionExportService transactionExportService;
+    private final LedgerSnapshotService ledgerSnapshotService;
+    private final LedgerUpdateFanout ledgerUpdateFanout;
+    private final IdempotencyService idempotencyService;
+    private final BatchTransferService batchTransferService;
     
     /**
-     * Get the authenticated user's current balance
+     * Get the authenticated user's current balance, or the balance at a point in time rebuilt from the ledger
      */
     @GetMapping("/balance")
-    public ResponseEntity<BalanceResponse> getBalance() {
-        User user = getCurrentUser();
-        BigDecimal userBalance = balanceService.getCurrentBalanceInDollars(user);
+    public ResponseEntity<BalanceResponse> getBalance(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf,
+            @CurrentUser User user) {
+        BigDecimal userBalance = asOf != null
+                ? CurrencyUtil.centsToDollars(ledgerSnapshotService.getBalanceAsOf(user.getUserId(), asOf))
+                : balanceService.getCurrentBalanceInDollars(user);
         BalanceResponse response = new BalanceResponse(user.getUsername(), userBalance);
         return ResponseEntity.ok(response);
     }
@@ -49,30 +84,101 @@ public class BankingController {
      * Get paginated list of transactions for the authenticated user
      */
     @GetMapping("/transactions")
-    public ResponseEntity<Page<Transaction>> getTransactions(
+    public ResponseEntity<PageResponse<TransactionResponse>> getTransactions(
             @RequestParam(defaultValue = "0") @Min(value = 0, message = "Page index must not be negative") int page,
-            @RequestParam(defaultValue = "10") @Min(value = 1, message = "Page size must not be less than one") int size) {
+            @RequestParam(defaultValue = "10") @Min(value = 1, message = "Page size must not be less than one") int size,
+            @CurrentUser User user) {
         
         // Cap the maximum page size to prevent potential resource issues
         size = Math.min(size, 100);
         
-        User user = getCurrentUser();
         Pageable pageable = PageRequest.of(page, size);
-        Page<Transaction> transactions = transactionService.getUserTransactionsPaginated(user, pageable);
+        PageResponse<TransactionResponse> transactions = transactionService.getUserTransactionsPaginated(user, pageable);
         
         return ResponseEntity.ok(transactions);
     }
     
+    /**
+     * Get the authenticated user's transactions newest first using keyset pagination.
+     * Pass the returned nextCursor to fetch the following slice; it is null on the last one.
+     */
+    @GetMapping("/transactions/feed")
+    public ResponseEntity<?> getTransactionFeed(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") @Min(value = 1, message = "Page size must not be less than one") int size,
+            @CurrentUser User user) {
+        
+        // Cap the maximum page size to prevent potential resource issues
+        size = Math.min(size, 100);
+        
+        try {
+            CursorPage<TransactionResponse> transactions = transactionService.getUserTransactionsAfter(user, cursor, size);
+            return ResponseEntity.ok(transactions);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    /**
+     * Export the authenticated user's transactions oldest first as CSV or NDJSON (format=csv|ndjson).
+     * from and to are inclusive ISO date-times and both optional. Rows are written to the response
+     * as they are read, so there is no page size limit.
+     */
+    @GetMapping("/transactions/export")
+    public void exportTransactions(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "csv") String format,
+            @CurrentUser User user,
+            HttpServletResponse response) throws IOException {
+        
+        RecordFormat recordFormat;
+        try {
+            recordFormat = RecordFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported format: " + format);
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must not be after to");
+        }
+        
+        response.setContentType(recordFormat.mediaType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+            .filename("transactions." + recordFormat.name().toLowerCase(Locale.ROOT))
+            .build()
+            .toString());
+        transactionExportService.export(user, from, to, recordFormat, response.getOutputStream());
+    }
+    
+    /**
+     * Stream the authenticated user's ledger updates as server-sent events: a "transaction" event with a
+     * LedgerUpdateResponse whenever one of their transactions is COMPLETED or FAILED
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(@CurrentUser User user) {
+        return ledgerUpdateFanout.subscribe(user.getUserId(), update -> List.of(
+            SseEmitter.event().name("transaction").id(String.valueOf(update.getTransactionId()))
+                .data(update, MediaType.APPLICATION_JSON)));
+    }
+    
     /**
      * Transfer funds to another user.
      * Ensures overdrafts are not allowed.
      * The response isn't guaranteed to be in sync with the balance calculated by the transaction ledger.
      * Instead, the response is based on the balance when the transfer began and the amount transferred after it succeeds.
+     * With an Idempotency-Key header a retry of a successful transfer replays its response instead of transferring
+     * again, marked by an Idempotent-Replayed header.
      */
     @PostMapping("/transfer")
-    public ResponseEntity<?> transfer(@Valid @RequestBody TransferRequest transferRequest) {
+    public ResponseEntity<?> transfer(@Valid @RequestBody TransferRequest transferRequest,
+                                      @CurrentUser User sender,
+                                      @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotent(sender, idempotencyKey, () -> executeTransfer(transferRequest, sender),
+            transferRequest.getRecipientUsername(), transferRequest.getAmount().stripTrailingZeros().toPlainString());
+    }
+    
+    private ResponseEntity<?> executeTransfer(TransferRequest transferRequest, User sender) {
         try {
-            User sender = getCurrentUser();
             String recipientUsername = transferRequest.getRecipientUsername();
             BigDecimal amount = transferRequest.getAmount();
             BigDecimal senderBalance = balanceService.getCurrentBalanceInDollars(sender);
@@ -109,12 +215,60 @@ public class BankingController {
     }
     
     /**
-     * Helper method to get current authenticated user
+     * Transfer funds to many users at once, e.g. a payroll run. The sender's balance must cover the total
+     * of the valid transfers; an invalid transfer fails on its own and is reported in its result.
+     * Responds 400 with the results when no transfer succeeded. Takes an Idempotency-Key header like /transfer.
      */
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        return userService.getUserByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    @PostMapping("/transfer/batch")
+    public ResponseEntity<?> batchTransfer(@Valid @RequestBody BatchTransferRequest batchTransferRequest,
+                                           @CurrentUser User sender,
+                                           @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        List<TransferRequest> transfers = batchTransferRequest.getTransfers();
+        List<String> requestFields = new ArrayList<>(transfers.size() * 2 + 1);
+        requestFields.add("batch");
+        for (TransferRequest transfer : transfers) {
+            requestFields.add(String.valueOf(transfer.getRecipientUsername()));
+            requestFields.add(transfer.getAmount() == null ? "" : transfer.getAmount().stripTrailingZeros().toPlainString());
+        }
+        return idempotent(sender, idempotencyKey, () -> {
+            try {
+                BatchTransferResponse response = batchTransferService.transfer(sender, transfers);
+                return response.getTransfersSucceeded() == 0
+                    ? ResponseEntity.badRequest().body(response)
+                    : ResponseEntity.ok(response);
+            } catch (Exception e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+        }, requestFields.toArray(String[]::new));
+    }
+    
+    /**
+     * Run a request at most once per Idempotency-Key when the client sent one
+     */
+    private ResponseEntity<?> idempotent(User sender, String idempotencyKey, Supplier<ResponseEntity<?>> request,
+                                         String... requestFields) {
+        if (idempotencyKey == null) {
+            return request.get();
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > IdempotencyService.MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest()
+                .body(IdempotencyService.HEADER + " must be 1 to " + IdempotencyService.MAX_KEY_LENGTH + " characters");
+        }
+        return idempotencyService.execute(sender.getUserId(), idempotencyKey,
+            IdempotencyService.requestHash(requestFields), request);
+    }
+    
+    /**
+     * Deposit into many accounts from a CSV (username,amount) or NDJSON ({"username", "amount"}) body.
+     * The body is streamed, invalid rows are reported by line number and skipped while the valid ones
+     * are still deposited. Restricted to the users in ingestion.operators.
+     */
+    @PostMapping(value = "/transactions/bulk",
+            consumes = {RecordFormat.CSV_MEDIA_TYPE, RecordFormat.NDJSON_MEDIA_TYPE})
+    public ResponseEntity<BulkIngestionResponse> bulkDeposit(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) throws IOException {
+        BulkIngestionResponse response = bulkIngestionService.ingest(body, RecordFormat.of(contentType));
+        return ResponseEntity.ok(response);
     }
 }
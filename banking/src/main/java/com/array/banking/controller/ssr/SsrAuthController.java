@@ -2,7 +2,7 @@ package com.array.banking.controller.ssr;
 
 import com.array.banking.dto.LoginRequest;
 import com.array.banking.dto.RegisterRequest;
-import com.array.banking.model.User;
+import com.array.banking.security.BankingUserDetails;
 import com.array.banking.security.JwtTokenProvider;
 import com.array.banking.service.RandomTransactionService;
 import com.array.banking.service.UserService;
@@ -26,6 +26,7 @@ import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import org.springframework.web.util.WebUtils;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -84,7 +85,8 @@ public class SsrAuthController {
             SecurityContextHolder.getContext().setAuthentication(authentication);
             
             // Generate JWT token
-            String token = jwtTokenProvider.createToken(username);
+            BankingUserDetails principal = (BankingUserDetails) authentication.getPrincipal();
+            String token = jwtTokenProvider.createToken(principal);
             
             // Store token in a cookie
             Cookie jwtCookie = new Cookie(jwtCookieName, token);
@@ -97,8 +99,7 @@ public class SsrAuthController {
             
             // Generate random transactions for demo purposes
             try {
-                User user = userService.getUserByUsername(username).orElseThrow();
-                randomTransactionService.generateRandomTransactions(user);
+                randomTransactionService.generateRandomTransactions(principal.getUser());
             } catch (Exception e) {
                 log.error("Failed to generate random transactions", e);
             }
@@ -153,7 +154,13 @@ public class SsrAuthController {
     }
     
     @GetMapping("/logout")
-    public String logout(HttpServletResponse response, RedirectAttributes redirectAttributes) {
+    public String logout(HttpServletRequest request, HttpServletResponse response, RedirectAttributes redirectAttributes) {
+        // Revoke the token itself, clearing the cookie alone leaves it usable until it expires
+        Cookie existingCookie = WebUtils.getCookie(request, jwtCookieName);
+        if (existingCookie != null && existingCookie.getValue() != null) {
+            jwtTokenProvider.revokeToken(existingCookie.getValue());
+        }
+        
         // Clear the JWT cookie
         Cookie jwtCookie = new Cookie(jwtCookieName, null);
         jwtCookie.setPath("/");
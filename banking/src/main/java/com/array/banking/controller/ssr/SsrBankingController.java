@@ -1,21 +1,22 @@
 package com.array.banking.controller.ssr;
 
+import com.array.banking.dto.CursorPage;
+import com.array.banking.dto.TransactionResponse;
 import com.array.banking.dto.TransferRequest;
-import com.array.banking.model.Transaction;
 import com.array.banking.model.User;
+import com.array.banking.security.CurrentUser;
 import com.array.banking.service.BalanceService;
+import com.array.banking.service.LedgerUpdateFanout;
 import com.array.banking.service.TransactionService;
 import com.array.banking.service.UserService;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -25,11 +26,15 @@ import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
 import java.util.Optional;
 
 import lombok.RequiredArgsConstructor;
@@ -45,35 +50,47 @@ public class SsrBankingController {
     private final UserService userService;
     private final BalanceService balanceService;
     private final TransactionService transactionService;
+    private final LedgerUpdateFanout ledgerUpdateFanout;
     
     @GetMapping("/dashboard")
-    public String dashboard(Model model) {
-        User user = getCurrentUser();
-        Pageable pageable = PageRequest.of(0, 5);
-        Page<Transaction> transactions = transactionService.getUserTransactionsPaginated(user, pageable);
+    public String dashboard(@CurrentUser User user, Model model) {
+        CursorPage<TransactionResponse> transactions = transactionService.getUserTransactionsAfter(user, null, 5);
         model.addAttribute("user", user);
         model.addAttribute("balance", balanceService.getCurrentBalanceInDollars(user));
         model.addAttribute("recentTransactions", transactions.getContent());
         return "ssr/dashboard";
     }
     
+    /**
+     * Live updates of the dashboard over server-sent events, consumed by its hx-sse attributes.
+     * "balance" carries the new balance text, "transaction" an out-of-band swap of the status cell.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter streamEvents(@CurrentUser User user) {
+        return ledgerUpdateFanout.subscribe(user.getUserId(), update -> List.of(
+            SseEmitter.event().name("balance")
+                .data("$" + update.getBalanceInDollars().setScale(2, RoundingMode.HALF_UP).toPlainString()),
+            SseEmitter.event().name("transaction")
+                .data("<span id=\"transaction-" + update.getTransactionId() + "-status\" hx-swap-oob=\"true\">"
+                    + update.getStatus() + "</span>")));
+    }
+    
     @GetMapping("/transactions")
     public String getTransactions(
-            @RequestParam(defaultValue = "0") @Min(0) int page,
             @RequestParam(defaultValue = "10") @Min(1) int size,
+            @CurrentUser User user,
             Model model) {
         
         // Cap the maximum page size
         size = Math.min(size, 100);
         
-        User user = getCurrentUser();
-        Pageable pageable = PageRequest.of(page, size);
-        Page<Transaction> transactions = transactionService.getUserTransactionsPaginated(user, pageable);
+        CursorPage<TransactionResponse> transactions = transactionService.getUserTransactionsAfter(user, null, size);
         
         model.addAttribute("user", user);
-        model.addAttribute("transactions", transactions);
-        model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", transactions.getTotalPages());
+        model.addAttribute("transactions", transactions.getContent());
+        model.addAttribute("nextCursor", transactions.getNextCursor());
+        model.addAttribute("size", size);
         
         // For partial HTMX updates
         if (isHtmxRequest()) {
@@ -83,9 +100,36 @@ public class SsrBankingController {
         return "ssr/transactions";
     }
     
+    /**
+     * Next slice of rows for infinite scroll, requested by the sentinel row in the transaction list.
+     * A cursor that doesn't decode gets a 400 with no rows.
+     */
+    @GetMapping("/transactions/feed")
+    public String getTransactionFeed(
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") @Min(1) int size,
+            @CurrentUser User user,
+            Model model,
+            HttpServletResponse response) {
+        
+        size = Math.min(size, 100);
+        
+        CursorPage<TransactionResponse> transactions;
+        try {
+            transactions = transactionService.getUserTransactionsAfter(user, cursor, size);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            transactions = new CursorPage<>(List.of(), null);
+        }
+        
+        model.addAttribute("transactions", transactions.getContent());
+        model.addAttribute("nextCursor", transactions.getNextCursor());
+        model.addAttribute("size", size);
+        return "ssr/fragments/transaction-list :: rows";
+    }
+    
     @GetMapping("/transfer")
-    public String transferForm(Model model) {
-        User user = getCurrentUser();
+    public String transferForm(@CurrentUser User user, Model model) {
         model.addAttribute("user", user);
         model.addAttribute("balance", balanceService.getCurrentBalanceInDollars(user));
         model.addAttribute("transferRequest", new TransferRequest());
@@ -95,10 +139,10 @@ public class SsrBankingController {
     @PostMapping("/transfer")
     public String transfer(@Valid @ModelAttribute TransferRequest transferRequest,
                           BindingResult bindingResult,
+                          @CurrentUser User user,
                           RedirectAttributes redirectAttributes,
                           Model model) {
         
-        User user = getCurrentUser();
         model.addAttribute("user", user);
         model.addAttribute("balance", balanceService.getCurrentBalanceInDollars(user));
         
@@ -151,13 +195,6 @@ public class SsrBankingController {
         }
     }
     
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        return userService.getUserByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-    }
-    
 
     private boolean isHtmxRequest() {
         ServletRequestAttributes requestAttributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
@@ -0,0 +1,18 @@
+package com.array.banking.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Transfers from the authenticated user to many recipients. The items aren't validated here: an invalid
+ * item is reported in its result while the others are still transferred.
+ */
+@Data
+public class BatchTransferRequest {
+
+    @NotEmpty(message = "At least one transfer is required")
+    private List<TransferRequest> transfers;
+
+}
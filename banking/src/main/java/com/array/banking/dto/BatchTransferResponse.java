@@ -0,0 +1,39 @@
+package com.array.banking.dto;
+
+import com.array.banking.model.TransactionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Outcome of a batch transfer, with one result per requested transfer in request order
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchTransferResponse {
+    private int transfersSucceeded;
+    private int transfersFailed;
+    private BigDecimal totalTransferred;
+    // Sender's balance after the debit, null when nothing was transferred
+    private BigDecimal newBalance;
+    private List<ItemResult> results;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class ItemResult {
+        // 0-based position in the request
+        private int index;
+        private String recipientUsername;
+        private BigDecimal amount;
+        // COMPLETED or FAILED
+        private TransactionStatus status;
+        // The outgoing leg, like TransferResponse.transactionId
+        private Integer transactionId;
+        private String message;
+    }
+}
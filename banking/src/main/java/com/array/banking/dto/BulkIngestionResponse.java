@@ -0,0 +1,33 @@
+package com.array.banking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk ingestion. Only the first errors are listed, errorsTruncated says whether there were more.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkIngestionResponse {
+    private long rowsRead;
+    private long rowsInserted;
+    private long rowsFailed;
+    private long elapsedMillis;
+    // Rows read, valid or not, per second of the whole request
+    private double rowsPerSecond;
+    private List<RowError> errors;
+    private boolean errorsTruncated;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RowError {
+        // 1-based line number in the request body
+        private long line;
+        private String message;
+    }
+}
@@ -0,0 +1,24 @@
+package com.array.banking.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One slice of a keyset-paginated result. nextCursor is null on the last slice.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private String nextCursor;
+
+    @JsonProperty("hasNext")
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,42 @@
+package com.array.banking.dto;
+
+import com.array.banking.model.TransactionStatus;
+import com.array.banking.model.TransactionType;
+import com.array.banking.repository.LedgerEvent;
+import com.array.banking.util.CurrencyUtil;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A transaction of the user reaching COMPLETED or FAILED, pushed over the live event stream
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerUpdateResponse {
+    private Integer transactionId;
+    private TransactionType type;
+    private TransactionStatus status;
+    private BigDecimal amountInDollars;
+    private BigDecimal balanceDeltaInDollars;
+    // Balance after the update was published, it already includes any later update of the same batch
+    private BigDecimal balanceInDollars;
+    private LocalDateTime timestamp;
+
+    public static LedgerUpdateResponse of(LedgerEvent event, long balanceInCents) {
+        return new LedgerUpdateResponse(
+            event.transactionId(),
+            event.type(),
+            event.status(),
+            CurrencyUtil.centsToDollars(event.amountInCents()),
+            CurrencyUtil.centsToDollars(event.balanceDeltaInCents()),
+            CurrencyUtil.centsToDollars(balanceInCents),
+            event.timestamp()
+        );
+    }
+}
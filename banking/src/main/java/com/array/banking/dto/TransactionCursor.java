@@ -0,0 +1,35 @@
+package com.array.banking.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a user's transaction history, ordered by (timestamp DESC, transactionId DESC).
+ * Clients only ever see the opaque encoded form.
+ */
+public record TransactionCursor(LocalDateTime timestamp, Integer transactionId) {
+
+    public static TransactionCursor after(TransactionResponse transaction) {
+        return new TransactionCursor(transaction.getTimestamp(), transaction.getTransactionId());
+    }
+
+    public String encode() {
+        String raw = timestamp + "," + transactionId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TransactionCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(',');
+            return new TransactionCursor(
+                LocalDateTime.parse(raw.substring(0, separator)),
+                Integer.valueOf(raw.substring(separator + 1))
+            );
+        } catch (DateTimeParseException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.array.banking.dto;
 import com.array.banking.model.Transaction;
 import com.array.banking.model.TransactionStatus;
 import com.array.banking.model.TransactionType;
+import com.array.banking.repository.TransactionView;
 import com.array.banking.util.CurrencyUtil;
 
 import lombok.AllArgsConstructor;
@@ -34,4 +35,17 @@ public class TransactionResponse {
             transaction.getStatus()
         );
     }
+    
+    /**
+     * Create a TransactionResponse from a projection, without an entity in between
+     */
+    public static TransactionResponse fromView(TransactionView view) {
+        return new TransactionResponse(
+            view.getTransactionId(),
+            CurrencyUtil.centsToDollars(view.getAmount()),
+            view.getType(),
+            view.getTimestamp(),
+            view.getStatus()
+        );
+    }
 }
@@ -0,0 +1,35 @@
+package com.array.banking.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Running balance snapshot for a user, kept in step with the ledger on every completed transaction.
+ * The ledger in the transactions table remains the source of truth, see BalanceReconciliationService.
+ */
+@Entity
+@Table(name = "account_balances")
+@Getter
+@Setter
+@NoArgsConstructor
+public class AccountBalance {
+
+    @Id
+    @Column(name = "user_id")
+    private Integer userId;
+
+    @Column(name = "balance", nullable = false)
+    private Long balance = 0L; // Balance in cents
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    public AccountBalance(Integer userId, Long balanceInCents) {
+        this.userId = userId;
+        this.balance = balanceInCents;
+    }
+}
@@ -5,6 +5,9 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
 import java.time.LocalDateTime;
 
 @Entity
@@ -19,22 +22,27 @@ public class Transaction {
     @Column(name = "transaction_id")
     private Integer transactionId;
     
-    // Should user transactions really be deleted? Maybe we should keep them for auditing
-    @ManyToOne(cascade = CascadeType.ALL)
+    // Loaded only when read; history pages and exports use projections and never need it.
+    // Nothing cascades: saving a transaction never writes the user, and deleting one never deletes the user
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
     
     @Column(name = "amount", nullable = false)
     private Long amount; // Amount in cents
     
+    // Postgres enum types transaction_type and transaction_status, labels match the Java names
     @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.NAMED_ENUM)
     @Column(name = "transaction_type", nullable = false)
     private TransactionType type;
     
-    @Column(name = "timestamp", nullable = false)
+    // Partition key of the transactions table, an update would move the row to another partition
+    @Column(name = "timestamp", nullable = false, updatable = false)
     private LocalDateTime timestamp = LocalDateTime.now();
 
     @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.NAMED_ENUM)
     @Column(name = "status", nullable = false)
     private TransactionStatus status = TransactionStatus.PENDING;
     
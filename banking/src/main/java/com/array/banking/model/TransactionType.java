@@ -15,6 +15,11 @@ public enum TransactionType {
     public String getValue() {
         return value;
     }
+
+    // Deposits and incoming transfers add to the balance, everything else subtracts from it
+    public boolean isCredit() {
+        return this == DEPOSIT || this == TRANSFER_IN;
+    }
     
     // Convert database value to enum
     public static TransactionType fromValue(String value) {
@@ -0,0 +1,38 @@
+package com.array.banking.repository;
+
+import com.array.banking.model.AccountBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AccountBalanceRepository extends JpaRepository<AccountBalance, Integer> {
+
+    @Query("SELECT b.balance FROM AccountBalance b WHERE b.userId = :userId")
+    Optional<Long> findBalanceByUserId(@Param("userId") Integer userId);
+
+    // Compare every snapshot against the full ledger sum in a single consistent read
+    @Query(value = """
+            SELECT u.user_id AS userId,
+                   COALESCE(b.balance, 0) AS snapshotBalance,
+                   COALESCE(l.balance, 0) AS ledgerBalance
+            FROM users u
+            LEFT JOIN account_balances b ON b.user_id = u.user_id
+            LEFT JOIN (
+                SELECT user_id, SUM(CASE 
+                    WHEN transaction_type IN ('DEPOSIT', 'TRANSFER_IN') THEN amount
+                    WHEN transaction_type IN ('WITHDRAWAL', 'TRANSFER_OUT') THEN -amount
+                    ELSE 0 
+                END) AS balance
+                FROM transactions
+                WHERE status = 'COMPLETED'
+                GROUP BY user_id
+            ) l ON l.user_id = u.user_id
+            WHERE COALESCE(b.balance, 0) <> COALESCE(l.balance, 0)
+            """, nativeQuery = true)
+    List<BalanceDrift> findBalanceDrift();
+}
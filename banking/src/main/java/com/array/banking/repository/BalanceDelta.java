@@ -0,0 +1,7 @@
+package com.array.banking.repository;
+
+/**
+ * Net amount in cents of a run of ledger events and how many events it took
+ */
+public record BalanceDelta(long amountInCents, long events) {
+}
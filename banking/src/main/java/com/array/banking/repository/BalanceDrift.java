@@ -0,0 +1,12 @@
+package com.array.banking.repository;
+
+/**
+ * A user whose balance snapshot disagrees with the balance derived from the ledger
+ */
+public interface BalanceDrift {
+    Integer getUserId();
+
+    Long getSnapshotBalance();
+
+    Long getLedgerBalance();
+}
@@ -0,0 +1,10 @@
+package com.array.banking.repository;
+
+import java.util.List;
+
+/**
+ * Ledger rows written for a batch transfer, one TransferLegs per payment in order, and the sender's
+ * balance snapshot after the debit
+ */
+public record BatchTransferLegs(Long senderBalanceInCents, List<TransferLegs> legs) {
+}
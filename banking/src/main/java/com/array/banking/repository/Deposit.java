@@ -0,0 +1,7 @@
+package com.array.banking.repository;
+
+/**
+ * One row of a bulk deposit, already validated and resolved to a user
+ */
+public record Deposit(Integer userId, Long amountInCents) {
+}
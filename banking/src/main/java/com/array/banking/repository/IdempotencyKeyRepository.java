@@ -0,0 +1,65 @@
+package com.array.banking.repository;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Idempotency keys of V6__idempotency_keys.sql. Claims must run in the transaction of the request they guard.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IdempotencyKeyRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Claim the key for a request, taking over a key created longer than ttl ago.
+     * Blocks while another transaction holds an uncommitted claim of the key, and returns false if that
+     * transaction committed, i.e. the key is taken.
+     */
+    public boolean claim(Integer userId, String key, String requestHash, Duration ttl) {
+        return !jdbcTemplate.queryForList("""
+                INSERT INTO idempotency_keys (user_id, idempotency_key, request_hash)
+                VALUES (?, ?, ?)
+                ON CONFLICT (user_id, idempotency_key) DO UPDATE
+                SET request_hash = EXCLUDED.request_hash, status_code = NULL, response_body = NULL,
+                    created_at = CURRENT_TIMESTAMP
+                WHERE idempotency_keys.created_at < CURRENT_TIMESTAMP - ? * INTERVAL '1 second'
+                RETURNING user_id
+                """, Integer.class, userId, key, requestHash, ttl.toSeconds()).isEmpty();
+    }
+
+    public Optional<StoredResponse> find(Integer userId, String key) {
+        return jdbcTemplate.query("""
+                SELECT request_hash, status_code, response_body FROM idempotency_keys
+                WHERE user_id = ? AND idempotency_key = ?
+                """,
+                (rs, rowNum) -> new StoredResponse(
+                        rs.getString("request_hash"), rs.getInt("status_code"), rs.getString("response_body")),
+                userId, key).stream().findFirst();
+    }
+
+    /**
+     * Record the response of a claimed key
+     */
+    public void complete(Integer userId, String key, int statusCode, String body) {
+        jdbcTemplate.update("""
+                UPDATE idempotency_keys SET status_code = ?, response_body = ?
+                WHERE user_id = ? AND idempotency_key = ?
+                """, statusCode, body, userId, key);
+    }
+
+    /**
+     * Delete keys created longer than ttl ago, returns the number of rows deleted
+     */
+    public int deleteExpired(Duration ttl) {
+        return jdbcTemplate.update(
+                "DELETE FROM idempotency_keys WHERE created_at < CURRENT_TIMESTAMP - ? * INTERVAL '1 second'",
+                ttl.toSeconds());
+    }
+}
@@ -0,0 +1,24 @@
+package com.array.banking.repository;
+
+import com.array.banking.model.TransactionStatus;
+import com.array.banking.model.TransactionType;
+
+import java.time.LocalDateTime;
+
+/**
+ * A transaction reaching COMPLETED or FAILED, as written to ledger_outbox. The event ID is unique but
+ * isn't the stream offset, the ledger event log assigns offsets in publishing order.
+ */
+public record LedgerEvent(Long eventId, Integer transactionId, Integer userId, Long amountInCents,
+                          TransactionType type, TransactionStatus status, LocalDateTime timestamp) {
+
+    /**
+     * Change of the user's balance, zero when the transaction failed
+     */
+    public long balanceDeltaInCents() {
+        if (status != TransactionStatus.COMPLETED) {
+            return 0;
+        }
+        return type.isCredit() ? amountInCents : -amountInCents;
+    }
+}
@@ -0,0 +1,282 @@
+package com.array.banking.repository;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Set-based ledger writes that don't map well onto JPA entity saves.
+ * Shares the connection of the surrounding JPA transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LedgerJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Mark a batch of PENDING transactions COMPLETED and fold their amounts into account_balances
+     * with a single statement. Rows that are no longer PENDING are skipped, so a batch can be retried safely.
+     * The UPDATE is bounded to the months spanned by the batch so only those partitions are scanned.
+     * Returns the IDs of the users whose balance changed.
+     */
+    public List<Integer> completePendingTransactions(Collection<PendingTransaction> transactions) {
+        // Upsert balances in user_id order so concurrent batches lock account_balances rows consistently
+        String sql = """
+                WITH settled AS (
+                    UPDATE transactions SET status = 'COMPLETED'
+                    WHERE transaction_id = ANY(?) AND status = 'PENDING'
+                      AND timestamp >= ? AND timestamp < ?
+                    RETURNING user_id, amount, transaction_type
+                )
+                INSERT INTO account_balances (user_id, balance, updated_at)
+                SELECT user_id, SUM(CASE 
+                    WHEN transaction_type IN ('DEPOSIT', 'TRANSFER_IN') THEN amount
+                    WHEN transaction_type IN ('WITHDRAWAL', 'TRANSFER_OUT') THEN -amount
+                    ELSE 0 
+                END), CURRENT_TIMESTAMP
+                FROM settled
+                GROUP BY user_id
+                ORDER BY user_id
+                ON CONFLICT (user_id) DO UPDATE
+                SET balance = account_balances.balance + EXCLUDED.balance,
+                    updated_at = EXCLUDED.updated_at
+                RETURNING user_id
+                """;
+        LocalDateTime earliest = transactions.stream().map(PendingTransaction::timestamp)
+                .min(LocalDateTime::compareTo).orElseThrow();
+        LocalDateTime latest = transactions.stream().map(PendingTransaction::timestamp)
+                .max(LocalDateTime::compareTo).orElseThrow();
+        // Whole months, so rounding of the timestamps to microseconds can't push a row outside the range
+        Timestamp from = Timestamp.valueOf(monthStart(earliest));
+        Timestamp to = Timestamp.valueOf(monthStart(latest).plusMonths(1));
+        return jdbcTemplate.query(sql,
+                ps -> {
+                    ps.setArray(1, toIntegerArray(ps.getConnection(),
+                            transactions.stream().map(PendingTransaction::transactionId).toList()));
+                    ps.setTimestamp(2, from);
+                    ps.setTimestamp(3, to);
+                },
+                (rs, rowNum) -> rs.getInt("user_id"));
+    }
+
+    /**
+     * Debit the sender and write both legs of a transfer in one statement.
+     * The conditional UPDATE holds the sender's account_balances row lock until commit, so concurrent
+     * transfers from the same account queue behind each other and re-check the balance they see after
+     * the previous one, while transfers from different accounts don't block each other.
+     * The outgoing leg is COMPLETED immediately; the incoming leg is left PENDING for settlement so only
+     * one balance row is locked here and two opposite transfers can't deadlock.
+     * Returns empty, writing nothing, when the sender's balance doesn't cover the amount.
+     */
+    public Optional<TransferLegs> transfer(Integer senderId, Integer recipientId, Long amountInCents,
+                                           LocalDateTime timestamp) {
+        String sql = """
+                WITH debit AS (
+                    UPDATE account_balances
+                    SET balance = balance - ?, updated_at = CURRENT_TIMESTAMP
+                    WHERE user_id = ? AND balance >= ?
+                    RETURNING user_id
+                ), legs AS (
+                    INSERT INTO transactions (user_id, amount, transaction_type, timestamp, status)
+                    SELECT leg.user_id, ?, leg.transaction_type, ?, leg.status
+                    FROM debit
+                    CROSS JOIN (VALUES (?::integer, 'TRANSFER_OUT'::transaction_type, 'COMPLETED'::transaction_status),
+                                       (?::integer, 'TRANSFER_IN'::transaction_type, 'PENDING'::transaction_status))
+                               AS leg(user_id, transaction_type, status)
+                    RETURNING transaction_id, transaction_type
+                )
+                SELECT MAX(transaction_id) FILTER (WHERE transaction_type = 'TRANSFER_OUT') AS outgoing_id,
+                       MAX(transaction_id) FILTER (WHERE transaction_type = 'TRANSFER_IN') AS incoming_id
+                FROM legs
+                """;
+        TransferLegs legs = jdbcTemplate.queryForObject(sql,
+                (rs, rowNum) -> new TransferLegs(
+                        rs.getObject("outgoing_id", Integer.class),
+                        rs.getObject("incoming_id", Integer.class)),
+                amountInCents, senderId, amountInCents,
+                amountInCents, Timestamp.valueOf(timestamp),
+                senderId, recipientId);
+        return legs == null || legs.outgoingTransactionId() == null ? Optional.empty() : Optional.of(legs);
+    }
+
+    /**
+     * Debit the user and write a COMPLETED withdrawal in one statement, with the same conditional UPDATE as
+     * transfer, so concurrent withdrawals queue on the user's account_balances row and can't overdraw it.
+     * Returns the balance after the debit, or empty, writing nothing, when the balance doesn't cover the amount.
+     */
+    public Optional<Long> withdraw(Integer userId, Long amountInCents, LocalDateTime timestamp) {
+        String sql = """
+                WITH debit AS (
+                    UPDATE account_balances
+                    SET balance = balance - ?, updated_at = CURRENT_TIMESTAMP
+                    WHERE user_id = ? AND balance >= ?
+                    RETURNING user_id, balance
+                ), withdrawal AS (
+                    INSERT INTO transactions (user_id, amount, transaction_type, timestamp, status)
+                    SELECT user_id, ?, 'WITHDRAWAL', ?, 'COMPLETED'
+                    FROM debit
+                )
+                SELECT balance FROM debit
+                """;
+        return jdbcTemplate.query(sql, (rs, rowNum) -> rs.getLong("balance"),
+                        amountInCents, userId, amountInCents, amountInCents, Timestamp.valueOf(timestamp))
+                .stream().findFirst();
+    }
+
+    /**
+     * Debit the sender once for the total of all payments and write both legs of each, like transfer does
+     * for a single payment. The conditional UPDATE checks the balance against the total and holds the
+     * sender's account_balances row lock until commit. The transaction IDs are drawn from the sequence up
+     * front, so the legs go out as one JDBC batch, which the driver rewrites into multi-row INSERTs when
+     * reWriteBatchedInserts is enabled, and still map back to their payment.
+     * Returns empty, writing nothing, when the sender's balance doesn't cover the total.
+     */
+    public Optional<BatchTransferLegs> batchTransfer(Integer senderId, List<Payment> payments, LocalDateTime timestamp) {
+        long totalInCents = totalInCents(payments);
+        Optional<Long> balance = jdbcTemplate.query("""
+                UPDATE account_balances
+                SET balance = balance - ?, updated_at = CURRENT_TIMESTAMP
+                WHERE user_id = ? AND balance >= ?
+                RETURNING balance
+                """, (rs, rowNum) -> rs.getLong("balance"), totalInCents, senderId, totalInCents)
+                .stream().findFirst();
+        if (balance.isEmpty()) {
+            return Optional.empty();
+        }
+
+        List<Integer> ids = jdbcTemplate.queryForList(
+                "SELECT nextval(pg_get_serial_sequence('transactions', 'transaction_id'))::integer FROM generate_series(1, ?)",
+                Integer.class, payments.size() * 2);
+        Timestamp time = Timestamp.valueOf(timestamp);
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO transactions (transaction_id, user_id, amount, transaction_type, timestamp, status)
+                VALUES (?, ?, ?, ?::transaction_type, ?, ?::transaction_status)
+                """,
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        // Even rows are the outgoing legs, odd rows the incoming legs, left PENDING for settlement
+                        Payment payment = payments.get(i / 2);
+                        boolean outgoing = i % 2 == 0;
+                        ps.setInt(1, ids.get(i));
+                        ps.setInt(2, outgoing ? senderId : payment.recipientId());
+                        ps.setLong(3, payment.amountInCents());
+                        ps.setString(4, outgoing ? "TRANSFER_OUT" : "TRANSFER_IN");
+                        ps.setTimestamp(5, time);
+                        ps.setString(6, outgoing ? "COMPLETED" : "PENDING");
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return ids.size();
+                    }
+                });
+
+        List<TransferLegs> legs = new ArrayList<>(payments.size());
+        for (int i = 0; i < ids.size(); i += 2) {
+            legs.add(new TransferLegs(ids.get(i), ids.get(i + 1)));
+        }
+        return Optional.of(new BatchTransferLegs(balance.get(), legs));
+    }
+
+    /**
+     * Total of a batch of payments. Fails on a payment that isn't positive, which would turn the debit into a
+     * credit, and on overflow instead of wrapping.
+     */
+    public static long totalInCents(List<Payment> payments) {
+        long total = 0;
+        for (Payment payment : payments) {
+            if (payment.amountInCents() <= 0) {
+                throw new IllegalArgumentException("Payment amount must be positive: " + payment.amountInCents());
+            }
+            total = Math.addExact(total, payment.amountInCents());
+        }
+        return total;
+    }
+
+    /**
+     * Write a chunk of deposits as COMPLETED ledger rows and credit the balances in the same transaction,
+     * skipping the PENDING round trip through settlement.
+     * The rows go out as one JDBC batch, which the driver rewrites into multi-row INSERTs when
+     * reWriteBatchedInserts is enabled; the balances are upserted with one statement in user_id order
+     * so this locks account_balances rows in the same order as settlement.
+     * Returns the IDs of the users whose balance changed.
+     */
+    public List<Integer> insertCompletedDeposits(List<Deposit> deposits, LocalDateTime timestamp) {
+        Timestamp time = Timestamp.valueOf(timestamp);
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO transactions (user_id, amount, transaction_type, timestamp, status)
+                VALUES (?, ?, 'DEPOSIT', ?, 'COMPLETED')
+                """,
+                deposits, deposits.size(),
+                (ps, deposit) -> {
+                    ps.setInt(1, deposit.userId());
+                    ps.setLong(2, deposit.amountInCents());
+                    ps.setTimestamp(3, time);
+                });
+
+        Map<Integer, Long> credits = new TreeMap<>();
+        for (Deposit deposit : deposits) {
+            credits.merge(deposit.userId(), deposit.amountInCents(), Long::sum);
+        }
+        jdbcTemplate.update("""
+                INSERT INTO account_balances (user_id, balance, updated_at)
+                SELECT user_id, amount, CURRENT_TIMESTAMP
+                FROM unnest(?, ?) AS credit(user_id, amount)
+                ORDER BY user_id
+                ON CONFLICT (user_id) DO UPDATE
+                SET balance = account_balances.balance + EXCLUDED.balance,
+                    updated_at = EXCLUDED.updated_at
+                """,
+                ps -> {
+                    ps.setArray(1, toIntegerArray(ps.getConnection(), credits.keySet()));
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", credits.values().toArray()));
+                });
+        return List.copyOf(credits.keySet());
+    }
+
+    /**
+     * All transactions still waiting for settlement, e.g. after a restart
+     */
+    public List<PendingTransaction> findPendingTransactions() {
+        return jdbcTemplate.query(
+                "SELECT transaction_id, timestamp FROM transactions WHERE status = 'PENDING' ORDER BY transaction_id",
+                (rs, rowNum) -> new PendingTransaction(
+                        rs.getInt("transaction_id"), rs.getTimestamp("timestamp").toLocalDateTime()));
+    }
+
+    /**
+     * Transactions still waiting for settlement that were written before the given time, oldest first
+     */
+    public List<PendingTransaction> findPendingTransactionsBefore(LocalDateTime before) {
+        return jdbcTemplate.query(
+                "SELECT transaction_id, timestamp FROM transactions WHERE status = 'PENDING' AND timestamp < ? ORDER BY transaction_id",
+                (rs, rowNum) -> new PendingTransaction(
+                        rs.getInt("transaction_id"), rs.getTimestamp("timestamp").toLocalDateTime()),
+                Timestamp.valueOf(before));
+    }
+
+    private static LocalDateTime monthStart(LocalDateTime timestamp) {
+        return timestamp.toLocalDate().withDayOfMonth(1).atStartOfDay();
+    }
+
+    private static Array toIntegerArray(Connection connection, Collection<Integer> ids) throws SQLException {
+        return connection.createArrayOf("integer", ids.toArray());
+    }
+}
@@ -0,0 +1,68 @@
+package com.array.banking.repository;
+
+import com.array.banking.model.TransactionStatus;
+import com.array.banking.model.TransactionType;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.util.List;
+
+/**
+ * Reads and trims ledger_outbox, which the triggers in V5__ledger_outbox.sql fill.
+ * Must run inside a transaction, the relay lock and the row locks are held until it ends.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LedgerOutboxRepository {
+
+    // Arbitrary advisory lock key of the outbox relay
+    private static final long RELAY_LOCK = 0x6c65646765726f75L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Try to become the only relay until the current transaction ends. Two relays publishing batches
+     * concurrently could reorder a user's events, so on other instances the relay skips the run.
+     */
+    public boolean tryLockRelay() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(?)", Boolean.class, RELAY_LOCK));
+    }
+
+    /**
+     * The oldest events of the outbox, in the order they were written
+     */
+    public List<LedgerEvent> findOldest(int limit) {
+        return jdbcTemplate.query("""
+                SELECT event_id, transaction_id, user_id, amount, transaction_type::text AS type,
+                       status::text AS status, timestamp
+                FROM ledger_outbox
+                ORDER BY event_id
+                LIMIT ?
+                """,
+                (rs, rowNum) -> new LedgerEvent(
+                        rs.getLong("event_id"),
+                        rs.getInt("transaction_id"),
+                        rs.getInt("user_id"),
+                        rs.getLong("amount"),
+                        TransactionType.valueOf(rs.getString("type")),
+                        TransactionStatus.valueOf(rs.getString("status")),
+                        rs.getTimestamp("timestamp").toLocalDateTime()),
+                limit);
+    }
+
+    /**
+     * Remove published events. Returns the number of rows deleted.
+     */
+    public int delete(List<Long> eventIds) {
+        return jdbcTemplate.update("DELETE FROM ledger_outbox WHERE event_id = ANY(?)",
+                ps -> {
+                    Array ids = ps.getConnection().createArrayOf("bigint", eventIds.toArray());
+                    ps.setArray(1, ids);
+                });
+    }
+}
@@ -0,0 +1,10 @@
+package com.array.banking.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Balance of an account after folding its events up to and including (lastTimestamp, lastTransactionId)
+ */
+public record LedgerSnapshot(Integer userId, LocalDateTime lastTimestamp, Integer lastTransactionId,
+                             Long balance, Long eventCount) {
+}
@@ -0,0 +1,114 @@
+package com.array.banking.repository;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Event-sourced view of the ledger: an account's events are its COMPLETED transactions ordered by
+ * (timestamp, transaction_id), and ledger_snapshots holds its running balance every few events.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LedgerSnapshotRepository {
+
+    private static final String SIGNED_AMOUNT =
+            "CASE WHEN transaction_type IN ('DEPOSIT', 'TRANSFER_IN') THEN amount ELSE -amount END";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * The newest snapshot whose last event happened at or before the given time
+     */
+    public Optional<LedgerSnapshot> findLatestAtOrBefore(Integer userId, LocalDateTime asOf) {
+        return jdbcTemplate.query("""
+                SELECT user_id, last_timestamp, last_transaction_id, balance, event_count
+                FROM ledger_snapshots
+                WHERE user_id = ? AND last_timestamp <= ?
+                ORDER BY last_timestamp DESC, last_transaction_id DESC
+                LIMIT 1
+                """,
+                (rs, rowNum) -> new LedgerSnapshot(
+                        rs.getInt("user_id"),
+                        rs.getTimestamp("last_timestamp").toLocalDateTime(),
+                        rs.getInt("last_transaction_id"),
+                        rs.getLong("balance"),
+                        rs.getLong("event_count")),
+                userId, Timestamp.valueOf(asOf)).stream().findFirst();
+    }
+
+    /**
+     * Fold the account's events after the snapshot (from the first event without one) up to and including asOf.
+     * Reads the covering history index only, and only the partitions between the two points.
+     */
+    public BalanceDelta foldEvents(Integer userId, Optional<LedgerSnapshot> after, LocalDateTime asOf) {
+        if (after.isEmpty()) {
+            return jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(SUM(" + SIGNED_AMOUNT + "), 0), COUNT(*) FROM transactions "
+                            + "WHERE user_id = ? AND status = 'COMPLETED' AND timestamp <= ?",
+                    (rs, rowNum) -> new BalanceDelta(rs.getLong(1), rs.getLong(2)),
+                    userId, Timestamp.valueOf(asOf));
+        }
+
+        LedgerSnapshot snapshot = after.get();
+        Timestamp lastTimestamp = Timestamp.valueOf(snapshot.lastTimestamp());
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(" + SIGNED_AMOUNT + "), 0), COUNT(*) FROM transactions "
+                        + "WHERE user_id = ? AND status = 'COMPLETED' AND timestamp >= ? AND timestamp <= ? "
+                        + "AND (timestamp, transaction_id) > (?, ?)",
+                (rs, rowNum) -> new BalanceDelta(rs.getLong(1), rs.getLong(2)),
+                userId, lastTimestamp, Timestamp.valueOf(asOf), lastTimestamp, snapshot.lastTransactionId());
+    }
+
+    /**
+     * Snapshot each account whose balance row changed since changedSince after every run of `every` events
+     * following its latest snapshot. Only events before the horizon, and before the account's oldest PENDING
+     * transaction, are folded: a snapshot must never be overtaken by an event that commits later with an
+     * earlier position. Idempotent, concurrent runs skip the snapshots the other one wrote.
+     * Returns the number of snapshots written.
+     */
+    public int writeSnapshots(LocalDateTime changedSince, LocalDateTime horizon, int every) {
+        return jdbcTemplate.update("""
+                INSERT INTO ledger_snapshots (user_id, last_timestamp, last_transaction_id, balance, event_count)
+                SELECT account.user_id, event.timestamp, event.transaction_id,
+                       account.balance + event.running_balance, account.event_count + event.position
+                FROM (
+                    SELECT b.user_id,
+                           COALESCE(s.last_timestamp, '-infinity'::timestamp) AS last_timestamp,
+                           COALESCE(s.last_transaction_id, 0) AS last_transaction_id,
+                           COALESCE(s.balance, 0) AS balance,
+                           COALESCE(s.event_count, 0) AS event_count,
+                           LEAST(?, (SELECT MIN(p.timestamp) FROM transactions p
+                                     WHERE p.user_id = b.user_id AND p.status = 'PENDING')) AS horizon
+                    FROM account_balances b
+                    LEFT JOIN LATERAL (
+                        SELECT last_timestamp, last_transaction_id, balance, event_count
+                        FROM ledger_snapshots
+                        WHERE user_id = b.user_id
+                        ORDER BY last_timestamp DESC, last_transaction_id DESC
+                        LIMIT 1
+                    ) s ON true
+                    WHERE b.updated_at >= ?
+                ) account
+                CROSS JOIN LATERAL (
+                    SELECT t.timestamp, t.transaction_id,
+                           SUM(CASE WHEN t.transaction_type IN ('DEPOSIT', 'TRANSFER_IN') THEN t.amount ELSE -t.amount END)
+                               OVER w AS running_balance,
+                           ROW_NUMBER() OVER w AS position
+                    FROM transactions t
+                    WHERE t.user_id = account.user_id AND t.status = 'COMPLETED'
+                      AND (t.timestamp, t.transaction_id) > (account.last_timestamp, account.last_transaction_id)
+                      AND t.timestamp < account.horizon
+                    WINDOW w AS (ORDER BY t.timestamp, t.transaction_id)
+                ) event
+                WHERE event.position % ? = 0
+                ON CONFLICT DO NOTHING
+                """,
+                Timestamp.valueOf(horizon), Timestamp.valueOf(changedSince), every);
+    }
+}
@@ -0,0 +1,7 @@
+package com.array.banking.repository;
+
+/**
+ * One payee of a batch transfer, already validated and resolved to a user
+ */
+public record Payment(Integer recipientId, Long amountInCents) {
+}
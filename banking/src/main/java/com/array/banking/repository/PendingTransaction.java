@@ -0,0 +1,10 @@
+package com.array.banking.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * A transaction waiting for settlement. The timestamp is the partition key of the transactions table,
+ * carrying it lets the settlement UPDATE skip partitions that can't hold the row.
+ */
+public record PendingTransaction(Integer transactionId, LocalDateTime timestamp) {
+}
@@ -0,0 +1,7 @@
+package com.array.banking.repository;
+
+/**
+ * Response recorded for an idempotency key, replayed when the same request is sent again with it
+ */
+public record StoredResponse(String requestHash, int statusCode, String body) {
+}
@@ -0,0 +1,28 @@
+package com.array.banking.repository;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.YearMonth;
+
+/**
+ * Maintenance of the monthly partitions of the transactions table, see create_transactions_partition in V1__baseline.sql
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionPartitionRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Create the partition for the given month. Returns false if it already exists.
+     * Fails if the transactions table isn't partitioned, e.g. before db/partition_transactions.sql ran.
+     */
+    public boolean createMonthlyPartition(YearMonth month) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT create_transactions_partition(?)", Boolean.class, Date.valueOf(month.atDay(1))));
+    }
+}
@@ -4,15 +4,19 @@ import com.array.banking.model.Transaction;
 import com.array.banking.model.TransactionStatus;
 import com.array.banking.model.TransactionType;
 import com.array.banking.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Integer> {
@@ -22,17 +26,56 @@ public interface TransactionRepository extends JpaRepository<Transaction, Intege
     List<Transaction> findByUserAndType(User user, TransactionType type);
     
     List<Transaction> findByUserAndTimestampBetween(User user, LocalDateTime start, LocalDateTime end);
-    
+
+    // Same range as findByUserAndTimestampBetween, oldest first, read through a forward-only cursor.
+    // Postgres only honours the fetch size inside a transaction, otherwise the driver buffers the whole result.
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT t FROM Transaction t
+            WHERE t.user = :user AND t.timestamp BETWEEN :start AND :end
+            ORDER BY t.timestamp, t.transactionId
+            """)
+    Stream<Transaction> streamByUserAndTimestampBetween(@Param("user") User user,
+                                                        @Param("start") LocalDateTime start,
+                                                        @Param("end") LocalDateTime end);
+
     List<Transaction> findByUserOrderByTimestampDescTransactionIdDesc(User user);
     
-    Page<Transaction> findByUserOrderByTimestampDescTransactionIdDesc(User user, Pageable pageable);
+    // Selects only the TransactionView columns, the user isn't joined
+    Page<TransactionView> findViewsByUserOrderByTimestampDescTransactionIdDesc(User user, Pageable pageable);
+
+    // Keyset pagination over (timestamp, transaction_id), an index-only scan of idx_transactions_user_history_covering.
+    // The enums are read as text so Spring can convert them for the projection.
+    @Query(value = """
+            SELECT transaction_id AS "transactionId", amount, transaction_type::text AS type, timestamp, status::text AS status
+            FROM transactions
+            WHERE user_id = :userId
+            ORDER BY timestamp DESC, transaction_id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<TransactionView> findFirstHistoryPage(@Param("userId") Integer userId, @Param("limit") int limit);
 
-    // Calculate user balance in cents from transactions
+    @Query(value = """
+            SELECT transaction_id AS "transactionId", amount, transaction_type::text AS type, timestamp, status::text AS status
+            FROM transactions
+            WHERE user_id = :userId AND (timestamp, transaction_id) < (:timestamp, :transactionId)
+            ORDER BY timestamp DESC, transaction_id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<TransactionView> findHistoryPageAfter(@Param("userId") Integer userId,
+                                           @Param("timestamp") LocalDateTime timestamp,
+                                           @Param("transactionId") Integer transactionId,
+                                           @Param("limit") int limit);
+
+    // Calculate user balance in cents from transactions, an index-only scan of idx_transactions_balance_calculation
     // TODO: Coalesce for null safety, since we have NOT NULL constraints on the columns we might be able to remove it
     @Query(value = """
             SELECT COALESCE(SUM(CASE 
-                WHEN UPPER(transaction_type) IN ('DEPOSIT', 'TRANSFER_IN') THEN amount 
-                WHEN UPPER(transaction_type) IN ('WITHDRAWAL', 'TRANSFER_OUT') THEN -amount 
+                WHEN transaction_type IN ('DEPOSIT', 'TRANSFER_IN') THEN amount
+                WHEN transaction_type IN ('WITHDRAWAL', 'TRANSFER_OUT') THEN -amount
                 ELSE 0 
             END), 0) 
             FROM transactions 
@@ -40,10 +83,6 @@ public interface TransactionRepository extends JpaRepository<Transaction, Intege
             """, nativeQuery = true)
     Long calculateBalanceForUser(@Param("userId") Integer userId);
     
-    // Find the latest completed transaction for a user
-    @Query("SELECT t FROM Transaction t WHERE t.user.userId = :userId AND t.status = 'COMPLETED' ORDER BY t.timestamp DESC, t.transactionId DESC")
-    List<Transaction> findLatestCompletedTransactionByUser(@Param("userId") Integer userId, Pageable pageable);
-    
     // Find transactions with specific status
     List<Transaction> findByUserAndStatusOrderByTimestampDescTransactionIdDesc(User user, TransactionStatus status);
 }
@@ -0,0 +1,23 @@
+package com.array.banking.repository;
+
+import com.array.banking.model.TransactionStatus;
+import com.array.banking.model.TransactionType;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns of a transaction that history responses show, read without loading the entity or its user.
+ * The native queries alias their columns to these property names.
+ */
+public interface TransactionView {
+
+    Integer getTransactionId();
+
+    Long getAmount();
+
+    TransactionType getType();
+
+    LocalDateTime getTimestamp();
+
+    TransactionStatus getStatus();
+}
@@ -0,0 +1,7 @@
+package com.array.banking.repository;
+
+/**
+ * Transaction IDs of the two ledger rows written for a transfer
+ */
+public record TransferLegs(Integer outgoingTransactionId, Integer incomingTransactionId) {
+}
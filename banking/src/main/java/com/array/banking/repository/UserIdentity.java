@@ -0,0 +1,10 @@
+package com.array.banking.repository;
+
+/**
+ * User ID and username only, for resolving many usernames without loading the entities
+ */
+public interface UserIdentity {
+    Integer getUserId();
+
+    String getUsername();
+}
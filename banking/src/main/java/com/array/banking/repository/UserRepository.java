@@ -2,10 +2,13 @@ package com.array.banking.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.array.banking.model.User;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -18,6 +21,9 @@ public interface UserRepository extends JpaRepository<User, Integer> {
     
     boolean existsByEmail(String email);
 
+    @Query("SELECT u.userId AS userId, u.username AS username FROM User u WHERE u.username IN :usernames")
+    List<UserIdentity> findIdentitiesByUsernameIn(@Param("usernames") Collection<String> usernames);
+
     // TODO: More efficient way to get a random user
     @Query(value = "SELECT * FROM users ORDER BY RANDOM() LIMIT 1", nativeQuery = true)
     Optional<User> findRandomUser();
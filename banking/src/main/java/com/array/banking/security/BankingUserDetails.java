@@ -0,0 +1,29 @@
+package com.array.banking.security;
+
+import com.array.banking.model.User;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+
+/**
+ * Authenticated principal that keeps the loaded User entity, so controllers don't have to
+ * look the user up again after authentication
+ */
+public class BankingUserDetails extends org.springframework.security.core.userdetails.User {
+
+    private final transient User user;
+
+    public BankingUserDetails(User user, Collection<? extends GrantedAuthority> authorities) {
+        super(user.getUsername(), user.getPasswordHash(), authorities);
+        this.user = user;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public Integer getUserId() {
+        return user.getUserId();
+    }
+}
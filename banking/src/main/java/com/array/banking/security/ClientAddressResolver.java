@@ -0,0 +1,70 @@
+package com.array.banking.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.List;
+
+/**
+ * Finds the client address of a request. X-Forwarded-For is only honoured when the request comes
+ * from a trusted proxy, and then the right-most entry that isn't a trusted proxy is the client, so
+ * a client can't pick its own rate limit key by sending the header itself.
+ * Works on the header string in place; it only allocates when the client sits in the middle of a
+ * multi-hop header.
+ */
+public class ClientAddressResolver {
+
+    private static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+    private static final String UNKNOWN = "unknown";
+
+    private final String[] trustedProxies;
+
+    public ClientAddressResolver(List<String> trustedProxies) {
+        this.trustedProxies = trustedProxies.toArray(new String[0]);
+    }
+
+    public String resolve(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        if (!isTrusted(remoteAddr, 0, remoteAddr.length())) {
+            return remoteAddr;
+        }
+        String forwardedFor = request.getHeader(FORWARDED_FOR_HEADER);
+        if (forwardedFor == null || forwardedFor.isEmpty()) {
+            return remoteAddr;
+        }
+
+        // Walk the hops right to left, skipping the proxies we trust
+        int end = forwardedFor.length();
+        while (end > 0) {
+            int separator = forwardedFor.lastIndexOf(',', end - 1);
+            int start = separator + 1;
+            int trimmedStart = start;
+            int trimmedEnd = end;
+            while (trimmedStart < trimmedEnd && forwardedFor.charAt(trimmedStart) == ' ') {
+                trimmedStart++;
+            }
+            while (trimmedEnd > trimmedStart && forwardedFor.charAt(trimmedEnd - 1) == ' ') {
+                trimmedEnd--;
+            }
+            int length = trimmedEnd - trimmedStart;
+            if (length > 0 && !isTrusted(forwardedFor, trimmedStart, trimmedEnd)) {
+                if (length == UNKNOWN.length() && forwardedFor.regionMatches(true, trimmedStart, UNKNOWN, 0, length)) {
+                    return remoteAddr;
+                }
+                return length == forwardedFor.length() ? forwardedFor : forwardedFor.substring(trimmedStart, trimmedEnd);
+            }
+            end = separator;
+        }
+        // Every hop was a trusted proxy
+        return remoteAddr;
+    }
+
+    private boolean isTrusted(String value, int start, int end) {
+        int length = end - start;
+        for (String proxy : trustedProxies) {
+            if (proxy.length() == length && value.regionMatches(start, proxy, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
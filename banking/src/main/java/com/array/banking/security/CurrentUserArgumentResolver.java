@@ -0,0 +1,70 @@
+package com.array.banking.security;
+
+import com.array.banking.model.User;
+import com.array.banking.service.UserService;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import java.util.Optional;
+
+/**
+ * Resolves {@link CurrentUser} parameters from the authenticated principal.
+ * The User is taken straight from {@link BankingUserDetails} when available, otherwise it is looked up once
+ * by username, through the user cache, and kept as a request attribute for the rest of the request.
+ * A stateless {@link JwtUserPrincipal} must also match the cached user's ID, so a token issued before a
+ * username was changed or reused doesn't resolve to whoever holds that name now.
+ */
+@Component
+@RequiredArgsConstructor
+public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private static final String CURRENT_USER_ATTRIBUTE = CurrentUserArgumentResolver.class.getName() + ".user";
+
+    private final UserService userService;
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(CurrentUser.class)
+                && User.class.isAssignableFrom(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new IllegalStateException("No authenticated user");
+        }
+
+        if (authentication.getPrincipal() instanceof BankingUserDetails principal) {
+            return principal.getUser();
+        }
+
+        Object cached = webRequest.getAttribute(CURRENT_USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (cached instanceof User user) {
+            return user;
+        }
+
+        User user = lookUpUser(authentication);
+        webRequest.setAttribute(CURRENT_USER_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        return user;
+    }
+
+    private User lookUpUser(Authentication authentication) {
+        Optional<User> user = userService.getUserByUsername(authentication.getName());
+        if (authentication.getPrincipal() instanceof JwtUserPrincipal principal) {
+            user = user.filter(found -> found.getUserId().equals(principal.userId()));
+        }
+        return user.orElseThrow(() -> new RuntimeException("User not found"));
+    }
+}
@@ -26,8 +26,8 @@ public class JwtTokenFilter extends OncePerRequestFilter {
         if (!path.startsWith("/ssr")) {
             String token = resolveToken(request);
             
-            if (token != null && jwtTokenProvider.validateToken(token)) {
-                Authentication auth = jwtTokenProvider.getAuthentication(token);
+            Authentication auth = token != null ? jwtTokenProvider.authenticate(token) : null;
+            if (auth != null) {
                 SecurityContextHolder.getContext().setAuthentication(auth);
             }
         }
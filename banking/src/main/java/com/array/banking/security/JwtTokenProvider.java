@@ -1,7 +1,13 @@
 package com.array.banking.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 
@@ -9,66 +15,214 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Component
 @RequiredArgsConstructor
 public class JwtTokenProvider {
 
+    static final String USER_ID_CLAIM = "uid";
+    static final String AUTHORITIES_CLAIM = "roles";
+
     @Value("${jwt.secret}")
     private String secretKey;
     
     @Value("${jwt.expiration}")
     private long validityInMilliseconds;
+
+    // When enabled, the Authentication is built from the token claims instead of loading the user
+    @Value("${jwt.stateless}")
+    private boolean stateless;
+
+    @Value("${jwt.verified-cache-size}")
+    private long verifiedCacheSize;
     
     private final ApplicationContext context;
+    private final TokenDenylist tokenDenylist;
+    private final MeterRegistry meterRegistry;
     
     private Key key;
+    private JwtParser parser;
+
+    // Claims of recently verified tokens keyed by token hash, each entry expiring with its token
+    private Cache<String, Claims> verifiedTokens;
+
+    // One timer per result, registered once so authenticate doesn't look them up per request
+    private Timer cachedTimer;
+    private Timer verifiedTimer;
+    private Timer rejectedTimer;
 
     @PostConstruct
     protected void init() {
         secretKey = Base64.getEncoder().encodeToString(secretKey.getBytes());
         this.key = Keys.hmacShaKeyFor(secretKey.getBytes());
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String tokenHash, Claims claims, long currentTime) {
+                        long remainingMillis = claims.getExpiration().getTime() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String tokenHash, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String tokenHash, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        this.cachedTimer = verificationTimer("cached");
+        this.verifiedTimer = verificationTimer("verified");
+        this.rejectedTimer = verificationTimer("rejected");
+    }
+
+    private Timer verificationTimer(String result) {
+        return Timer.builder("banking.jwt.verification")
+                .tag("result", result)
+                .description("Time taken to verify a JWT and build its authentication")
+                .register(meterRegistry);
     }
 
-    public String createToken(String username) {
+    public String createToken(BankingUserDetails principal) {
         Date now = new Date();
         Date validity = new Date(now.getTime() + validityInMilliseconds);
 
         return Jwts.builder()
-                .setSubject(username)
+                .setId(UUID.randomUUID().toString())
+                .setSubject(principal.getUsername())
+                .claim(USER_ID_CLAIM, principal.getUserId())
+                .claim(AUTHORITIES_CLAIM, AuthorityUtils.authorityListToSet(principal.getAuthorities()))
                 .setIssuedAt(now)
                 .setExpiration(validity)
                 .signWith(key)
                 .compact();
     }
 
+    /**
+     * Verify the token and build its Authentication with a single parse.
+     * Returns null when the token is invalid, expired or revoked, or its user no longer exists.
+     */
+    public Authentication authenticate(String token) {
+        long start = System.nanoTime();
+        Timer timer = rejectedTimer;
+        try {
+            String tokenHash = hash(token);
+            Claims claims = verifiedTokens.getIfPresent(tokenHash);
+            if (claims != null) {
+                timer = cachedTimer;
+            } else {
+                claims = parser.parseClaimsJws(token).getBody();
+                verifiedTokens.put(tokenHash, claims);
+                timer = verifiedTimer;
+            }
+            if (!isActive(claims)) {
+                timer = rejectedTimer;
+                return null;
+            }
+            return buildAuthentication(claims);
+        } catch (JwtException | IllegalArgumentException | UsernameNotFoundException e) {
+            // UsernameNotFoundException: a token without the uid claim whose user was deleted or renamed
+            timer = rejectedTimer;
+            return null;
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
     public Authentication getAuthentication(String token) {
+        return buildAuthentication(getClaims(token));
+    }
+
+    private Authentication buildAuthentication(Claims claims) {
+        Integer userId = claims.get(USER_ID_CLAIM, Integer.class);
+        if (stateless && userId != null) {
+            List<GrantedAuthority> authorities = getAuthorities(claims);
+            JwtUserPrincipal principal = new JwtUserPrincipal(userId, claims.getSubject());
+            return new UsernamePasswordAuthenticationToken(principal, "", authorities);
+        }
+
+        // Tokens issued before the uid claim existed still go through the user lookup
         UserDetailsService userDetailsService = context.getBean(UserDetailsService.class);
-        UserDetails userDetails = userDetailsService.loadUserByUsername(getUsername(token));
+        UserDetails userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
         return new UsernamePasswordAuthenticationToken(userDetails, "", userDetails.getAuthorities());
     }
 
     public String getUsername(String token) {
-        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody().getSubject();
+        return getClaims(token).getSubject();
     }
 
     public boolean validateToken(String token) {
         try {
-            Jws<Claims> claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token);
-            
-            return !claims.getBody().getExpiration().before(new Date());
+            return isActive(getClaims(token));
         } catch (JwtException | IllegalArgumentException e) {
             return false;
         }
     }
+
+    /**
+     * Revoke a single token, e.g. on logout. Invalid tokens are ignored.
+     */
+    public void revokeToken(String token) {
+        try {
+            tokenDenylist.revokeToken(getClaims(token).getId());
+        } catch (JwtException | IllegalArgumentException e) {
+            // Nothing to revoke
+        }
+    }
+
+    private boolean isActive(Claims claims) {
+        if (tokenDenylist.isRevoked(claims.getId(), claims.get(USER_ID_CLAIM, Integer.class), claims.getIssuedAt())) {
+            return false;
+        }
+        return !claims.getExpiration().before(new Date());
+    }
+
+    private Claims getClaims(String token) {
+        String tokenHash = hash(token);
+        Claims claims = verifiedTokens.getIfPresent(tokenHash);
+        if (claims == null) {
+            claims = parser.parseClaimsJws(token).getBody();
+            verifiedTokens.put(tokenHash, claims);
+        }
+        return claims;
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<GrantedAuthority> getAuthorities(Claims claims) {
+        List<String> roles = claims.get(AUTHORITIES_CLAIM, List.class);
+        if (roles == null) {
+            return List.of();
+        }
+        return AuthorityUtils.createAuthorityList(roles);
+    }
 }
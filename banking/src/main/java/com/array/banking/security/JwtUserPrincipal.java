@@ -0,0 +1,14 @@
+package com.array.banking.security;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+/**
+ * Principal built purely from verified JWT claims, without loading the user from the database
+ */
+public record JwtUserPrincipal(Integer userId, String username) implements AuthenticatedPrincipal {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
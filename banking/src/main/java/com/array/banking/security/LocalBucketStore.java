@@ -0,0 +1,88 @@
+package com.array.banking.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.local.LocalBucketBuilder;
+import io.github.bucket4j.local.SynchronizationStrategy;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Buckets held in bounded Caffeine caches on this node, one cache per policy keyed directly by the
+ * client (IP String or user ID Integer) so a lookup doesn't have to build a composite key.
+ * An idle bucket expires once it would have refilled completely (expireAfterAccess should be the longest
+ * refill period of any policy), so evicting it loses no state, and the size cap (per policy) bounds the
+ * heap when clients rotate through many addresses.
+ */
+public class LocalBucketStore implements RateLimitBucketStore {
+
+    private final long maximumSize;
+    private final Duration expireAfterAccess;
+    private final ConcurrentMap<String, PolicyBuckets> bucketsByPolicy = new ConcurrentHashMap<>();
+
+    public LocalBucketStore(long maximumSize, Duration expireAfterAccess) {
+        this.maximumSize = maximumSize;
+        this.expireAfterAccess = expireAfterAccess;
+    }
+
+    @Override
+    public Bucket resolveBucket(RateLimitPolicy policy, Object client) {
+        PolicyBuckets buckets = bucketsByPolicy.get(policy.name());
+        if (buckets == null) {
+            buckets = bucketsByPolicy.computeIfAbsent(policy.name(), name -> new PolicyBuckets(policy.configuration()));
+        }
+        return buckets.resolve(client);
+    }
+
+    @Override
+    public long activeBuckets() {
+        long total = 0;
+        for (PolicyBuckets buckets : bucketsByPolicy.values()) {
+            total += buckets.size();
+        }
+        return total;
+    }
+
+    private final class PolicyBuckets {
+
+        private final Cache<Object, Bucket> cache;
+        // Created once so a cache miss doesn't allocate a capturing lambda either
+        private final Function<Object, Bucket> factory;
+
+        PolicyBuckets(BucketConfiguration configuration) {
+            this.cache = Caffeine.newBuilder()
+                    .maximumSize(maximumSize)
+                    .expireAfterAccess(expireAfterAccess)
+                    .build();
+            this.factory = client -> newBucket(configuration);
+        }
+
+        Bucket resolve(Object client) {
+            Bucket bucket = cache.getIfPresent(client);
+            return bucket != null ? bucket : cache.get(client, factory);
+        }
+
+        long size() {
+            // Run pending evictions first so the gauge doesn't report buckets that are already on their way out
+            cache.cleanUp();
+            return cache.estimatedSize();
+        }
+    }
+
+    private static Bucket newBucket(BucketConfiguration configuration) {
+        // Update the state in place under the bucket's lock instead of copying it on every consume
+        LocalBucketBuilder builder = Bucket.builder()
+                .withSynchronizationStrategy(SynchronizationStrategy.SYNCHRONIZED);
+        for (Bandwidth bandwidth : configuration.getBandwidths()) {
+            builder.addLimit(bandwidth);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,28 @@
+package com.array.banking.security;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+
+/**
+ * Buckets kept in a shared bucket4j backend (Postgres, Redis, Hazelcast, ...) behind a ProxyManager.
+ * Bucket state lives in the backend, which is also responsible for expiring idle buckets.
+ */
+public class ProxyManagerBucketStore implements RateLimitBucketStore {
+
+    private final ProxyManager<String> proxyManager;
+
+    public ProxyManagerBucketStore(ProxyManager<String> proxyManager) {
+        this.proxyManager = proxyManager;
+    }
+
+    @Override
+    public Bucket resolveBucket(RateLimitPolicy policy, Object client) {
+        // Cheap handle, the state is only read or created when the bucket is used
+        return proxyManager.builder().build(policy.bucketKey(client), policy.configuration());
+    }
+
+    @Override
+    public long activeBuckets() {
+        return -1;
+    }
+}
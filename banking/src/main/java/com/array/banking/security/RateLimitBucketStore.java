@@ -0,0 +1,21 @@
+package com.array.banking.security;
+
+import io.github.bucket4j.Bucket;
+
+/**
+ * Where rate limit buckets live. The default keeps them in a bounded in-process cache; declaring a
+ * bucket4j ProxyManager bean switches to a shared backend so several app nodes enforce one limit.
+ */
+public interface RateLimitBucketStore {
+
+    /**
+     * The policy's bucket for a client, created with the policy's limits on first use.
+     * The client is an IP address String or an Integer user ID.
+     */
+    Bucket resolveBucket(RateLimitPolicy policy, Object client);
+
+    /**
+     * Number of buckets currently held, or -1 when the backend can't tell cheaply
+     */
+    long activeBuckets();
+}
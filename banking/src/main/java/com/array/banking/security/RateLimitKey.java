@@ -0,0 +1,11 @@
+package com.array.banking.security;
+
+/**
+ * What a rate limit policy counts requests against
+ */
+public enum RateLimitKey {
+    // Client IP address
+    IP,
+    // Authenticated user, falling back to the client IP for anonymous requests
+    USER
+}
@@ -0,0 +1,36 @@
+package com.array.banking.security;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.Refill;
+
+import java.time.Duration;
+
+/**
+ * A named limit with its bucket configuration. Header values are computed once here
+ * so the filter doesn't rebuild them per request.
+ */
+public record RateLimitPolicy(String name, BucketConfiguration configuration, long cost, RateLimitKey key,
+                              String limitHeader, String policyHeader) {
+
+    public static RateLimitPolicy of(String name, long capacity, long refillTokens, Duration refillPeriod,
+                                     long cost, RateLimitKey key) {
+        if (cost < 1 || cost > capacity) {
+            throw new IllegalArgumentException(
+                    "Rate limit policy '" + name + "' cost must be between 1 and its capacity " + capacity);
+        }
+        BucketConfiguration configuration = BucketConfiguration.builder()
+                .addLimit(Bandwidth.classic(capacity, Refill.intervally(refillTokens, refillPeriod)))
+                .build();
+        return new RateLimitPolicy(name, configuration, cost, key,
+                Long.toString(capacity), capacity + ";w=" + refillPeriod.toSeconds());
+    }
+
+    /**
+     * Single string key for a client in a shared backend, policies never share buckets.
+     * Clients are either an IP address or an authenticated user ID.
+     */
+    public String bucketKey(Object client) {
+        return client instanceof Integer ? name + ":user:" + client : name + ':' + client;
+    }
+}
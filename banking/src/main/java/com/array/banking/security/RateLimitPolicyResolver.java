@@ -0,0 +1,116 @@
+package com.array.banking.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Picks the rate limit policy for a request. The first configured route that matches wins, otherwise
+ * the default policy applies. Patterns are compiled once at startup: literal paths are looked up in a map,
+ * "prefix/**" patterns become a startsWith check, and only other wildcard patterns need the request path
+ * parsed, so the common cases don't allocate.
+ */
+public class RateLimitPolicyResolver {
+
+    private static final String ANY_SUBPATH = "/**";
+
+    private final Map<String, List<Route>> literalRoutes = new HashMap<>();
+    private final List<Route> patternRoutes = new ArrayList<>();
+    private final RateLimitPolicy defaultPolicy;
+
+    public RateLimitPolicyResolver(List<RouteDefinition> routes, RateLimitPolicy defaultPolicy) {
+        this.defaultPolicy = defaultPolicy;
+        int order = 0;
+        for (RouteDefinition definition : routes) {
+            for (String pattern : definition.patterns()) {
+                if (isLiteral(pattern)) {
+                    Route route = new Route(order++, null, null, definition.methods(), definition.policy());
+                    literalRoutes.computeIfAbsent(pattern, k -> new ArrayList<>()).add(route);
+                } else if (pattern.endsWith(ANY_SUBPATH) && isLiteral(prefixOf(pattern))) {
+                    patternRoutes.add(new Route(order++, null, prefixOf(pattern), definition.methods(), definition.policy()));
+                } else {
+                    PathPattern parsed = PathPatternParser.defaultInstance.parse(pattern);
+                    patternRoutes.add(new Route(order++, parsed, null, definition.methods(), definition.policy()));
+                }
+            }
+        }
+    }
+
+    public RateLimitPolicy resolve(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+
+        Route best = null;
+        List<Route> literal = literalRoutes.get(path);
+        if (literal != null) {
+            for (Route route : literal) {
+                if (route.allows(method)) {
+                    best = route;
+                    break;
+                }
+            }
+        }
+
+        PathContainer pathContainer = null;
+        for (Route route : patternRoutes) {
+            if (best != null && route.order() > best.order()) {
+                break;
+            }
+            if (!route.allows(method)) {
+                continue;
+            }
+            boolean matches;
+            if (route.prefix() != null) {
+                matches = matchesPrefix(path, route.prefix());
+            } else {
+                if (pathContainer == null) {
+                    pathContainer = PathContainer.parsePath(path);
+                }
+                matches = route.pattern().matches(pathContainer);
+            }
+            if (matches) {
+                best = route;
+                break;
+            }
+        }
+        return best != null ? best.policy() : defaultPolicy;
+    }
+
+    public RateLimitPolicy defaultPolicy() {
+        return defaultPolicy;
+    }
+
+    // Same as PathPattern "prefix/**": the prefix itself or anything below it
+    private static boolean matchesPrefix(String path, String prefix) {
+        return path.startsWith(prefix) && (path.length() == prefix.length() || path.charAt(prefix.length()) == '/');
+    }
+
+    private static String prefixOf(String pattern) {
+        return pattern.substring(0, pattern.length() - ANY_SUBPATH.length());
+    }
+
+    private static boolean isLiteral(String pattern) {
+        return pattern.indexOf('*') < 0 && pattern.indexOf('{') < 0 && pattern.indexOf('?') < 0;
+    }
+
+    /**
+     * Routes for one policy as configured. An empty method set matches every method.
+     */
+    public record RouteDefinition(List<String> patterns, Set<String> methods, RateLimitPolicy policy) {
+    }
+
+    private record Route(int order, PathPattern pattern, String prefix, Set<String> methods, RateLimitPolicy policy) {
+
+        boolean allows(String method) {
+            return methods.isEmpty() || methods.contains(method);
+        }
+    }
+}
@@ -1,72 +1,221 @@
 package com.array.banking.security;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Map;
-import java.util.function.Supplier;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Applies the rate limit policy matching each request and reports the outcome in the
+ * RateLimit-Limit / RateLimit-Remaining / RateLimit-Reset / RateLimit-Policy headers.
+ * Runs before the JWT filters, so a flood of requests is turned away per IP before any token is verified.
+ * Requests to per-user policies are charged to the default policy by IP there, and to their own policy by
+ * {@link #userPolicyFilter()} once the JWT filters have authenticated the user.
+ * The allowed path is kept allocation free apart from the bucket consumption itself: exclusions, policy
+ * lookup, client key and header values all work on precomputed or existing objects.
+ */
 @Component
-@RequiredArgsConstructor
 public class RateLimitingFilter extends OncePerRequestFilter {
 
-    private final Map<String, Bucket> buckets;
-    private final Supplier<Bucket> bucketSupplier;
-    private final ObjectMapper objectMapper;
+    static final String LIMIT_HEADER = "RateLimit-Limit";
+    static final String REMAINING_HEADER = "RateLimit-Remaining";
+    static final String RESET_HEADER = "RateLimit-Reset";
+    static final String POLICY_HEADER = "RateLimit-Policy";
+
+    private static final String USER_POLICY_ATTRIBUTE = RateLimitingFilter.class.getName() + ".USER_POLICY";
+
+    private static final String[] EXCLUDED_PREFIXES = {"/webjars", "/css", "/js"};
+
+    // Header values for small numbers, covers remaining tokens and reset seconds for typical limits
+    private static final String[] NUMBER_STRINGS = new String[4096];
+
+    static {
+        for (int i = 0; i < NUMBER_STRINGS.length; i++) {
+            NUMBER_STRINGS[i] = Integer.toString(i);
+        }
+    }
+
+    private static final byte[] TOO_MANY_REQUESTS_BODY = ("{\"status\":429,\"error\":\"Too Many Requests\","
+            + "\"message\":\"You have exhausted your API request quota\"}").getBytes(StandardCharsets.UTF_8);
+
+    private final RateLimitPolicyResolver policyResolver;
+    private final RateLimitBucketStore bucketStore;
+    private final ClientAddressResolver clientAddressResolver;
+    private final Counter allowedRequests;
+    private final Counter rejectedRequests;
+    private final RejectionWindow rejectionWindow;
+    private final UserPolicyFilter userPolicyFilter = new UserPolicyFilter();
+
+    public RateLimitingFilter(RateLimitPolicyResolver policyResolver, RateLimitBucketStore bucketStore,
+                              ClientAddressResolver clientAddressResolver, MeterRegistry meterRegistry) {
+        this.policyResolver = policyResolver;
+        this.bucketStore = bucketStore;
+        this.clientAddressResolver = clientAddressResolver;
+        this.allowedRequests = Counter.builder("banking.ratelimit.requests")
+                .tag("outcome", "allowed")
+                .register(meterRegistry);
+        this.rejectedRequests = Counter.builder("banking.ratelimit.requests")
+                .tag("outcome", "rejected")
+                .register(meterRegistry);
+        this.rejectionWindow = new RejectionWindow();
+        Gauge.builder("banking.ratelimit.rejection.ratio", rejectionWindow, RejectionWindow::ratio)
+                .description("Share of rate limited requests that were rejected over the last minute")
+                .register(meterRegistry);
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         
         // Skip rate limiting for static resources
-        String requestURI = request.getRequestURI();
-        if (requestURI.contains(".") || 
-            requestURI.startsWith("/webjars") || 
-            requestURI.startsWith("/css") || 
-            requestURI.startsWith("/js")) {
+        if (isStaticResource(request.getRequestURI())) {
             filterChain.doFilter(request, response);
             return;
         }
         
-        // Get the bucket for this IP or create a new one
-        String clientIp = getClientIP(request);
-        Bucket bucket = buckets.computeIfAbsent(clientIp, k -> bucketSupplier.get());
-
-        // Try to consume 1 token
-        if (bucket.tryConsume(1)) {
-            // Request allowed, continue the filter chain
+        RateLimitPolicy policy = policyResolver.resolve(request);
+        boolean userPolicy = policy.key() == RateLimitKey.USER;
+        if (userPolicy) {
+            // The user isn't known yet, the user policy is applied after the JWT filters
+            request.setAttribute(USER_POLICY_ATTRIBUTE, policy);
+            policy = policyResolver.defaultPolicy();
+        }
+        // Counted as allowed once, by the user policy filter, when a user policy follows
+        if (consume(policy, clientAddressResolver.resolve(request), !userPolicy, response)) {
             filterChain.doFilter(request, response);
+        }
+    }
+
+    /**
+     * Second stage for per-user policies, to run after the JWT filters. Requests without a per-user policy
+     * pass straight through, the IP check before authentication already covered them.
+     */
+    public OncePerRequestFilter userPolicyFilter() {
+        return userPolicyFilter;
+    }
+
+    /**
+     * Take the policy's cost from the client's bucket and set the rate limit headers, or write the 429
+     * response. Returns whether the request may continue.
+     */
+    private boolean consume(RateLimitPolicy policy, Object clientKey, boolean countAllowed, HttpServletResponse response)
+            throws IOException {
+        ConsumptionProbe probe = bucketStore.resolveBucket(policy, clientKey)
+                .tryConsumeAndReturnRemaining(policy.cost());
+
+        response.setHeader(LIMIT_HEADER, policy.limitHeader());
+        response.setHeader(POLICY_HEADER, policy.policyHeader());
+        response.setHeader(REMAINING_HEADER, toHeaderValue(probe.getRemainingTokens()));
+
+        if (probe.isConsumed()) {
+            if (countAllowed) {
+                allowedRequests.increment();
+            }
+            response.setHeader(RESET_HEADER, toHeaderValue(toSeconds(probe.getNanosToWaitForReset())));
+            return true;
         } else {
             // Rate limit exceeded
+            rejectedRequests.increment();
+            String retryAfter = toHeaderValue(toSeconds(probe.getNanosToWaitForRefill()));
+            response.setHeader(RESET_HEADER, retryAfter);
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
             response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
             response.setContentType(MediaType.APPLICATION_JSON_VALUE);
-            
-            Map<String, Object> body = Map.of(
-                "status", HttpStatus.TOO_MANY_REQUESTS.value(),
-                "error", "Too Many Requests",
-                "message", "You have exhausted your API request quota"
-            );
-            
-            objectMapper.writeValue(response.getOutputStream(), body);
+            response.setContentLength(TOO_MANY_REQUESTS_BODY.length);
+            response.getOutputStream().write(TOO_MANY_REQUESTS_BODY);
+            return false;
+        }
+    }
+
+    /**
+     * The authenticated user's ID, otherwise the client IP.
+     * Returns objects the request already holds, no key string is built.
+     */
+    private Object getUserKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null) {
+            Object principal = authentication.getPrincipal();
+            if (principal instanceof JwtUserPrincipal jwtPrincipal) {
+                return jwtPrincipal.userId();
+            }
+            if (principal instanceof BankingUserDetails userDetails) {
+                return userDetails.getUserId();
+            }
+        }
+        return clientAddressResolver.resolve(request);
+    }
+
+    // Webjars, stylesheets, scripts and any path whose last segment has a file extension
+    static boolean isStaticResource(String requestURI) {
+        for (String prefix : EXCLUDED_PREFIXES) {
+            if (requestURI.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return requestURI.indexOf('.', requestURI.lastIndexOf('/') + 1) >= 0;
+    }
+
+    private static String toHeaderValue(long value) {
+        return value >= 0 && value < NUMBER_STRINGS.length ? NUMBER_STRINGS[(int) value] : Long.toString(value);
+    }
+
+    // Whole seconds, rounded up so clients never retry too early
+    private static long toSeconds(long nanos) {
+        return (nanos + 999_999_999L) / 1_000_000_000L;
+    }
+
+    private final class UserPolicyFilter extends OncePerRequestFilter {
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+                throws ServletException, IOException {
+            if (!(request.getAttribute(USER_POLICY_ATTRIBUTE) instanceof RateLimitPolicy policy)
+                    || consume(policy, getUserKey(request), true, response)) {
+                filterChain.doFilter(request, response);
+            }
         }
     }
 
-    private String getClientIP(HttpServletRequest request) {
-        String xfHeader = request.getHeader("X-Forwarded-For");
-        if (xfHeader == null || xfHeader.isEmpty() || "unknown".equalsIgnoreCase(xfHeader)) {
-            return request.getRemoteAddr();
+    /**
+     * Rejected share of requests over the most recent window of at least a minute.
+     * Computed from the counters when the gauge is read so the request path only increments a counter.
+     */
+    private final class RejectionWindow {
+
+        private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+        private long windowStart = System.nanoTime();
+        private double allowedAtStart;
+        private double rejectedAtStart;
+        private double ratio;
+
+        synchronized double ratio() {
+            long now = System.nanoTime();
+            if (now - windowStart >= WINDOW_NANOS) {
+                double allowed = allowedRequests.count() - allowedAtStart;
+                double rejected = rejectedRequests.count() - rejectedAtStart;
+                ratio = allowed + rejected == 0 ? 0 : rejected / (allowed + rejected);
+                allowedAtStart += allowed;
+                rejectedAtStart += rejected;
+                windowStart = now;
+            }
+            return ratio;
         }
-        return xfHeader.split(",")[0];
     }
 }
@@ -47,8 +47,8 @@ public class SsrJwtCookieFilter extends OncePerRequestFilter {
                 log.debug("Found JWT cookie for path: {}", path);
                 
                 try {
-                    if (token != null && jwtTokenProvider.validateToken(token)) {
-                        Authentication auth = jwtTokenProvider.getAuthentication(token);
+                    Authentication auth = token != null ? jwtTokenProvider.authenticate(token) : null;
+                    if (auth != null) {
                         SecurityContextHolder.getContext().setAuthentication(auth);
                         log.debug("User authenticated successfully for path: {}", path);
                     } else {
@@ -0,0 +1,53 @@
+package com.array.banking.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * In-memory revocation list for stateless JWTs.
+ * Entries only need to outlive the tokens they revoke, so they expire after the token validity period.
+ * Note: the list is local to each application instance.
+ */
+@Component
+public class TokenDenylist {
+
+    // Revoked token IDs (jti claim), e.g. from a logout
+    private final Cache<String, Boolean> revokedTokens;
+
+    // Users whose tokens issued before the given time are no longer valid, e.g. a disabled account
+    private final Cache<Integer, Date> revokedUsers;
+
+    public TokenDenylist(@Value("${jwt.expiration}") long validityInMilliseconds) {
+        Duration ttl = Duration.ofMillis(validityInMilliseconds);
+        this.revokedTokens = Caffeine.newBuilder().expireAfterWrite(ttl).build();
+        this.revokedUsers = Caffeine.newBuilder().expireAfterWrite(ttl).build();
+    }
+
+    public void revokeToken(String tokenId) {
+        if (tokenId != null) {
+            revokedTokens.put(tokenId, Boolean.TRUE);
+        }
+    }
+
+    public void revokeAllTokensForUser(Integer userId) {
+        revokedUsers.put(userId, new Date());
+    }
+
+    public boolean isRevoked(String tokenId, Integer userId, Date issuedAt) {
+        if (tokenId != null && revokedTokens.getIfPresent(tokenId) != null) {
+            return true;
+        }
+        if (userId != null && issuedAt != null) {
+            Date revokedAt = revokedUsers.getIfPresent(userId);
+            // iat has second precision, so a token issued in the same second as the revocation is rejected too
+            return revokedAt != null && issuedAt.getTime() <= revokedAt.getTime();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,52 @@
+package com.array.banking.service;
+
+import com.array.banking.repository.AccountBalanceRepository;
+import com.array.banking.repository.BalanceDrift;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Periodically verifies the account_balances snapshots against the full ledger sum.
+ * Drift is only reported, never corrected automatically, so it can be investigated.
+ */
+@Service
+@Slf4j
+public class BalanceReconciliationService {
+
+    private final AccountBalanceRepository accountBalanceRepository;
+    private final AtomicInteger driftedAccounts = new AtomicInteger();
+
+    public BalanceReconciliationService(AccountBalanceRepository accountBalanceRepository, MeterRegistry meterRegistry) {
+        this.accountBalanceRepository = accountBalanceRepository;
+        Gauge.builder("banking.balance.reconciliation.drifted_accounts", driftedAccounts, AtomicInteger::get)
+                .description("Number of accounts whose balance snapshot disagrees with the ledger")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${balance.reconciliation.cron}")
+    @Transactional(readOnly = true)
+    public List<BalanceDrift> reconcile() {
+        List<BalanceDrift> drift = accountBalanceRepository.findBalanceDrift();
+        driftedAccounts.set(drift.size());
+
+        if (drift.isEmpty()) {
+            log.info("Balance reconciliation found no drift");
+        } else {
+            for (BalanceDrift account : drift) {
+                log.warn("Balance drift for user {}: snapshot={} ledger={}",
+                        account.getUserId(), account.getSnapshotBalance(), account.getLedgerBalance());
+            }
+        }
+        return drift;
+    }
+}
@@ -1,8 +1,9 @@
 package com.array.banking.service;
 
 import com.array.banking.model.User;
-import com.array.banking.repository.TransactionRepository;
+import com.array.banking.repository.AccountBalanceRepository;
 import com.array.banking.util.CurrencyUtil;
+import com.github.benmanes.caffeine.cache.Cache;
 
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
@@ -11,6 +12,8 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 
@@ -19,19 +22,25 @@ import java.math.BigDecimal;
 @RequiredArgsConstructor
 public class BalanceService {
 
-    private final TransactionRepository transactionRepository;
+    private final AccountBalanceRepository accountBalanceRepository;
+    private final Cache<Integer, Long> balanceCache;
     private final MeterRegistry meterRegistry;
     
     /**
-     * Get the current balance for a user by calculating from transactions (in cents)
+     * Get the current balance for a user from the balance cache, falling back to the snapshot (in cents)
      */
     public Long getCurrentBalanceInCents(User user) {
+        return getCurrentBalanceInCents(user.getUserId());
+    }
+
+    public Long getCurrentBalanceInCents(Integer userId) {
         Timer.Sample sample = Timer.start(meterRegistry);
         try {
-            return transactionRepository.calculateBalanceForUser(user.getUserId());
+            return balanceCache.get(userId,
+                    id -> accountBalanceRepository.findBalanceByUserId(id).orElse(0L));
         } finally {
             sample.stop(Timer.builder("banking.balance.get_cents")
-                    .tag("user_id", user.getUserId().toString())
+                    .tag("user_id", userId.toString())
                     .description("Time taken to get user balance in cents")
                     .register(meterRegistry));
         }
@@ -43,11 +52,29 @@ public class BalanceService {
     }
     
     /**
-     * Check if a user has sufficient balance for a withdrawal or transfer
+     * Check if a user's cached balance covers the amount. Only advisory, withdrawals and transfers re-check the
+     * balance in the conditional debit itself
      */
     public boolean hasSufficientBalance(User user, Long amountInCents) {
         Long balance = getCurrentBalanceInCents(user);
         return balance >= amountInCents;
     }
+
+    /**
+     * Drop the cached balance for a user once the surrounding database transaction commits,
+     * so a concurrent read can't repopulate the cache with the pre-commit value
+     */
+    public void evictBalance(Integer userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    balanceCache.invalidate(userId);
+                }
+            });
+        } else {
+            balanceCache.invalidate(userId);
+        }
+    }
      
 }
@@ -0,0 +1,202 @@
+package com.array.banking.service;
+
+import com.array.banking.dto.BatchTransferResponse;
+import com.array.banking.dto.BatchTransferResponse.ItemResult;
+import com.array.banking.dto.TransferRequest;
+import com.array.banking.model.TransactionStatus;
+import com.array.banking.model.User;
+import com.array.banking.repository.BatchTransferLegs;
+import com.array.banking.repository.LedgerJdbcRepository;
+import com.array.banking.repository.Payment;
+import com.array.banking.repository.TransferLegs;
+import com.array.banking.repository.UserIdentity;
+import com.array.banking.repository.UserRepository;
+import com.array.banking.util.CurrencyUtil;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Transfers from one sender to many recipients, e.g. a payroll run, in one database transaction.
+ * Instead of a balance check, recipient lookup and ledger write per payee, the recipients are resolved with one
+ * query, the balance is checked and debited once for the total, and all legs are written in one JDBC batch.
+ * Invalid items fail on their own; insufficient funds for the total fail all of them.
+ */
+@Service
+@Slf4j
+public class BatchTransferService {
+
+    private final UserRepository userRepository;
+    private final LedgerJdbcRepository ledgerJdbcRepository;
+    private final BalanceService balanceService;
+    private final SettlementService settlementService;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxItems;
+    private final BigDecimal maxAmount;
+    private final Counter transferredItems;
+    private final Counter failedItems;
+
+    public BatchTransferService(UserRepository userRepository,
+                                LedgerJdbcRepository ledgerJdbcRepository,
+                                BalanceService balanceService,
+                                SettlementService settlementService,
+                                TransactionTemplate transactionTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${transfer.batch.max-items}") int maxItems,
+                                @Value("${transfer.batch.max-amount}") BigDecimal maxAmount) {
+        this.userRepository = userRepository;
+        this.ledgerJdbcRepository = ledgerJdbcRepository;
+        this.balanceService = balanceService;
+        this.settlementService = settlementService;
+        this.transactionTemplate = transactionTemplate;
+        this.maxItems = maxItems;
+        this.maxAmount = maxAmount;
+        this.transferredItems = Counter.builder("banking.transfers.batch.items")
+                .tag("outcome", "transferred")
+                .description("Items of batch transfers by outcome")
+                .register(meterRegistry);
+        this.failedItems = Counter.builder("banking.transfers.batch.items")
+                .tag("outcome", "failed")
+                .description("Items of batch transfers by outcome")
+                .register(meterRegistry);
+    }
+
+    public BatchTransferResponse transfer(User sender, List<TransferRequest> transfers) {
+        if (transfers.size() > maxItems) {
+            throw new IllegalArgumentException("A batch can have at most " + maxItems + " transfers");
+        }
+
+        List<ItemResult> results = new ArrayList<>(transfers.size());
+        Set<String> usernames = new HashSet<>();
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferRequest transfer = transfers.get(i);
+            String error = validate(transfer, sender);
+            results.add(new ItemResult(i, transfer.getRecipientUsername(), transfer.getAmount(),
+                    error == null ? null : TransactionStatus.FAILED, null, error));
+            if (error == null) {
+                usernames.add(transfer.getRecipientUsername());
+            }
+        }
+
+        Map<String, Integer> userIds = new HashMap<>();
+        if (!usernames.isEmpty()) {
+            for (UserIdentity identity : userRepository.findIdentitiesByUsernameIn(usernames)) {
+                userIds.put(identity.getUsername(), identity.getUserId());
+            }
+        }
+
+        List<Payment> payments = new ArrayList<>();
+        List<ItemResult> accepted = new ArrayList<>();
+        for (ItemResult result : results) {
+            if (result.getStatus() != null) {
+                continue;
+            }
+            Integer recipientId = userIds.get(result.getRecipientUsername());
+            if (recipientId == null) {
+                fail(result, "Recipient not found");
+            } else {
+                payments.add(new Payment(recipientId, toCents(result.getAmount())));
+                accepted.add(result);
+            }
+        }
+
+        BigDecimal newBalance = null;
+        long transferredInCents = 0;
+        if (!payments.isEmpty()) {
+            long totalInCents = LedgerJdbcRepository.totalInCents(payments);
+            Optional<BatchTransferLegs> written = transactionTemplate.execute(status -> write(sender, payments));
+            if (written.isEmpty()) {
+                BigDecimal total = CurrencyUtil.centsToDollars(totalInCents);
+                accepted.forEach(result -> fail(result, "Insufficient funds for the batch total of " + total));
+            } else {
+                List<TransferLegs> legs = written.get().legs();
+                for (int i = 0; i < accepted.size(); i++) {
+                    accepted.get(i).setStatus(TransactionStatus.COMPLETED);
+                    accepted.get(i).setTransactionId(legs.get(i).outgoingTransactionId());
+                    accepted.get(i).setMessage("Transfer successful");
+                }
+                newBalance = CurrencyUtil.centsToDollars(written.get().senderBalanceInCents());
+                transferredInCents = totalInCents;
+            }
+        }
+
+        int succeeded = (int) results.stream().filter(result -> result.getStatus() == TransactionStatus.COMPLETED).count();
+        int failed = results.size() - succeeded;
+        transferredItems.increment(succeeded);
+        failedItems.increment(failed);
+        log.debug("Batch transfer of user {}: {} transferred, {} failed", sender.getUserId(), succeeded, failed);
+
+        return new BatchTransferResponse(succeeded, failed, CurrencyUtil.centsToDollars(transferredInCents),
+                newBalance, results);
+    }
+
+    private Optional<BatchTransferLegs> write(User sender, List<Payment> payments) {
+        LocalDateTime timestamp = LocalDateTime.now();
+        Optional<BatchTransferLegs> written = ledgerJdbcRepository.batchTransfer(sender.getUserId(), payments, timestamp);
+        written.ifPresent(batch -> {
+            balanceService.evictBalance(sender.getUserId());
+            // Queued once this transaction commits, settled in batches like single transfers
+            batch.legs().forEach(legs -> settlementService.submit(legs.incomingTransactionId(), timestamp));
+        });
+        return written;
+    }
+
+    /**
+     * The checks transfer does for a single item, returns the error or null if it's valid
+     */
+    private String validate(TransferRequest transfer, User sender) {
+        String recipientUsername = transfer.getRecipientUsername();
+        BigDecimal amount = transfer.getAmount();
+        if (recipientUsername == null || recipientUsername.isBlank()) {
+            return "Recipient username is required";
+        }
+        if (amount == null) {
+            return "Transfer amount is required";
+        }
+        if (amount.compareTo(new BigDecimal("0.01")) < 0) {
+            return "Transfer amount must be greater than zero";
+        }
+        if (amount.stripTrailingZeros().scale() > 2) {
+            return "Amount can't have more than 2 decimal places";
+        }
+        // Bounded before the conversion, so the cents can neither overflow nor wrap to a negative debit
+        if (amount.compareTo(maxAmount) > 0) {
+            return "Amount exceeds the maximum of " + maxAmount;
+        }
+        if (toCents(amount) <= 0) {
+            return "Transfer amount must be greater than zero";
+        }
+        if (sender.getUsername().equals(recipientUsername)) {
+            return "Cannot transfer funds to yourself";
+        }
+        return null;
+    }
+
+    /**
+     * Exact conversion of a validated amount, unlike CurrencyUtil.dollarsToCents it throws instead of truncating
+     */
+    private static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+
+    private static void fail(ItemResult result, String message) {
+        result.setStatus(TransactionStatus.FAILED);
+        result.setMessage(message);
+    }
+}
@@ -0,0 +1,256 @@
+package com.array.banking.service;
+
+import com.array.banking.dto.BulkIngestionResponse;
+import com.array.banking.dto.BulkIngestionResponse.RowError;
+import com.array.banking.repository.Deposit;
+import com.array.banking.repository.LedgerJdbcRepository;
+import com.array.banking.repository.UserIdentity;
+import com.array.banking.repository.UserRepository;
+import com.array.banking.util.CurrencyUtil;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Deposits payroll-style files of many rows, CSV (username,amount) or NDJSON ({"username": "...", "amount": 12.34}).
+ * The body is read line by line and never held in memory: rows are validated as they arrive and written in chunks,
+ * each chunk in its own database transaction, so an invalid row or a failed chunk is reported and skipped without
+ * aborting the rest of the file.
+ */
+@Service
+@Slf4j
+public class BulkIngestionService {
+
+    private static final int MAX_USERNAME_LENGTH = 50;
+
+    private final UserRepository userRepository;
+    private final LedgerJdbcRepository ledgerJdbcRepository;
+    private final BalanceService balanceService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader jsonReader;
+    private final int chunkSize;
+    private final int maxReportedErrors;
+    private final BigDecimal maxAmount;
+    private final Counter insertedRows;
+    private final Counter failedRows;
+
+    public BulkIngestionService(UserRepository userRepository,
+                                LedgerJdbcRepository ledgerJdbcRepository,
+                                BalanceService balanceService,
+                                TransactionTemplate transactionTemplate,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                @Value("${ingestion.chunk-size}") int chunkSize,
+                                @Value("${ingestion.max-reported-errors}") int maxReportedErrors,
+                                @Value("${ingestion.max-amount}") BigDecimal maxAmount) {
+        this.userRepository = userRepository;
+        this.ledgerJdbcRepository = ledgerJdbcRepository;
+        this.balanceService = balanceService;
+        this.transactionTemplate = transactionTemplate;
+        // Amounts must stay exact, 0.1 as a double isn't
+        this.jsonReader = objectMapper.reader().with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+        this.maxAmount = maxAmount;
+        this.insertedRows = Counter.builder("banking.ingestion.rows")
+                .tag("outcome", "inserted")
+                .description("Rows of bulk ingestions by outcome")
+                .register(meterRegistry);
+        this.failedRows = Counter.builder("banking.ingestion.rows")
+                .tag("outcome", "failed")
+                .description("Rows of bulk ingestions by outcome")
+                .register(meterRegistry);
+    }
+
+    public BulkIngestionResponse ingest(InputStream body, RecordFormat format) throws IOException {
+        long start = System.nanoTime();
+        Ingestion ingestion = new Ingestion();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || (lineNumber == 1 && format == RecordFormat.CSV && isCsvHeader(line))) {
+                    continue;
+                }
+
+                ingestion.rowsRead++;
+                try {
+                    chunk.add(parse(line, lineNumber, format));
+                } catch (IllegalArgumentException e) {
+                    ingestion.fail(lineNumber, e.getMessage());
+                }
+
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(chunk, ingestion);
+                }
+            }
+        }
+        writeChunk(chunk, ingestion);
+
+        long elapsedNanos = System.nanoTime() - start;
+        double rowsPerSecond = ingestion.rowsRead * 1_000_000_000.0 / Math.max(elapsedNanos, 1);
+        insertedRows.increment(ingestion.rowsInserted);
+        failedRows.increment(ingestion.rowsFailed);
+        log.info("Bulk ingestion of {} rows: {} inserted, {} failed, {} rows/s",
+                ingestion.rowsRead, ingestion.rowsInserted, ingestion.rowsFailed, Math.round(rowsPerSecond));
+
+        return new BulkIngestionResponse(ingestion.rowsRead, ingestion.rowsInserted, ingestion.rowsFailed,
+                elapsedNanos / 1_000_000, rowsPerSecond, ingestion.errors, ingestion.rowsFailed > ingestion.errors.size());
+    }
+
+    /**
+     * Resolve the usernames of a chunk with one query and write its valid rows in one transaction.
+     * A failing chunk fails only its own rows.
+     */
+    private void writeChunk(List<Row> chunk, Ingestion ingestion) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        Set<String> usernames = new HashSet<>();
+        for (Row row : chunk) {
+            usernames.add(row.username());
+        }
+        Map<String, Integer> userIds = new HashMap<>();
+        for (UserIdentity identity : userRepository.findIdentitiesByUsernameIn(usernames)) {
+            userIds.put(identity.getUsername(), identity.getUserId());
+        }
+
+        List<Deposit> deposits = new ArrayList<>(chunk.size());
+        List<Row> accepted = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            Integer userId = userIds.get(row.username());
+            if (userId == null) {
+                ingestion.fail(row.line(), "Unknown user: " + row.username());
+            } else {
+                deposits.add(new Deposit(userId, row.amountInCents()));
+                accepted.add(row);
+            }
+        }
+        chunk.clear();
+
+        if (deposits.isEmpty()) {
+            return;
+        }
+        try {
+            List<Integer> affectedUserIds = transactionTemplate.execute(status ->
+                    ledgerJdbcRepository.insertCompletedDeposits(deposits, LocalDateTime.now()));
+            affectedUserIds.forEach(balanceService::evictBalance);
+            ingestion.rowsInserted += deposits.size();
+        } catch (DataAccessException e) {
+            log.error("Failed to write bulk ingestion chunk of {} rows: {}", deposits.size(), e.getMessage(), e);
+            String message = "Chunk rolled back: " + e.getMostSpecificCause().getMessage();
+            for (Row row : accepted) {
+                ingestion.fail(row.line(), message);
+            }
+        }
+    }
+
+    private Row parse(String line, long lineNumber, RecordFormat format) {
+        String username;
+        BigDecimal amount;
+        if (format == RecordFormat.NDJSON) {
+            JsonNode node;
+            try {
+                node = jsonReader.readTree(line);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Invalid JSON");
+            }
+            username = node.path("username").isTextual() ? node.path("username").asText().trim() : "";
+            JsonNode amountNode = node.path("amount");
+            amount = amountNode.isNumber() ? amountNode.decimalValue() : parseAmount(amountNode.asText());
+        } else {
+            String[] columns = line.split(",", -1);
+            if (columns.length != 2) {
+                throw new IllegalArgumentException("Expected 2 columns: username,amount");
+            }
+            username = unquote(columns[0]);
+            amount = parseAmount(unquote(columns[1]));
+        }
+
+        if (username.isEmpty() || username.length() > MAX_USERNAME_LENGTH) {
+            throw new IllegalArgumentException("Invalid username");
+        }
+        if (amount.signum() <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        if (amount.stripTrailingZeros().scale() > 2) {
+            throw new IllegalArgumentException("Amount can't have more than 2 decimal places");
+        }
+        if (amount.compareTo(maxAmount) > 0) {
+            throw new IllegalArgumentException("Amount exceeds the maximum of " + maxAmount);
+        }
+        return new Row(lineNumber, username, CurrencyUtil.dollarsToCents(amount));
+    }
+
+    private static BigDecimal parseAmount(String text) {
+        try {
+            return new BigDecimal(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount");
+        }
+    }
+
+    private static String unquote(String column) {
+        String value = column.trim();
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1).trim();
+        }
+        return value;
+    }
+
+    private static boolean isCsvHeader(String line) {
+        return line.trim().toLowerCase(Locale.ROOT).startsWith("username");
+    }
+
+    private record Row(long line, String username, Long amountInCents) {
+    }
+
+    /**
+     * Progress of one request
+     */
+    private class Ingestion {
+        long rowsRead;
+        long rowsInserted;
+        long rowsFailed;
+        final List<RowError> errors = new ArrayList<>();
+
+        void fail(long line, String message) {
+            rowsFailed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new RowError(line, message));
+            }
+        }
+    }
+}
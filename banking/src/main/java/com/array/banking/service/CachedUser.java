@@ -0,0 +1,24 @@
+package com.array.banking.service;
+
+import com.array.banking.model.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable copy of a user's row held by the username cache. Every lookup gets its own detached User
+ * built from it, so a caller changing the entity can't change what other callers see.
+ */
+public record CachedUser(Integer userId, String username, String passwordHash, String email, LocalDateTime createdAt) {
+
+    public static CachedUser of(User user) {
+        return new CachedUser(user.getUserId(), user.getUsername(), user.getPasswordHash(), user.getEmail(),
+                user.getCreatedAt());
+    }
+
+    public User toUser() {
+        User user = new User(username, passwordHash, email);
+        user.setUserId(userId);
+        user.setCreatedAt(createdAt);
+        return user;
+    }
+}
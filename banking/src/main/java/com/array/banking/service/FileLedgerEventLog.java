@@ -0,0 +1,154 @@
+package com.array.banking.service;
+
+import com.array.banking.repository.LedgerEvent;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ledger event log in a file of newline delimited JSON, one event per line, where the offset of an event is
+ * its line number. Appends are forced to disk before the relay deletes the events from the outbox, and the
+ * byte position of every line is indexed in memory so a read seeks straight to its offset.
+ * A line left incomplete by a crash is cut off when the file is opened again.
+ */
+@Slf4j
+public class FileLedgerEventLog implements LedgerEventLog, Closeable {
+
+    private final FileChannel channel;
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+    // positions[i] is where the line of offset i starts, positions[count] where the next one will
+    private long[] positions = new long[1024];
+    private int count;
+
+    public FileLedgerEventLog(Path file, ObjectMapper objectMapper) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.writer = objectMapper.writerFor(LedgerEvent.class);
+        this.reader = objectMapper.readerFor(LedgerEvent.class);
+        index();
+    }
+
+    private void index() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long position = 0;
+        long lineStart = 0;
+        while (channel.read(buffer, position) > 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position++;
+                if (buffer.get() == '\n') {
+                    addLine(lineStart, position);
+                    lineStart = position;
+                }
+            }
+            buffer.clear();
+        }
+        if (lineStart < channel.size()) {
+            log.warn("Truncating incomplete last line of the ledger event log at offset {}", count);
+            channel.truncate(lineStart);
+        }
+        positions[count] = lineStart;
+        log.info("Opened ledger event log with {} events", count);
+    }
+
+    private void addLine(long start, long end) {
+        if (count + 1 >= positions.length) {
+            positions = Arrays.copyOf(positions, positions.length * 2);
+        }
+        positions[count++] = start;
+        positions[count] = end;
+    }
+
+    @Override
+    public synchronized void append(List<LedgerEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream lines = new ByteArrayOutputStream();
+            long[] ends = new long[events.size()];
+            long position = positions[count];
+            for (int i = 0; i < events.size(); i++) {
+                writer.writeValue(lines, events.get(i));
+                lines.write('\n');
+                ends[i] = position + lines.size();
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            channel.force(false);
+
+            for (long end : ends) {
+                addLine(positions[count], end);
+            }
+        } catch (IOException e) {
+            // Drop a partly written batch, the relay retries it
+            try {
+                channel.truncate(positions[count]);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new UncheckedIOException("Failed to append to the ledger event log", e);
+        }
+    }
+
+    @Override
+    public synchronized List<Entry> read(long fromOffset, int maxEvents) {
+        int from = (int) Math.max(fromOffset, 0);
+        int to = (int) Math.min(count, (long) from + maxEvents);
+        List<Entry> entries = new ArrayList<>(Math.max(0, to - from));
+        if (from >= to) {
+            return entries;
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate((int) (positions[to] - positions[from]));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, positions[from] + buffer.position()) < 0) {
+                    throw new IOException("Ledger event log ends before offset " + to);
+                }
+            }
+            byte[] bytes = buffer.array();
+            for (int offset = from; offset < to; offset++) {
+                int start = (int) (positions[offset] - positions[from]);
+                int length = (int) (positions[offset + 1] - positions[offset]) - 1;
+                entries.add(new Entry(offset, reader.readValue(bytes, start, length)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the ledger event log", e);
+        }
+        return entries;
+    }
+
+    @Override
+    public synchronized long endOffset() {
+        return count;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,134 @@
+package com.array.banking.service;
+
+import com.array.banking.repository.IdempotencyKeyRepository;
+import com.array.banking.repository.StoredResponse;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Runs requests sent with an Idempotency-Key header at most once per user and key. The key is claimed in the
+ * same database transaction as the request's ledger writes: a successful response is stored with it and
+ * replayed to later requests with the key, while a failed request rolls the claim back with everything else,
+ * so the client can retry it. A duplicate that arrives while the first request is still running waits on the
+ * key's row lock and then replays its response, on any instance. Keys are kept for idempotency.ttl.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Counter replays;
+
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository,
+                              TransactionTemplate transactionTemplate,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${idempotency.ttl}") Duration ttl) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.replays = Counter.builder("banking.idempotency.replays")
+                .description("Requests answered with the stored response of an earlier request with the same Idempotency-Key")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run the request unless the user already sent one with this key, whose response is replayed instead.
+     * A key reused for a different request, by requestHash, is rejected with 422.
+     */
+    public ResponseEntity<?> execute(Integer userId, String key, String requestHash, Supplier<ResponseEntity<?>> request) {
+        return transactionTemplate.execute(status -> {
+            if (!idempotencyKeyRepository.claim(userId, key, requestHash, ttl)) {
+                return replay(userId, key, requestHash);
+            }
+
+            ResponseEntity<?> response = request.get();
+            if (response.getStatusCode().is2xxSuccessful()) {
+                idempotencyKeyRepository.complete(userId, key, response.getStatusCode().value(), toJson(response.getBody()));
+            } else {
+                status.setRollbackOnly();
+            }
+            return response;
+        });
+    }
+
+    private ResponseEntity<?> replay(Integer userId, String key, String requestHash) {
+        StoredResponse stored = idempotencyKeyRepository.find(userId, key)
+                .orElseThrow(() -> new IllegalStateException("Idempotency key vanished after a conflicting claim"));
+        if (!stored.requestHash().equals(requestHash)) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .body(HEADER + " was already used for a different request");
+        }
+
+        replays.increment();
+        log.debug("Replaying the response of idempotency key {} of user {}", key, userId);
+        return ResponseEntity.status(stored.statusCode())
+                .header(REPLAYED_HEADER, "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(stored.body());
+    }
+
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response can't be stored for replay", e);
+        }
+    }
+
+    /**
+     * Delete expired keys, a request reusing one after this runs again
+     */
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval}")
+    public void purgeExpired() {
+        int deleted = idempotencyKeyRepository.deleteExpired(ttl);
+        if (deleted > 0) {
+            log.info("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    /**
+     * SHA-256 of the request's fields, a key is only replayed for a request with the same hash
+     */
+    public static String requestHash(String... fields) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String field : fields) {
+                digest.update(field.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.array.banking.service;
+
+import com.array.banking.repository.LedgerEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ledger event log holding the latest events of this instance in a ring buffer on the heap. The oldest
+ * events are overwritten beyond the retention, so a consumer that falls that far behind skips ahead.
+ */
+public class InMemoryLedgerEventLog implements LedgerEventLog {
+
+    private final LedgerEvent[] ring;
+    private long endOffset;
+
+    public InMemoryLedgerEventLog(int retention) {
+        if (retention < 1) {
+            throw new IllegalArgumentException("retention must be positive");
+        }
+        this.ring = new LedgerEvent[retention];
+    }
+
+    @Override
+    public synchronized void append(List<LedgerEvent> events) {
+        for (LedgerEvent event : events) {
+            ring[(int) (endOffset % ring.length)] = event;
+            endOffset++;
+        }
+    }
+
+    @Override
+    public synchronized List<Entry> read(long fromOffset, int maxEvents) {
+        long offset = Math.max(fromOffset, endOffset - ring.length);
+        offset = Math.max(offset, 0);
+        long to = Math.min(endOffset, offset + maxEvents);
+
+        List<Entry> entries = new ArrayList<>((int) Math.max(0, to - offset));
+        for (; offset < to; offset++) {
+            entries.add(new Entry(offset, ring[(int) (offset % ring.length)]));
+        }
+        return entries;
+    }
+
+    @Override
+    public synchronized long endOffset() {
+        return endOffset;
+    }
+}
@@ -0,0 +1,80 @@
+package com.array.banking.service;
+
+import com.array.banking.model.TransactionStatus;
+import com.array.banking.model.TransactionType;
+import com.array.banking.repository.LedgerEvent;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ledger event log in the ledger_event_log table of V7__ledger_event_log.sql, the default. Appends join the
+ * relay's transaction, so events move from the outbox to the log exactly once and survive restarts, and
+ * every instance reads the same log. The oldest events beyond the retention are deleted as new ones arrive.
+ */
+public class JdbcLedgerEventLog implements LedgerEventLog {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int retention;
+
+    public JdbcLedgerEventLog(JdbcTemplate jdbcTemplate, int retention) {
+        if (retention < 1) {
+            throw new IllegalArgumentException("retention must be positive");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.retention = retention;
+    }
+
+    /**
+     * Must be called by the relay while it holds the relay lock, which keeps the offsets contiguous
+     */
+    @Override
+    public void append(List<LedgerEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        long firstOffset = endOffset();
+        List<Object[]> rows = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            LedgerEvent event = events.get(i);
+            rows.add(new Object[] {firstOffset + i, event.eventId(), event.transactionId(), event.userId(),
+                    event.amountInCents(), event.type().name(), event.status().name(), Timestamp.valueOf(event.timestamp())});
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO ledger_event_log
+                    (event_offset, event_id, transaction_id, user_id, amount, transaction_type, status, timestamp)
+                VALUES (?, ?, ?, ?, ?, ?::transaction_type, ?::transaction_status, ?)
+                """, rows);
+        jdbcTemplate.update("DELETE FROM ledger_event_log WHERE event_offset < ?",
+                firstOffset + events.size() - retention);
+    }
+
+    @Override
+    public List<Entry> read(long fromOffset, int maxEvents) {
+        return jdbcTemplate.query("""
+                SELECT event_offset, event_id, transaction_id, user_id, amount, transaction_type::text AS type,
+                       status::text AS status, timestamp
+                FROM ledger_event_log
+                WHERE event_offset >= ?
+                ORDER BY event_offset
+                LIMIT ?
+                """,
+                (rs, rowNum) -> new Entry(rs.getLong("event_offset"), new LedgerEvent(
+                        rs.getLong("event_id"),
+                        rs.getInt("transaction_id"),
+                        rs.getInt("user_id"),
+                        rs.getLong("amount"),
+                        TransactionType.valueOf(rs.getString("type")),
+                        TransactionStatus.valueOf(rs.getString("status")),
+                        rs.getTimestamp("timestamp").toLocalDateTime())),
+                fromOffset, maxEvents);
+    }
+
+    @Override
+    public long endOffset() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(event_offset) + 1, 0) FROM ledger_event_log", Long.class);
+    }
+}
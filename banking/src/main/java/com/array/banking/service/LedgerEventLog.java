@@ -0,0 +1,35 @@
+package com.array.banking.service;
+
+import com.array.banking.repository.LedgerEvent;
+
+import java.util.List;
+
+/**
+ * Append-only stream of ledger events that the outbox relay publishes to. Every appended event gets the
+ * next offset, starting at 0, and consumers tail the stream by reading from the offset after the last
+ * event they handled. The default keeps the events in a database table that every instance reads
+ * (outbox.log.store=jdbc). A file (file) or an in-memory window (memory, for tests) only hold the batches
+ * this instance relayed; to publish to a broker, declare a LedgerEventLog bean.
+ * Delivery is at least once, a consumer can drop repeats by event ID.
+ */
+public interface LedgerEventLog {
+
+    /**
+     * Append events in order. Once this returns they must be readable, the relay deletes them from the outbox.
+     */
+    void append(List<LedgerEvent> events);
+
+    /**
+     * Up to maxEvents events from the given offset on. Starts at the oldest retained event when the
+     * offset has been trimmed, and is empty once the consumer has caught up.
+     */
+    List<Entry> read(long fromOffset, int maxEvents);
+
+    /**
+     * Offset the next appended event will get
+     */
+    long endOffset();
+
+    record Entry(long offset, LedgerEvent event) {
+    }
+}
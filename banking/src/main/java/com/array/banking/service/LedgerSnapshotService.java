@@ -0,0 +1,99 @@
+package com.array.banking.service;
+
+import com.array.banking.repository.BalanceDelta;
+import com.array.banking.repository.LedgerSnapshot;
+import com.array.banking.repository.LedgerSnapshotRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Point-in-time balances rebuilt from the event-sourced ledger: the latest snapshot at or before the time plus
+ * the events after it, so a read folds at most ledger.snapshots.every events however old the account is.
+ * Snapshots are written on a schedule for the accounts that changed since the previous run; safe to run on
+ * every instance. The current balance is still served by BalanceService from account_balances.
+ */
+@Service
+@Slf4j
+public class LedgerSnapshotService {
+
+    // Accounts changed since then are all the accounts on the first run
+    static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final LedgerSnapshotRepository snapshotRepository;
+    private final Clock clock;
+    private final int every;
+    private final Duration settleMargin;
+    private final DistributionSummary foldedEvents;
+    private final Counter writtenSnapshots;
+    private LocalDateTime lastRunStart;
+
+    @Autowired
+    public LedgerSnapshotService(LedgerSnapshotRepository snapshotRepository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${ledger.snapshots.every}") int every,
+                                 @Value("${ledger.snapshots.settle-margin}") Duration settleMargin) {
+        this(snapshotRepository, meterRegistry, every, settleMargin, Clock.systemDefaultZone());
+    }
+
+    LedgerSnapshotService(LedgerSnapshotRepository snapshotRepository, MeterRegistry meterRegistry,
+                          int every, Duration settleMargin, Clock clock) {
+        if (every < 1) {
+            throw new IllegalArgumentException("ledger.snapshots.every must be positive");
+        }
+        this.snapshotRepository = snapshotRepository;
+        this.every = every;
+        this.settleMargin = settleMargin;
+        this.clock = clock;
+        this.foldedEvents = DistributionSummary.builder("banking.balance.as_of.events")
+                .description("Events folded onto the snapshot by a point-in-time balance read")
+                .register(meterRegistry);
+        this.writtenSnapshots = Counter.builder("banking.ledger.snapshots.written")
+                .description("Ledger snapshots written by the snapshot job")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Get the user's balance in cents from the COMPLETED transactions with timestamp <= asOf
+     */
+    public long getBalanceAsOf(Integer userId, LocalDateTime asOf) {
+        Optional<LedgerSnapshot> snapshot = snapshotRepository.findLatestAtOrBefore(userId, asOf);
+        BalanceDelta delta = snapshotRepository.foldEvents(userId, snapshot, asOf);
+        foldedEvents.record(delta.events());
+        return snapshot.map(LedgerSnapshot::balance).orElse(0L) + delta.amountInCents();
+    }
+
+    /**
+     * Snapshot the accounts that changed since the previous run. Events newer than the settle margin are left
+     * for a later run, a transaction committing late may still be inserted before them.
+     */
+    @Scheduled(fixedDelayString = "${ledger.snapshots.interval}")
+    public void writeSnapshots() {
+        LocalDateTime runStart = LocalDateTime.now(clock);
+        // Events up to the previous horizon are folded, so only accounts with a later balance change need a look
+        LocalDateTime changedSince = lastRunStart != null ? lastRunStart.minus(settleMargin) : EPOCH;
+        try {
+            int written = snapshotRepository.writeSnapshots(changedSince, runStart.minus(settleMargin), every);
+            writtenSnapshots.increment(written);
+            lastRunStart = runStart;
+            if (written > 0) {
+                log.info("Wrote {} ledger snapshots", written);
+            }
+        } catch (Exception e) {
+            log.error("Failed to write ledger snapshots: {}", e.getMessage(), e);
+        }
+    }
+}
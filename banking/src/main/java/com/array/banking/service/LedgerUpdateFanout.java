@@ -0,0 +1,189 @@
+package com.array.banking.service;
+
+import com.array.banking.dto.LedgerUpdateResponse;
+import com.array.banking.repository.LedgerEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Pushes each user's ledger updates to their open server-sent event streams. It tails the ledger event log
+ * from a single scheduled task, groups a batch by user and only looks up the balance of users that are
+ * connected, once per batch. Every instance tails the log with its own offset, so with the default shared
+ * log (outbox.log.store=jdbc) a user gets the updates whichever instance relayed them and whichever one
+ * holds the stream. The file and memory logs only hold what this instance relayed, so they support a single
+ * instance. An open stream is an async request without a thread, held in this registry
+ * until the client disconnects or it times out, so thousands of idle dashboards cost little more than their
+ * sockets. Updates that arrive before a client connects aren't replayed, the page it loaded already shows them.
+ */
+@Service
+@Slf4j
+public class LedgerUpdateFanout {
+
+    private static final int READ_BATCH = 1000;
+
+    private final LedgerEventLog eventLog;
+    private final BalanceService balanceService;
+    private final Duration timeout;
+    private final int maxStreamsPerUser;
+    private final Map<Integer, Deque<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger openStreams = new AtomicInteger();
+    private final Counter sentUpdates;
+    private long nextOffset;
+
+    public LedgerUpdateFanout(LedgerEventLog eventLog,
+                              BalanceService balanceService,
+                              MeterRegistry meterRegistry,
+                              @Value("${events.stream.timeout}") Duration timeout,
+                              @Value("${events.stream.max-per-user}") int maxStreamsPerUser) {
+        this.eventLog = eventLog;
+        this.balanceService = balanceService;
+        this.timeout = timeout;
+        this.maxStreamsPerUser = maxStreamsPerUser;
+        this.nextOffset = eventLog.endOffset();
+
+        Gauge.builder("banking.events.streams.open", openStreams, AtomicInteger::get)
+                .description("Server-sent event streams currently open")
+                .register(meterRegistry);
+        this.sentUpdates = Counter.builder("banking.events.updates.sent")
+                .description("Ledger updates pushed to open streams")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Open a stream of the user's ledger updates, each rendered into one or more events by the given function.
+     * Beyond the per-user limit the user's oldest stream is closed, the browser reconnects a tab it still shows.
+     */
+    public SseEmitter subscribe(Integer userId, Function<LedgerUpdateResponse, List<SseEmitter.SseEventBuilder>> renderer) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, renderer);
+        // Added and removed under the map's lock for the user, so a stream can't land in a deque being dropped
+        Deque<Subscriber> streams = subscribers.compute(userId, (id, existing) -> {
+            Deque<Subscriber> deque = existing != null ? existing : new ConcurrentLinkedDeque<>();
+            deque.addLast(subscriber);
+            return deque;
+        });
+        openStreams.incrementAndGet();
+
+        emitter.onCompletion(() -> remove(userId, subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> remove(userId, subscriber));
+
+        Subscriber oldest;
+        while (streams.size() > maxStreamsPerUser && (oldest = streams.peekFirst()) != null && oldest != subscriber) {
+            remove(userId, oldest);
+            oldest.emitter().complete();
+        }
+        return emitter;
+    }
+
+    private void remove(Integer userId, Subscriber subscriber) {
+        subscribers.computeIfPresent(userId, (id, streams) -> {
+            if (streams.remove(subscriber)) {
+                openStreams.decrementAndGet();
+            }
+            return streams.isEmpty() ? null : streams;
+        });
+    }
+
+    /**
+     * Push the updates published since the previous run to the connected users
+     */
+    @Scheduled(fixedDelayString = "${events.stream.push-interval-ms}")
+    public void dispatch() {
+        if (subscribers.isEmpty()) {
+            nextOffset = eventLog.endOffset();
+            return;
+        }
+        List<LedgerEventLog.Entry> entries;
+        while (!(entries = eventLog.read(nextOffset, READ_BATCH)).isEmpty()) {
+            nextOffset = entries.get(entries.size() - 1).offset() + 1;
+            if (subscribers.isEmpty()) {
+                continue;
+            }
+
+            Map<Integer, List<LedgerEvent>> eventsByUser = new LinkedHashMap<>();
+            for (LedgerEventLog.Entry entry : entries) {
+                Integer userId = entry.event().userId();
+                if (subscribers.containsKey(userId)) {
+                    eventsByUser.computeIfAbsent(userId, id -> new ArrayList<>()).add(entry.event());
+                }
+            }
+            eventsByUser.forEach((userId, events) -> {
+                try {
+                    push(userId, events);
+                } catch (Exception e) {
+                    log.warn("Failed to push {} ledger updates to user {}: {}", events.size(), userId, e.getMessage());
+                }
+            });
+        }
+    }
+
+    private void push(Integer userId, List<LedgerEvent> events) {
+        Deque<Subscriber> streams = subscribers.get(userId);
+        if (streams == null) {
+            return;
+        }
+        long balanceInCents = balanceService.getCurrentBalanceInCents(userId);
+        for (LedgerEvent event : events) {
+            LedgerUpdateResponse update = LedgerUpdateResponse.of(event, balanceInCents);
+            for (Subscriber subscriber : streams) {
+                send(userId, subscriber, subscriber.renderer().apply(update));
+            }
+            sentUpdates.increment();
+        }
+    }
+
+    /**
+     * Keep idle streams open through proxies and find the ones whose client went away
+     */
+    @Scheduled(fixedDelayString = "${events.stream.heartbeat-interval}")
+    public void heartbeat() {
+        subscribers.forEach((userId, streams) -> {
+            for (Subscriber subscriber : streams) {
+                send(userId, subscriber, List.of(SseEmitter.event().comment("heartbeat")));
+            }
+        });
+    }
+
+    private void send(Integer userId, Subscriber subscriber, List<SseEmitter.SseEventBuilder> events) {
+        try {
+            for (SseEmitter.SseEventBuilder event : events) {
+                subscriber.emitter().send(event);
+            }
+        } catch (IOException | IllegalStateException e) {
+            // The client disconnected, or the stream already completed
+            log.debug("Dropping event stream of user {}: {}", userId, e.getMessage());
+            remove(userId, subscriber);
+            subscriber.emitter().completeWithError(e);
+        }
+    }
+
+    int openStreams() {
+        return openStreams.get();
+    }
+
+    private record Subscriber(SseEmitter emitter,
+                              Function<LedgerUpdateResponse, List<SseEmitter.SseEventBuilder>> renderer) {
+    }
+}
@@ -0,0 +1,83 @@
+package com.array.banking.service;
+
+import com.array.banking.repository.LedgerEvent;
+import com.array.banking.repository.LedgerOutboxRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Publishes the ledger outbox to the ledger event log in batches, oldest first. Each batch is appended and
+ * then deleted from the outbox in one database transaction, so a crash in between publishes it again rather
+ * than losing it. Only one instance relays at a time; safe to run on every instance.
+ */
+@Service
+@Slf4j
+public class OutboxRelayService {
+
+    private final LedgerOutboxRepository outboxRepository;
+    private final LedgerEventLog eventLog;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Counter publishedEvents;
+    private final Timer batchTimer;
+
+    public OutboxRelayService(LedgerOutboxRepository outboxRepository,
+                              LedgerEventLog eventLog,
+                              TransactionTemplate transactionTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${outbox.relay.batch-size}") int batchSize) {
+        this.outboxRepository = outboxRepository;
+        this.eventLog = eventLog;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.publishedEvents = Counter.builder("banking.outbox.events.published")
+                .description("Ledger events moved from the outbox to the event log")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("banking.outbox.relay.batch")
+                .description("Time taken to publish one batch of the outbox")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Publish batches until the outbox is drained or another instance holds the relay
+     */
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms}")
+    public void relay() {
+        try {
+            int published;
+            do {
+                published = batchTimer.record(() -> transactionTemplate.execute(status -> publishBatch()));
+            } while (published == batchSize);
+        } catch (Exception e) {
+            // The batch stays in the outbox and is published again by the next run
+            log.error("Failed to relay the ledger outbox: {}", e.getMessage(), e);
+        }
+    }
+
+    private int publishBatch() {
+        if (!outboxRepository.tryLockRelay()) {
+            return 0;
+        }
+        List<LedgerEvent> events = outboxRepository.findOldest(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        eventLog.append(events);
+        outboxRepository.delete(events.stream().map(LedgerEvent::eventId).toList());
+        publishedEvents.increment(events.size());
+        log.debug("Published {} ledger events", events.size());
+        return events.size();
+    }
+}
@@ -0,0 +1,76 @@
+package com.array.banking.service;
+
+import com.array.banking.repository.TransactionPartitionRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps monthly partitions of the transactions table created ahead of time. There is no default partition,
+ * an insert for a month without a partition fails, so months-ahead gives several runs to notice a failure.
+ * Runs at startup and on a schedule; safe to run on every instance.
+ */
+@Service
+@Slf4j
+public class PartitionMaintenanceService {
+
+    private final TransactionPartitionRepository partitionRepository;
+    private final Clock clock;
+    private final int monthsAhead;
+    private final AtomicInteger monthsCovered = new AtomicInteger();
+
+    @Autowired
+    public PartitionMaintenanceService(TransactionPartitionRepository partitionRepository,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${ledger.partitions.months-ahead}") int monthsAhead) {
+        this(partitionRepository, meterRegistry, monthsAhead, Clock.systemDefaultZone());
+    }
+
+    PartitionMaintenanceService(TransactionPartitionRepository partitionRepository, MeterRegistry meterRegistry,
+                                int monthsAhead, Clock clock) {
+        this.partitionRepository = partitionRepository;
+        this.monthsAhead = monthsAhead;
+        this.clock = clock;
+        Gauge.builder("banking.ledger.partitions.months_ahead", monthsCovered, AtomicInteger::get)
+                .description("Upcoming months with a transactions partition, -1 if the current month has none")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${ledger.partitions.maintenance-cron}")
+    public void ensurePartitions() {
+        YearMonth current = YearMonth.now(clock);
+        int covered = -1;
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            try {
+                if (partitionRepository.createMonthlyPartition(month)) {
+                    log.info("Created transactions partition for {}", month);
+                }
+                if (covered == i - 1) {
+                    covered = i;
+                }
+            } catch (Exception e) {
+                log.error("Failed to create transactions partition for {}: {}", month, e.getMessage(), e);
+            }
+        }
+
+        monthsCovered.set(covered);
+        if (covered < 0) {
+            log.error("No transactions partition for the current month {}, inserts will fail", current);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.array.banking.service;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Line oriented formats of the bulk import and the export, one record per line
+ */
+public enum RecordFormat {
+    // Comma separated columns, optionally preceded by a header line
+    CSV,
+    // One JSON object per line
+    NDJSON;
+
+    public static final String CSV_MEDIA_TYPE = "text/csv";
+    public static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
+    public static RecordFormat of(MediaType contentType) {
+        return MediaType.valueOf(NDJSON_MEDIA_TYPE).isCompatibleWith(contentType) ? NDJSON : CSV;
+    }
+
+    public String mediaType() {
+        return this == NDJSON ? NDJSON_MEDIA_TYPE : CSV_MEDIA_TYPE;
+    }
+}
@@ -0,0 +1,181 @@
+package com.array.banking.service;
+
+import com.array.banking.repository.LedgerJdbcRepository;
+import com.array.banking.repository.PendingTransaction;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import jakarta.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Settles PENDING transactions in batches.
+ * Transaction IDs are queued once the inserting database transaction commits, and a scheduled flush
+ * completes each batch with a single set-based UPDATE that also maintains the balance snapshots.
+ * Batches run on the transactionExecutor, a thread pool or virtual threads depending on the profile.
+ * When the queue is full the submitting thread flushes a batch itself instead of rejecting the work.
+ * A batch that fails, e.g. on a transient database error, stays PENDING and is queued again by the sweep,
+ * which also picks up rows left by an instance that stopped. Completion skips rows that are no longer
+ * PENDING, so a row queued twice or swept by several instances is settled once.
+ */
+@Service
+@Slf4j
+public class SettlementService {
+
+    private final LedgerJdbcRepository ledgerJdbcRepository;
+    private final BalanceService balanceService;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor transactionExecutor;
+    private final BlockingQueue<PendingTransaction> pendingTransactions;
+    private final int batchSize;
+    private final Duration sweepMinAge;
+    private final Timer batchTimer;
+
+    public SettlementService(LedgerJdbcRepository ledgerJdbcRepository,
+                             BalanceService balanceService,
+                             TransactionTemplate transactionTemplate,
+                             @Qualifier("transactionExecutor") Executor transactionExecutor,
+                             MeterRegistry meterRegistry,
+                             @Value("${settlement.batch-size}") int batchSize,
+                             @Value("${settlement.queue-capacity}") int queueCapacity,
+                             @Value("${settlement.sweep.min-age}") Duration sweepMinAge) {
+        this.ledgerJdbcRepository = ledgerJdbcRepository;
+        this.balanceService = balanceService;
+        this.transactionTemplate = transactionTemplate;
+        this.transactionExecutor = transactionExecutor;
+        this.batchSize = batchSize;
+        this.sweepMinAge = sweepMinAge;
+        this.pendingTransactions = new LinkedBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("banking.settlement.queue.depth", pendingTransactions, BlockingQueue::size)
+                .description("Transactions waiting to be settled")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("banking.settlement.batch")
+                .description("Time taken to settle one batch of transactions")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queue a PENDING transaction for completion. Inside a database transaction the ID is only queued
+     * after commit, so the settlement never races the insert.
+     * The timestamp must be the one stored on the row, it selects the partition to update.
+     */
+    public void submit(Integer transactionId, LocalDateTime timestamp) {
+        PendingTransaction transaction = new PendingTransaction(transactionId, timestamp);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(transaction);
+                }
+            });
+        } else {
+            enqueue(transaction);
+        }
+    }
+
+    private void enqueue(PendingTransaction transaction) {
+        while (!pendingTransactions.offer(transaction)) {
+            // Queue is full, apply backpressure by settling a batch on the caller's thread
+            settle(nextBatch());
+        }
+    }
+
+    /**
+     * Drain the queue, handing each batch to the transaction executor
+     */
+    @Scheduled(fixedDelayString = "${settlement.flush-interval-ms}")
+    public void flush() {
+        List<PendingTransaction> batch;
+        while (!(batch = nextBatch()).isEmpty()) {
+            List<PendingTransaction> toSettle = batch;
+            transactionExecutor.execute(() -> settle(toSettle));
+        }
+    }
+
+    private List<PendingTransaction> nextBatch() {
+        List<PendingTransaction> batch = new ArrayList<>(batchSize);
+        pendingTransactions.drainTo(batch, batchSize);
+        return batch;
+    }
+
+    private void settle(List<PendingTransaction> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<Integer> affectedUserIds = batchTimer.recordCallable(() ->
+                    transactionTemplate.execute(status -> ledgerJdbcRepository.completePendingTransactions(batch)));
+            affectedUserIds.forEach(balanceService::evictBalance);
+            log.debug("Settled batch of {} transactions for {} users", batch.size(), affectedUserIds.size());
+        } catch (Exception e) {
+            // Rows stay PENDING and are queued again by the next sweep
+            log.error("Failed to settle batch of {} transactions: {}", batch.size(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Re-queue transactions left PENDING by a previous run
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverPendingTransactions() {
+        List<PendingTransaction> pending = ledgerJdbcRepository.findPendingTransactions();
+        if (!pending.isEmpty()) {
+            log.info("Re-queueing {} pending transactions for settlement", pending.size());
+            pending.forEach(this::enqueue);
+        }
+    }
+
+    /**
+     * Re-queue transactions that have been PENDING for longer than settlement.sweep.min-age, long enough
+     * for a queued transaction to have settled had its batch succeeded
+     */
+    @Scheduled(fixedDelayString = "${settlement.sweep.interval}", initialDelayString = "${settlement.sweep.interval}")
+    public void sweepPendingTransactions() {
+        try {
+            List<PendingTransaction> pending = ledgerJdbcRepository.findPendingTransactionsBefore(
+                    LocalDateTime.now().minus(sweepMinAge));
+            if (!pending.isEmpty()) {
+                log.warn("Re-queueing {} transactions left pending for over {}", pending.size(), sweepMinAge);
+                pending.forEach(this::enqueue);
+            }
+        } catch (Exception e) {
+            log.error("Failed to sweep pending transactions: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Settle what's left on this thread, the executor may already be shutting down
+        List<PendingTransaction> batch;
+        while (!(batch = nextBatch()).isEmpty()) {
+            settle(batch);
+        }
+    }
+
+    int getQueueDepth() {
+        return pendingTransactions.size();
+    }
+}
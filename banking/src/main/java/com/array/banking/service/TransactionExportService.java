@@ -0,0 +1,126 @@
+package com.array.banking.service;
+
+import com.array.banking.dto.TransactionResponse;
+import com.array.banking.model.Transaction;
+import com.array.banking.model.User;
+import com.array.banking.repository.TransactionRepository;
+import com.array.banking.util.CurrencyUtil;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.persistence.EntityManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes a user's whole history, or a time range of it, straight from a database cursor to the response.
+ * Each row is written and then detached before the next one is read, so memory use doesn't depend on the
+ * size of the history. The read transaction holds a pooled connection until the client has received everything.
+ */
+@Service
+@Slf4j
+public class TransactionExportService {
+
+    // Lower bound of an export without a start, before any row of the ledger
+    static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    static final String CSV_HEADER = "transaction_id,timestamp,type,amount,status";
+
+    private final TransactionRepository transactionRepository;
+    private final EntityManager entityManager;
+    private final ObjectWriter jsonWriter;
+    private final Counter exportedRows;
+
+    public TransactionExportService(TransactionRepository transactionRepository,
+                                    EntityManager entityManager,
+                                    ObjectMapper objectMapper,
+                                    MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.entityManager = entityManager;
+        // The generator is shared by all rows and must not close the response when a row is written
+        this.jsonWriter = objectMapper.writerFor(TransactionResponse.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        this.exportedRows = Counter.builder("banking.export.rows")
+                .description("Transactions written by exports")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Write the user's transactions with start <= timestamp <= end, oldest first, like findByUserAndTimestampBetween.
+     * A null start or end leaves that side of the range open. Returns the number of rows written.
+     */
+    @Transactional(readOnly = true)
+    public long export(User user, LocalDateTime start, LocalDateTime end, RecordFormat format, OutputStream out)
+            throws IOException {
+        LocalDateTime from = start != null ? start : EARLIEST;
+        LocalDateTime to = end != null ? end : LocalDateTime.now();
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        JsonGenerator generator = null;
+        if (format == RecordFormat.NDJSON) {
+            generator = jsonWriter.createGenerator(writer);
+            // Rows are terminated with a newline instead of Jackson's space between root values
+            generator.setRootValueSeparator(null);
+        } else {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        long rows = 0;
+        try (Stream<Transaction> transactions = transactionRepository.streamByUserAndTimestampBetween(user, from, to)) {
+            Iterator<Transaction> iterator = transactions.iterator();
+            while (iterator.hasNext()) {
+                Transaction transaction = iterator.next();
+                if (generator != null) {
+                    jsonWriter.writeValue(generator, TransactionResponse.fromTransaction(transaction));
+                    generator.flush();
+                    writer.write('\n');
+                } else {
+                    writeCsvRow(writer, transaction);
+                }
+                // Drop the row from the persistence context, it would otherwise keep every row of the export
+                entityManager.detach(transaction);
+                rows++;
+            }
+        } finally {
+            exportedRows.increment(rows);
+        }
+        writer.flush();
+
+        log.debug("Exported {} transactions of user {}", rows, user.getUserId());
+        return rows;
+    }
+
+    private static void writeCsvRow(Writer writer, Transaction transaction) throws IOException {
+        writer.write(String.valueOf(transaction.getTransactionId()));
+        writer.write(',');
+        writer.write(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(transaction.getTimestamp()));
+        writer.write(',');
+        writer.write(transaction.getType().name());
+        writer.write(',');
+        writer.write(CurrencyUtil.centsToDollars(transaction.getAmount()).toPlainString());
+        writer.write(',');
+        writer.write(transaction.getStatus().name());
+        writer.write('\n');
+    }
+}
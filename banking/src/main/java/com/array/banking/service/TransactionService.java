@@ -1,10 +1,17 @@
 package com.array.banking.service;
 
+import com.array.banking.dto.CursorPage;
+import com.array.banking.dto.PageResponse;
+import com.array.banking.dto.TransactionCursor;
+import com.array.banking.dto.TransactionResponse;
 import com.array.banking.model.Transaction;
 import com.array.banking.model.TransactionStatus;
 import com.array.banking.model.TransactionType;
 import com.array.banking.model.User;
+import com.array.banking.repository.LedgerJdbcRepository;
 import com.array.banking.repository.TransactionRepository;
+import com.array.banking.repository.TransactionView;
+import com.array.banking.repository.TransferLegs;
 import com.array.banking.util.CurrencyUtil;
 
 import lombok.RequiredArgsConstructor;
@@ -12,12 +19,13 @@ import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.util.concurrent.CompletableFuture;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -25,93 +33,71 @@ import java.util.concurrent.CompletableFuture;
 public class TransactionService {
 
     private final TransactionRepository transactionRepository;
+    private final LedgerJdbcRepository ledgerJdbcRepository;
     private final BalanceService balanceService;
+    private final SettlementService settlementService;
 
-    public Page<Transaction> getUserTransactionsPaginated(User user, Pageable pageable) {
-        return transactionRepository.findByUserOrderByTimestampDescTransactionIdDesc(user, pageable);
-    }
-    
-    /**
-     * Complete a transaction by setting its status to COMPLETED
-     * This method initiates an async operation and returns immediately
-     */
-    @Transactional
-    public Transaction completeAndSaveTransaction(Transaction transaction) {
-        transaction.setStatus(TransactionStatus.PENDING);
-        Transaction savedTransaction = transactionRepository.save(transaction);
-        
-        // Process asynchronously
-        completeTransactionAsync(savedTransaction.getTransactionId());
-        
-        return savedTransaction;
+    public PageResponse<TransactionResponse> getUserTransactionsPaginated(User user, Pageable pageable) {
+        Page<TransactionView> page = transactionRepository.findViewsByUserOrderByTimestampDescTransactionIdDesc(user, pageable);
+        return PageResponse.of(page, TransactionResponse::fromView);
     }
 
     /**
-     * Async method to complete the transaction
+     * Get the next slice of a user's history after the given cursor, newest first.
+     * Seeks on (timestamp, transaction_id) instead of using OFFSET and never runs a COUNT.
      */
-    @Async("transactionExecutor")
-    @Transactional
-    public CompletableFuture<Transaction> completeTransactionAsync(Integer transactionId) {
-        try {
-            log.info("Processing transaction completion asynchronously: {}", transactionId);
-            Transaction transaction = transactionRepository.findById(transactionId)
-                .orElseThrow(() -> new RuntimeException("Transaction not found: " + transactionId));
-            
-            // Simulate some processing time
-            Thread.sleep(100);
-            
-            transaction.setStatus(TransactionStatus.COMPLETED);
-            Transaction completed = transactionRepository.save(transaction);
-            log.info("Successfully completed transaction: {}", transactionId);
-            
-            return CompletableFuture.completedFuture(completed);
-        } catch (Exception e) {
-            log.error("Error completing transaction {}: {}", transactionId, e.getMessage(), e);
-            return CompletableFuture.failedFuture(e);
+    public CursorPage<TransactionResponse> getUserTransactionsAfter(User user, String cursor, int size) {
+        // Fetch one extra row to find out whether another slice follows
+        List<TransactionView> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = transactionRepository.findFirstHistoryPage(user.getUserId(), size + 1);
+        } else {
+            TransactionCursor position = TransactionCursor.decode(cursor);
+            rows = transactionRepository.findHistoryPageAfter(
+                user.getUserId(), position.timestamp(), position.transactionId(), size + 1);
         }
-    }
 
+        List<TransactionResponse> content = rows.stream()
+            .limit(size)
+            .map(TransactionResponse::fromView)
+            .toList();
+        if (rows.size() <= size) {
+            return new CursorPage<>(content, null);
+        }
+        return new CursorPage<>(content, TransactionCursor.after(content.get(size - 1)).encode());
+    }
+    
     /**
-     * Fail a transaction by setting its status to FAILED
-     * This method initiates an async operation and returns immediately
+     * Save a transaction as PENDING and hand it to the settlement engine, which completes it
+     * asynchronously in a batch once this database transaction commits
      */
     @Transactional
-    public Transaction failAndSaveTransaction(Transaction transaction) {
+    public Transaction completeAndSaveTransaction(Transaction transaction) {
         transaction.setStatus(TransactionStatus.PENDING);
         Transaction savedTransaction = transactionRepository.save(transaction);
         
-        // Process asynchronously
-        failTransactionAsync(savedTransaction.getTransactionId());
+        settlementService.submit(savedTransaction.getTransactionId(), savedTransaction.getTimestamp());
         
         return savedTransaction;
     }
 
     /**
-     * Async method to fail the transaction
+     * Save a transaction that was rejected up front, e.g. for insufficient funds, as FAILED.
+     * There is nothing to settle, so it never goes through the PENDING state.
      */
-    @Async("transactionExecutor")
     @Transactional
-    public CompletableFuture<Transaction> failTransactionAsync(Integer transactionId) {
-        try {
-            log.info("Processing transaction failure asynchronously: {}", transactionId);
-            Transaction transaction = transactionRepository.findById(transactionId)
-                .orElseThrow(() -> new RuntimeException("Transaction not found: " + transactionId));
-            
-            // Simulate some processing time
-            Thread.sleep(100);
-            
-            transaction.setStatus(TransactionStatus.FAILED);
-            Transaction failed = transactionRepository.save(transaction);
-            log.info("Successfully marked transaction as failed: {}", transactionId);
-            
-            return CompletableFuture.completedFuture(failed);
-        } catch (Exception e) {
-            log.error("Error failing transaction {}: {}", transactionId, e.getMessage(), e);
-            return CompletableFuture.failedFuture(e);
-        }
+    public Transaction failAndSaveTransaction(Transaction transaction) {
+        transaction.setStatus(TransactionStatus.FAILED);
+        return transactionRepository.save(transaction);
     }
 
-    @Transactional()
+    /**
+     * Move money between two users. The balance check, the debit and both ledger rows happen in a single
+     * conditional statement that locks only the sender's balance row, so concurrent transfers can't overdraw.
+     * The recipient is credited when the incoming leg settles.
+     * A transfer rejected for insufficient funds keeps its FAILED rows, the exception doesn't roll them back.
+     */
+    @Transactional(noRollbackFor = IllegalArgumentException.class)
     public Integer transfer(User sender, User recipient, BigDecimal amountInDollars) {
         Long amountInCents = CurrencyUtil.dollarsToCents(amountInDollars);
 
@@ -122,20 +108,21 @@ public class TransactionService {
             throw new IllegalArgumentException("Cannot transfer to self");
         }
 
-        Transaction outgoing = new Transaction(sender, amountInCents, TransactionType.TRANSFER_OUT);
-        Transaction incoming = new Transaction(recipient, amountInCents, TransactionType.TRANSFER_IN);
+        LocalDateTime timestamp = LocalDateTime.now();
+        Optional<TransferLegs> legs = ledgerJdbcRepository.transfer(
+            sender.getUserId(), recipient.getUserId(), amountInCents, timestamp);
 
-        if (!balanceService.hasSufficientBalance(sender, amountInCents)) {
+        if (legs.isEmpty()) {
             // Set both transactions as failed
-            failAndSaveTransaction(outgoing);
-            failAndSaveTransaction(incoming);
+            failAndSaveTransaction(new Transaction(sender, amountInCents, TransactionType.TRANSFER_OUT));
+            failAndSaveTransaction(new Transaction(recipient, amountInCents, TransactionType.TRANSFER_IN));
             throw new IllegalArgumentException("Transaction Failed: Insufficient funds for transfer");
-        } else {
-            completeAndSaveTransaction(outgoing);
-            completeAndSaveTransaction(incoming);
         }
 
-        return outgoing.getTransactionId();
+        balanceService.evictBalance(sender.getUserId());
+        settlementService.submit(legs.get().incomingTransactionId(), timestamp);
+
+        return legs.get().outgoingTransactionId();
     }
     
     @Transactional()
@@ -149,21 +136,28 @@ public class TransactionService {
         return currentBalance + amountInCents;
     }
 
+    /**
+     * Withdraw from the user's balance. Like a transfer, the balance check, the debit and the ledger row are one
+     * conditional statement, so concurrent withdrawals can't overdraw; the withdrawal completes immediately.
+     * Returns the balance after the withdrawal, unchanged when it failed for insufficient funds.
+     */
     @Transactional()
     public Long withdraw(User user, BigDecimal amountInDollars) {
         Long amountInCents = CurrencyUtil.dollarsToCents(amountInDollars);
-        
-        Long currentBalance = balanceService.getCurrentBalanceInCents(user);
-        Transaction transaction = new Transaction(user, amountInCents, TransactionType.WITHDRAWAL);
 
-        if (balanceService.hasSufficientBalance(user, amountInCents)) {
-            completeAndSaveTransaction(transaction);
-            return currentBalance - amountInCents;
-        } else {
+        if (amountInCents <= 0) {
+            throw new IllegalArgumentException("Withdrawal amount must be positive");
+        }
+
+        Optional<Long> newBalance = ledgerJdbcRepository.withdraw(user.getUserId(), amountInCents, LocalDateTime.now());
+        if (newBalance.isEmpty()) {
             log.warn("Withdrawal failed due to insufficient funds");
-            failAndSaveTransaction(transaction);
-            return currentBalance;
-        }   
+            failAndSaveTransaction(new Transaction(user, amountInCents, TransactionType.WITHDRAWAL));
+            return balanceService.getCurrentBalanceInCents(user);
+        }
+
+        balanceService.evictBalance(user.getUserId());
+        return newBalance.get();
     }
 
 }
@@ -2,6 +2,10 @@ package com.array.banking.service;
 
 import com.array.banking.model.User;
 import com.array.banking.repository.UserRepository;
+import com.array.banking.security.BankingUserDetails;
+import com.array.banking.security.TokenDenylist;
+
+import com.github.benmanes.caffeine.cache.Cache;
 
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -10,26 +14,40 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.Collections;
 import java.util.Optional;
 
+/**
+ * Users by username are served from the userCache, unknown usernames included, so logins, token checks and
+ * transfer recipients don't query the users table each time. Changes made through createUser, saveUser and
+ * changePassword evict the cache of this instance once they commit; other instances see them when their
+ * entries expire.
+ */
 @Service
 public class UserService implements UserDetailsService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final Cache<String, Optional<CachedUser>> userCache;
+    private final TokenDenylist tokenDenylist;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                       Cache<String, Optional<CachedUser>> userCache, TokenDenylist tokenDenylist) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.userCache = userCache;
+        this.tokenDenylist = tokenDenylist;
     }
 
     /**
-     * Find a user by their username
+     * Find a user by their username. The User is a detached copy, save changes to it with saveUser.
      */
     public Optional<User> getUserByUsername(String username) {
-        return userRepository.findByUsername(username);
+        return userCache.get(username, name -> userRepository.findByUsername(name).map(CachedUser::of))
+                .map(CachedUser::toUser);
     }
 
     /**
@@ -75,6 +93,7 @@ public class UserService implements UserDetailsService {
         // Create and save user
         String hashedPassword = passwordEncoder.encode(password);
         User user = new User(username, hashedPassword, email);
+        evictUser(username, null);
         return userRepository.save(user);
     }
 
@@ -90,18 +109,62 @@ public class UserService implements UserDetailsService {
      */
     @Transactional
     public User saveUser(User user) {
+      evictUser(user.getUsername(), user.getUserId());
       return userRepository.save(user);
     }
+
+    /**
+     * Replace the user's password after checking the current one, and revoke every token issued to the user
+     * before the change. Stateless tokens are otherwise accepted until they expire, even with the old password.
+     * The cache eviction and the revocation wait for the commit, so a concurrent login can't cache the old hash
+     * again in between.
+     */
+    @Transactional
+    public void changePassword(Integer userId, String currentPassword, String newPassword) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        if (!passwordEncoder.matches(currentPassword, user.getPasswordHash())) {
+            throw new IllegalArgumentException("Current password is incorrect");
+        }
+
+        user.setPasswordHash(passwordEncoder.encode(newPassword));
+        saveUser(user);
+        afterCommit(() -> tokenDenylist.revokeAllTokensForUser(userId));
+    }
+
+    /**
+     * Drop the cached entries of the user after commit: its username, which may be new or changed, and
+     * any entry still holding its ID under a previous username
+     */
+    private void evictUser(String username, Integer userId) {
+        afterCommit(() -> {
+            userCache.invalidate(username);
+            if (userId != null) {
+                userCache.asMap().values().removeIf(cached -> cached.map(c -> c.userId().equals(userId)).orElse(false));
+            }
+        });
+    }
+
+    // Run the action once the current transaction commits, or right away outside one
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
     
-    // Load user by username for Spring Security
+    // Load user by username for Spring Security, keeping the entity on the principal for controllers
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
+        User user = getUserByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
 
-        return new org.springframework.security.core.userdetails.User(
-                user.getUsername(),
-                user.getPasswordHash(),
-                Collections.singletonList(new SimpleGrantedAuthority("USER")));
+        return new BankingUserDetails(user, Collections.singletonList(new SimpleGrantedAuthority("USER")));
     }
 }
@@ -0,0 +1,82 @@
+-- Schema as it was hand-run from schema.sql before migrations were introduced.
+-- Existing databases created from that file are baselined at this version (spring.flyway.baseline-on-migrate)
+-- and only get the later migrations; databases without the monthly partitions need db/partition_transactions.sql first.
+
+-- Potential Optimizations:
+-- 1. Use ENUM type for transaction_type
+
+-- Create users table
+CREATE TABLE users (
+    user_id SERIAL PRIMARY KEY,
+    username VARCHAR(50) UNIQUE NOT NULL,
+    password_hash VARCHAR(255) NOT NULL, -- Store hashed passwords only
+    email VARCHAR(100) UNIQUE NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- TODO: Use ENUM type for transaction_type after getting ORM to work with it
+CREATE TYPE transaction_type AS ENUM ('deposit', 'withdrawal', 'transfer_in', 'transfer_out');
+
+-- Create transactions table, range partitioned by month so history queries, monthly reports and
+-- vacuum only touch the partitions covering the requested time range
+CREATE TABLE transactions (
+    transaction_id SERIAL,
+    user_id INTEGER NOT NULL REFERENCES users(user_id),
+    amount BIGINT NOT NULL,
+    transaction_type VARCHAR(20) NOT NULL,
+    timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    "status" VARCHAR(20) NOT NULL,
+    -- The partition key has to be part of the primary key, transaction_id alone stays unique through the sequence
+    PRIMARY KEY (transaction_id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+-- Create the partition for the month containing month_start, e.g. transactions_2026_10.
+-- Returns false if it already exists. Called by PartitionMaintenanceService and db/partition_transactions.sql
+CREATE OR REPLACE FUNCTION create_transactions_partition(month_start DATE) RETURNS BOOLEAN AS $$
+DECLARE
+    partition_start DATE := date_trunc('month', month_start)::date;
+    partition_name TEXT := 'transactions_' || to_char(partition_start, 'YYYY_MM');
+BEGIN
+    -- Serialise concurrent callers, e.g. several instances starting at once
+    PERFORM pg_advisory_xact_lock(hashtext('create_transactions_partition'));
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+    EXECUTE format('CREATE TABLE %I PARTITION OF transactions FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, partition_start, (partition_start + INTERVAL '1 month')::date);
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Current month and the next three, later months are added by the application ahead of time.
+-- There is deliberately no DEFAULT partition: it would stop the planner from scanning the monthly
+-- partitions in order, so the first history page would have to probe every month
+SELECT create_transactions_partition((date_trunc('month', CURRENT_DATE) + make_interval(months => m))::date)
+FROM generate_series(0, 3) AS m;
+
+-- Indexes are defined on the parent and created on every partition, including future ones
+
+-- Index to optimize calculation of user balance
+CREATE INDEX idx_transactions_balance_calculation ON transactions(user_id, status, transaction_type, amount);
+
+-- Index matching the history ordering, used for keyset pagination on (timestamp, transaction_id)
+CREATE INDEX idx_transactions_user_history ON transactions(user_id, timestamp DESC, transaction_id DESC);
+
+-- Running balance per user, updated in the same transaction that completes a ledger entry
+CREATE TABLE account_balances (
+    user_id INTEGER PRIMARY KEY REFERENCES users(user_id),
+    balance BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Backfill snapshots for databases that already contain ledger history
+INSERT INTO account_balances (user_id, balance)
+SELECT user_id, SUM(CASE 
+    WHEN UPPER(transaction_type) IN ('DEPOSIT', 'TRANSFER_IN') THEN amount 
+    WHEN UPPER(transaction_type) IN ('WITHDRAWAL', 'TRANSFER_OUT') THEN -amount 
+    ELSE 0 
+END)
+FROM transactions
+WHERE status = 'COMPLETED'
+GROUP BY user_id
+ON CONFLICT (user_id) DO NOTHING;
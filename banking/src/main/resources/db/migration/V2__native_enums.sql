@@ -0,0 +1,13 @@
+-- Store transaction_type and status as native enums instead of VARCHAR(20).
+-- An enum value takes 4 bytes on disk and in every index that contains it, and comparisons against the
+-- labels no longer need UPPER(), so the balance queries can be answered from idx_transactions_balance_calculation.
+
+-- The baseline created this type with lowercase labels but never used it; the application writes the Java enum names
+DROP TYPE IF EXISTS transaction_type;
+CREATE TYPE transaction_type AS ENUM ('DEPOSIT', 'WITHDRAWAL', 'TRANSFER_IN', 'TRANSFER_OUT');
+CREATE TYPE transaction_status AS ENUM ('PENDING', 'COMPLETED', 'FAILED');
+
+-- Rewrites every partition and rebuilds the indexes on these columns, writes are blocked until it commits
+ALTER TABLE transactions
+    ALTER COLUMN transaction_type TYPE transaction_type USING UPPER(transaction_type)::transaction_type,
+    ALTER COLUMN status TYPE transaction_status USING UPPER(status)::transaction_status;
@@ -0,0 +1,8 @@
+-- History pages select every column of the row. With the remaining columns INCLUDEd the keyset queries
+-- in TransactionRepository are answered by an index-only scan instead of a heap fetch per row.
+CREATE INDEX idx_transactions_user_history_covering ON transactions(user_id, timestamp DESC, transaction_id DESC)
+    INCLUDE (amount, transaction_type, status);
+DROP INDEX idx_transactions_user_history;
+
+-- Settlement and its recovery only look up PENDING rows, a tiny and short-lived fraction of the ledger
+CREATE INDEX idx_transactions_pending ON transactions(transaction_id, timestamp) WHERE status = 'PENDING';
@@ -0,0 +1,14 @@
+-- Running balance of an account at a position of its event stream, the COMPLETED transactions ordered by
+-- (timestamp, transaction_id). A balance at any point in time is the latest snapshot at or before it plus the
+-- events after the snapshot, so rebuilding one reads at most ledger.snapshots.every events.
+CREATE TABLE ledger_snapshots (
+    user_id INTEGER NOT NULL REFERENCES users(user_id),
+    -- Position of the last event folded into the snapshot
+    last_timestamp TIMESTAMP NOT NULL,
+    last_transaction_id INTEGER NOT NULL,
+    balance BIGINT NOT NULL,
+    -- Events folded in since the account was opened
+    event_count BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, last_timestamp, last_transaction_id)
+);
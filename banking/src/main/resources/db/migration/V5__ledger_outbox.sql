@@ -0,0 +1,48 @@
+-- Transactional outbox of the ledger: a row per transaction reaching COMPLETED or FAILED, written by the
+-- statement that settles or rejects it and so committed (or rolled back) with it. OutboxRelayService moves
+-- the rows, oldest first, to the ledger event log and deletes them.
+CREATE TABLE ledger_outbox (
+    event_id BIGSERIAL PRIMARY KEY,
+    transaction_id INTEGER NOT NULL,
+    user_id INTEGER NOT NULL,
+    amount BIGINT NOT NULL,
+    transaction_type transaction_type NOT NULL,
+    status transaction_status NOT NULL,
+    timestamp TIMESTAMP NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Statement triggers with transition tables, so a settlement batch or bulk ingestion chunk adds its
+-- events with one INSERT instead of one per row. Triggers on the partitioned table cover every partition.
+CREATE FUNCTION ledger_outbox_inserted() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO ledger_outbox (transaction_id, user_id, amount, transaction_type, status, timestamp)
+    SELECT transaction_id, user_id, amount, transaction_type, status, timestamp
+    FROM inserted
+    WHERE status <> 'PENDING'
+    ORDER BY transaction_id;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION ledger_outbox_settled() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO ledger_outbox (transaction_id, user_id, amount, transaction_type, status, timestamp)
+    SELECT n.transaction_id, n.user_id, n.amount, n.transaction_type, n.status, n.timestamp
+    FROM updated n
+    JOIN previous o ON o.transaction_id = n.transaction_id
+    WHERE o.status = 'PENDING' AND n.status <> 'PENDING'
+    ORDER BY n.transaction_id;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER transactions_outbox_insert
+    AFTER INSERT ON transactions
+    REFERENCING NEW TABLE AS inserted
+    FOR EACH STATEMENT EXECUTE FUNCTION ledger_outbox_inserted();
+
+CREATE TRIGGER transactions_outbox_update
+    AFTER UPDATE ON transactions
+    REFERENCING OLD TABLE AS previous NEW TABLE AS updated
+    FOR EACH STATEMENT EXECUTE FUNCTION ledger_outbox_settled();
@@ -0,0 +1,15 @@
+-- Responses of requests sent with an Idempotency-Key header, per user. The row is claimed in the same
+-- database transaction as the request's ledger writes, so a concurrent duplicate blocks on the key until
+-- the first request commits (and then replays its response) or rolls back (and then runs itself).
+CREATE TABLE idempotency_keys (
+    user_id INTEGER NOT NULL REFERENCES users(user_id),
+    idempotency_key VARCHAR(255) NOT NULL,
+    -- Hash of the request the key was first used with, a different request with the same key is rejected
+    request_hash VARCHAR(64) NOT NULL,
+    status_code INTEGER,
+    response_body TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_id, idempotency_key)
+);
+
+CREATE INDEX idx_idempotency_keys_created_at ON idempotency_keys(created_at);
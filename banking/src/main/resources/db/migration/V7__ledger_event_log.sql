@@ -0,0 +1,15 @@
+-- Default ledger event log (JdbcLedgerEventLog): the events OutboxRelayService moved out of ledger_outbox,
+-- appended in the relay's transaction and kept for outbox.log.retention events. Offsets start at 0 and
+-- are assigned by the relay, which holds the relay lock, so they commit in order and any instance can
+-- tail the log by offset.
+CREATE TABLE ledger_event_log (
+    event_offset BIGINT PRIMARY KEY,
+    event_id BIGINT NOT NULL,
+    transaction_id INTEGER NOT NULL,
+    user_id INTEGER NOT NULL,
+    amount BIGINT NOT NULL,
+    transaction_type transaction_type NOT NULL,
+    status transaction_status NOT NULL,
+    timestamp TIMESTAMP NOT NULL,
+    published_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
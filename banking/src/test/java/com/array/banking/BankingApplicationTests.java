@@ -2,9 +2,16 @@ package com.array.banking;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 
 @SpringBootTest
-class BankingApplicationTests {
+class BankingApplicationTests extends EmbeddedPostgresTest {
+
+  @DynamicPropertySource
+  static void datasource(DynamicPropertyRegistry registry) {
+    registerDataSource(registry);
+  }
 
   @Test
   void contextLoads() {
@@ -0,0 +1,59 @@
+package com.array.banking;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+
+/**
+ * Base for tests that need a real Postgres, for the partitioned tables, triggers, row locks and plans that
+ * can't be mocked. Starts an embedded server per test class, migrated with the application's Flyway migrations,
+ * and stops it after the class. Subclasses set up in their own, differently named, @BeforeAll methods, which
+ * run after the server is up.
+ * Spring Boot tests declare their own @DynamicPropertySource calling {@link #registerDataSource}: the context
+ * cache is keyed by that method, so a shared one would hand the next class a context on a stopped server.
+ */
+public abstract class EmbeddedPostgresTest {
+
+    protected static EmbeddedPostgres postgres;
+    protected static DataSource dataSource;
+    protected static JdbcTemplate jdbcTemplate;
+    protected static TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    static void startDatabase() throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+        dataSource = postgres.getPostgresDatabase();
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        postgres.close();
+    }
+
+    /**
+     * Point the application's data source at the embedded server
+     */
+    protected static void registerDataSource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("spring.datasource.hikari.connection-test-query", () -> "SELECT 1");
+    }
+
+    /**
+     * Empty the tables, and any referencing them, and restart their ID sequences
+     */
+    protected static void truncate(String... tables) {
+        jdbcTemplate.update("TRUNCATE " + String.join(", ", tables) + " RESTART IDENTITY CASCADE");
+    }
+}
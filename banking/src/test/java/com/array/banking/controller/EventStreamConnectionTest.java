@@ -0,0 +1,66 @@
+package com.array.banking.controller;
+
+import com.array.banking.EmbeddedPostgresTest;
+import com.array.banking.security.BankingUserDetails;
+import com.array.banking.security.JwtTokenProvider;
+import com.array.banking.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Event streams stay open for as long as the dashboard does, so they must not keep a pooled connection
+ * while they wait for updates, or a handful of open dashboards starve every other request.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class EventStreamConnectionTest extends EmbeddedPostgresTest {
+
+    private static final int POOL_SIZE = 3;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    private String token;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registerDataSource(registry);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> POOL_SIZE);
+        registry.add("spring.datasource.hikari.minimum-idle", () -> POOL_SIZE);
+        registry.add("spring.datasource.hikari.connection-timeout", () -> 2000);
+    }
+
+    @BeforeEach
+    void setUp() {
+        truncate("transactions", "account_balances", "users");
+        userService.createUser("viewer", "password", "viewer@example.com");
+        token = jwtTokenProvider.createToken((BankingUserDetails) userService.loadUserByUsername("viewer"));
+    }
+
+    @Test
+    void openStreams_ShouldNotHoldPooledConnections() throws Exception {
+        for (int i = 0; i < POOL_SIZE * 2; i++) {
+            mockMvc.perform(get("/banking/v1/events").header("Authorization", "Bearer " + token))
+                .andExpect(request().asyncStarted());
+        }
+
+        mockMvc.perform(get("/banking/v1/balance").header("Authorization", "Bearer " + token))
+            .andExpect(status().isOk());
+    }
+}
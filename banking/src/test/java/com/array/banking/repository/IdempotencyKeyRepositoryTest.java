@@ -0,0 +1,93 @@
+package com.array.banking.repository;
+
+import com.array.banking.EmbeddedPostgresTest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Concurrent claims of a key wait on each other's row lock, so they need a real (embedded) Postgres
+public class IdempotencyKeyRepositoryTest extends EmbeddedPostgresTest {
+
+    private static final Duration TTL = Duration.ofHours(24);
+
+    private static IdempotencyKeyRepository idempotencyKeyRepository;
+
+    private int alice;
+
+    @BeforeAll
+    static void createRepositories() {
+        idempotencyKeyRepository = new IdempotencyKeyRepository(jdbcTemplate);
+    }
+
+    @BeforeEach
+    void cleanUp() {
+        truncate("users", "idempotency_keys");
+        alice = jdbcTemplate.queryForObject(
+            "INSERT INTO users (username, password_hash, email) VALUES ('alice', 'hash', 'alice@example.com') RETURNING user_id",
+            Integer.class);
+    }
+
+    @Test
+    void claim_ShouldSucceedOncePerUserAndKey() {
+        assertTrue(idempotencyKeyRepository.claim(alice, "key-1", "hash", TTL));
+        idempotencyKeyRepository.complete(alice, "key-1", 200, "{\"transactionId\":1}");
+
+        assertFalse(idempotencyKeyRepository.claim(alice, "key-1", "hash", TTL));
+        assertTrue(idempotencyKeyRepository.claim(alice, "key-2", "hash", TTL));
+        assertEquals(Optional.of(new StoredResponse("hash", 200, "{\"transactionId\":1}")),
+            idempotencyKeyRepository.find(alice, "key-1"));
+    }
+
+    @Test
+    void claim_ShouldWaitForConcurrentClaimToCommit() throws Exception {
+        CompletableFuture<Boolean> duplicate = transactionTemplate.execute(status -> {
+            assertTrue(idempotencyKeyRepository.claim(alice, "key-1", "hash", TTL));
+            CompletableFuture<Boolean> other = CompletableFuture.supplyAsync(() ->
+                transactionTemplate.execute(otherStatus -> idempotencyKeyRepository.claim(alice, "key-1", "hash", TTL)));
+            // Blocked on the uncommitted claim
+            assertThrows(TimeoutException.class, () -> other.get(300, TimeUnit.MILLISECONDS));
+            idempotencyKeyRepository.complete(alice, "key-1", 200, "{}");
+            return other;
+        });
+
+        assertFalse(duplicate.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void claim_ShouldSucceed_WhenConcurrentClaimRollsBack() throws Exception {
+        CompletableFuture<Boolean> duplicate = transactionTemplate.execute(status -> {
+            assertTrue(idempotencyKeyRepository.claim(alice, "key-1", "hash", TTL));
+            CompletableFuture<Boolean> other = CompletableFuture.supplyAsync(() ->
+                transactionTemplate.execute(otherStatus -> idempotencyKeyRepository.claim(alice, "key-1", "hash", TTL)));
+            assertThrows(TimeoutException.class, () -> other.get(300, TimeUnit.MILLISECONDS));
+            status.setRollbackOnly();
+            return other;
+        });
+
+        assertTrue(duplicate.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void expiredKeys_ShouldBeReclaimedAndPurged() {
+        idempotencyKeyRepository.claim(alice, "old", "hash", TTL);
+        idempotencyKeyRepository.complete(alice, "old", 200, "{}");
+        idempotencyKeyRepository.claim(alice, "recent", "hash", TTL);
+        jdbcTemplate.update("UPDATE idempotency_keys SET created_at = created_at - INTERVAL '25 hours' WHERE idempotency_key = 'old'");
+
+        assertEquals(1, idempotencyKeyRepository.deleteExpired(TTL));
+        jdbcTemplate.update("INSERT INTO idempotency_keys (user_id, idempotency_key, request_hash, created_at) "
+            + "VALUES (?, 'old', 'hash', CURRENT_TIMESTAMP - INTERVAL '25 hours')", alice);
+
+        assertTrue(idempotencyKeyRepository.claim(alice, "old", "other", TTL));
+        assertEquals("other", idempotencyKeyRepository.find(alice, "old").orElseThrow().requestHash());
+        assertEquals(0, idempotencyKeyRepository.find(alice, "old").orElseThrow().statusCode());
+    }
+}
@@ -0,0 +1,206 @@
+package com.array.banking.repository;
+
+import com.array.banking.EmbeddedPostgresTest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs the transfer statement against a real (embedded) Postgres, row locking can't be mocked
+public class LedgerJdbcRepositoryConcurrencyTest extends EmbeddedPostgresTest {
+
+    private static final int THREADS = 16;
+
+    private static LedgerJdbcRepository ledgerJdbcRepository;
+
+    @BeforeAll
+    static void createRepositories() {
+        ledgerJdbcRepository = new LedgerJdbcRepository(jdbcTemplate);
+    }
+
+    @BeforeEach
+    void cleanUp() {
+        truncate("transactions", "account_balances", "users");
+    }
+
+    @Test
+    void concurrentTransfers_ShouldNeverOverdrawSender() throws Exception {
+        int sender = createUser("sender", 50_000L);
+        int recipient = createUser("recipient", 0L);
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger declined = new AtomicInteger();
+
+        // 2000 transfers of $1.00 against a $500.00 balance
+        runConcurrently(2000, i -> {
+            if (ledgerJdbcRepository.transfer(sender, recipient, 100L, LocalDateTime.now()).isPresent()) {
+                accepted.incrementAndGet();
+            } else {
+                declined.incrementAndGet();
+            }
+        });
+
+        assertEquals(500, accepted.get());
+        assertEquals(1500, declined.get());
+        assertEquals(0L, balanceOf(sender));
+        assertEquals(500, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM transactions WHERE user_id = ? AND transaction_type = 'TRANSFER_OUT' AND status = 'COMPLETED'",
+            Integer.class, sender));
+    }
+
+    @Test
+    void concurrentWithdrawals_ShouldNeverOverdraw() throws Exception {
+        int user = createUser("user", 50_000L);
+        AtomicInteger accepted = new AtomicInteger();
+
+        // 2000 withdrawals of $1.00 against a $500.00 balance
+        runConcurrently(2000, i -> {
+            if (ledgerJdbcRepository.withdraw(user, 100L, LocalDateTime.now()).isPresent()) {
+                accepted.incrementAndGet();
+            }
+        });
+
+        assertEquals(500, accepted.get());
+        assertEquals(0L, balanceOf(user));
+        assertEquals(500, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM transactions WHERE user_id = ? AND transaction_type = 'WITHDRAWAL' AND status = 'COMPLETED'",
+            Integer.class, user));
+        assertEquals(Optional.empty(), ledgerJdbcRepository.withdraw(user, 1L, LocalDateTime.now()));
+    }
+
+    @Test
+    void opposingTransfers_ShouldNotDeadlock_AndConserveMoney() throws Exception {
+        int alice = createUser("alice", 10_000L);
+        int bob = createUser("bob", 10_000L);
+
+        // Opposite directions interleaved with settlement of the incoming legs
+        runConcurrently(2000, i -> {
+            if (i % 10 == 0) {
+                List<PendingTransaction> pending = ledgerJdbcRepository.findPendingTransactions();
+                if (!pending.isEmpty()) {
+                    ledgerJdbcRepository.completePendingTransactions(pending);
+                }
+            } else if (i % 2 == 0) {
+                ledgerJdbcRepository.transfer(alice, bob, 700L, LocalDateTime.now());
+            } else {
+                ledgerJdbcRepository.transfer(bob, alice, 700L, LocalDateTime.now());
+            }
+        });
+        ledgerJdbcRepository.completePendingTransactions(ledgerJdbcRepository.findPendingTransactions());
+
+        assertTrue(balanceOf(alice) >= 0);
+        assertTrue(balanceOf(bob) >= 0);
+        assertEquals(20_000L, balanceOf(alice) + balanceOf(bob));
+        assertEquals(0, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM transactions WHERE status = 'PENDING'", Integer.class));
+    }
+
+    @Test
+    void batchTransfer_ShouldWriteBothLegsOfEachPayment() {
+        int sender = createUser("sender", 1_000L);
+        int alice = createUser("alice", 0L);
+        int bob = createUser("bob", 0L);
+
+        BatchTransferLegs batch = ledgerJdbcRepository.batchTransfer(sender,
+            List.of(new Payment(alice, 300L), new Payment(bob, 200L), new Payment(alice, 100L)), LocalDateTime.now())
+            .orElseThrow();
+
+        assertEquals(400L, batch.senderBalanceInCents());
+        assertEquals(400L, balanceOf(sender));
+        assertEquals(3, batch.legs().size());
+        TransferLegs toBob = batch.legs().get(1);
+        assertEquals(List.of(sender, bob), jdbcTemplate.queryForList(
+            "SELECT user_id FROM transactions WHERE transaction_id IN (?, ?) AND amount = 200 ORDER BY transaction_id",
+            Integer.class, toBob.outgoingTransactionId(), toBob.incomingTransactionId()));
+        assertEquals(3, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM transactions WHERE transaction_type = 'TRANSFER_IN' AND status = 'PENDING'", Integer.class));
+
+        // The total no longer fits, nothing is written
+        assertTrue(ledgerJdbcRepository.batchTransfer(sender,
+            List.of(new Payment(alice, 300L), new Payment(bob, 200L)), LocalDateTime.now()).isEmpty());
+        assertEquals(400L, balanceOf(sender));
+        assertEquals(6, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transactions", Integer.class));
+    }
+
+    @Test
+    void batchTransfer_ShouldRefuseNonPositivePayments() {
+        int sender = createUser("sender", 1_000L);
+        int alice = createUser("alice", 5_000L);
+
+        assertThrows(IllegalArgumentException.class, () -> ledgerJdbcRepository.batchTransfer(sender,
+            List.of(new Payment(alice, 100L), new Payment(alice, -2_147_483_648L)), LocalDateTime.now()));
+        assertThrows(ArithmeticException.class, () -> ledgerJdbcRepository.batchTransfer(sender,
+            List.of(new Payment(alice, Long.MAX_VALUE), new Payment(alice, 1L)), LocalDateTime.now()));
+
+        assertEquals(1_000L, balanceOf(sender));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transactions", Integer.class));
+    }
+
+    @Test
+    void concurrentBatchTransfers_ShouldNeverOverdrawSender() throws Exception {
+        int sender = createUser("sender", 50_000L);
+        int alice = createUser("alice", 0L);
+        int bob = createUser("bob", 0L);
+        AtomicInteger accepted = new AtomicInteger();
+
+        // 200 batches of $3.00 against a $500.00 balance
+        runConcurrently(200, i -> {
+            if (ledgerJdbcRepository.batchTransfer(sender, List.of(new Payment(alice, 100L), new Payment(bob, 200L)),
+                LocalDateTime.now()).isPresent()) {
+                accepted.incrementAndGet();
+            }
+        });
+
+        assertEquals(166, accepted.get());
+        assertEquals(200L, balanceOf(sender));
+        assertEquals(166 * 2, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM transactions WHERE user_id = ? AND transaction_type = 'TRANSFER_OUT'", Integer.class, sender));
+    }
+
+    private int createUser(String username, long balance) {
+        Integer userId = jdbcTemplate.queryForObject(
+            "INSERT INTO users (username, password_hash, email) VALUES (?, 'hash', ?) RETURNING user_id",
+            Integer.class, username, username + "@example.com");
+        jdbcTemplate.update("INSERT INTO account_balances (user_id, balance) VALUES (?, ?)", userId, balance);
+        return userId;
+    }
+
+    private long balanceOf(int userId) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM account_balances WHERE user_id = ?", Long.class, userId);
+    }
+
+    private void runConcurrently(int operations, IndexedTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < operations; i++) {
+                int index = i;
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    task.run(index);
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                // Surfaces any SQL error, including a deadlock abort
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @FunctionalInterface
+    private interface IndexedTask {
+        void run(int index);
+    }
+}
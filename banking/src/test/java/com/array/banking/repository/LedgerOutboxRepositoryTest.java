@@ -0,0 +1,118 @@
+package com.array.banking.repository;
+
+import com.array.banking.EmbeddedPostgresTest;
+import com.array.banking.model.TransactionStatus;
+import com.array.banking.model.TransactionType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The outbox is filled by triggers on the partitioned transactions table, so it needs a real (embedded) Postgres
+public class LedgerOutboxRepositoryTest extends EmbeddedPostgresTest {
+
+    private static LedgerOutboxRepository outboxRepository;
+    private static LedgerJdbcRepository ledgerJdbcRepository;
+
+    @BeforeAll
+    static void createRepositories() {
+        outboxRepository = new LedgerOutboxRepository(jdbcTemplate);
+        ledgerJdbcRepository = new LedgerJdbcRepository(jdbcTemplate);
+    }
+
+    @BeforeEach
+    void cleanUp() {
+        truncate("transactions", "account_balances", "users", "ledger_outbox");
+    }
+
+    @Test
+    void settlement_ShouldWriteOneEventPerCompletedTransaction() {
+        int alice = createUser("alice");
+        LocalDateTime now = LocalDateTime.now();
+        insert(alice, now, "PENDING");
+        insert(alice, now, "PENDING");
+        assertTrue(outboxRepository.findOldest(10).isEmpty());
+
+        List<PendingTransaction> pending = ledgerJdbcRepository.findPendingTransactions();
+        ledgerJdbcRepository.completePendingTransactions(pending);
+        ledgerJdbcRepository.completePendingTransactions(pending);
+
+        List<LedgerEvent> events = outboxRepository.findOldest(10);
+        assertEquals(List.of(1, 2), events.stream().map(LedgerEvent::transactionId).toList());
+        LedgerEvent event = events.get(0);
+        assertEquals(alice, event.userId());
+        assertEquals(TransactionType.DEPOSIT, event.type());
+        assertEquals(TransactionStatus.COMPLETED, event.status());
+        assertEquals(100L, event.balanceDeltaInCents());
+    }
+
+    @Test
+    void ledgerWrites_ShouldPublishCompletedAndFailedTransactions() {
+        int alice = createUser("alice");
+        int bob = createUser("bob");
+        ledgerJdbcRepository.insertCompletedDeposits(List.of(new Deposit(alice, 500L), new Deposit(bob, 5L)), LocalDateTime.now());
+        ledgerJdbcRepository.transfer(alice, bob, 200L, LocalDateTime.now());
+        insert(bob, LocalDateTime.now(), "FAILED");
+
+        List<LedgerEvent> events = outboxRepository.findOldest(10);
+
+        // Both deposits, the outgoing leg of the transfer and the failed row; the incoming leg is still PENDING
+        assertEquals(List.of(500L, 5L, -200L, 0L), events.stream().map(LedgerEvent::balanceDeltaInCents).toList());
+        assertEquals(TransactionStatus.FAILED, events.get(3).status());
+    }
+
+    @Test
+    void rolledBackWrite_ShouldLeaveNoEvent() {
+        int alice = createUser("alice");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            insert(alice, LocalDateTime.now(), "COMPLETED");
+            status.setRollbackOnly();
+        });
+
+        assertTrue(outboxRepository.findOldest(10).isEmpty());
+    }
+
+    @Test
+    void delete_ShouldRemovePublishedEventsOnly() {
+        int alice = createUser("alice");
+        for (int i = 0; i < 3; i++) {
+            insert(alice, LocalDateTime.now(), "COMPLETED");
+        }
+
+        List<LedgerEvent> batch = outboxRepository.findOldest(2);
+        assertEquals(2, outboxRepository.delete(batch.stream().map(LedgerEvent::eventId).toList()));
+
+        assertEquals(List.of(3), outboxRepository.findOldest(10).stream().map(LedgerEvent::transactionId).toList());
+    }
+
+    @Test
+    void tryLockRelay_ShouldAdmitOneRelayAtATime() {
+        transactionTemplate.executeWithoutResult(status -> {
+            assertTrue(outboxRepository.tryLockRelay());
+            // Another session can't take the lock while this transaction holds it
+            assertFalse(CompletableFuture.supplyAsync(() ->
+                transactionTemplate.execute(other -> outboxRepository.tryLockRelay())).join());
+        });
+
+        assertEquals(Boolean.TRUE, transactionTemplate.execute(status -> outboxRepository.tryLockRelay()));
+    }
+
+    private int createUser(String username) {
+        return jdbcTemplate.queryForObject(
+            "INSERT INTO users (username, password_hash, email) VALUES (?, 'hash', ?) RETURNING user_id",
+            Integer.class, username, username + "@example.com");
+    }
+
+    private void insert(int userId, LocalDateTime timestamp, String status) {
+        jdbcTemplate.update(
+            "INSERT INTO transactions (user_id, amount, transaction_type, timestamp, status) VALUES (?, 100, 'DEPOSIT', ?, ?::transaction_status)",
+            userId, Timestamp.valueOf(timestamp), status);
+    }
+}
@@ -0,0 +1,140 @@
+package com.array.banking.repository;
+
+import com.array.banking.EmbeddedPostgresTest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Snapshot folding relies on window functions and row comparisons, so it runs against an embedded Postgres
+public class LedgerSnapshotRepositoryTest extends EmbeddedPostgresTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 0, 0);
+    private static final LocalDateTime NOW = LocalDateTime.of(2020, 6, 1, 0, 0);
+
+    private static LedgerSnapshotRepository snapshotRepository;
+
+    @BeforeAll
+    static void createRepositories() {
+        snapshotRepository = new LedgerSnapshotRepository(jdbcTemplate);
+        TransactionPartitionRepository partitionRepository = new TransactionPartitionRepository(jdbcTemplate);
+        for (int month = 1; month <= 5; month++) {
+            partitionRepository.createMonthlyPartition(YearMonth.of(2020, month));
+        }
+    }
+
+    @BeforeEach
+    void cleanUp() {
+        truncate("transactions", "account_balances", "users");
+    }
+
+    @Test
+    void writeSnapshots_ShouldSnapshotEveryNEventsOnce() {
+        int userId = createAccount("alice");
+        for (int i = 0; i < 25; i++) {
+            insert(userId, START.plusDays(i), i % 3 == 0 ? "WITHDRAWAL" : "DEPOSIT", 100 + i, "COMPLETED");
+        }
+
+        assertEquals(2, snapshotRepository.writeSnapshots(START, NOW, 10));
+        assertEquals(0, snapshotRepository.writeSnapshots(START, NOW, 10));
+
+        List<LedgerSnapshot> snapshots = snapshots(userId);
+        assertEquals(List.of(10L, 20L), snapshots.stream().map(LedgerSnapshot::eventCount).toList());
+        assertEquals(naiveBalance(userId, START.plusDays(9)), snapshots.get(0).balance());
+        assertEquals(naiveBalance(userId, START.plusDays(19)), snapshots.get(1).balance());
+
+        // The next snapshot continues from the latest one
+        for (int i = 25; i < 30; i++) {
+            insert(userId, START.plusDays(i), "DEPOSIT", 100, "COMPLETED");
+        }
+        assertEquals(1, snapshotRepository.writeSnapshots(START, NOW, 10));
+        LedgerSnapshot latest = snapshots(userId).get(2);
+        assertEquals(30L, latest.eventCount());
+        assertEquals(naiveBalance(userId, NOW), latest.balance());
+    }
+
+    @Test
+    void foldEvents_ShouldRebuildBalanceAtAnyPointFromSnapshot() {
+        int userId = createAccount("bob");
+        for (int i = 0; i < 40; i++) {
+            // Pairs of events share a timestamp and are ordered by transaction_id
+            insert(userId, START.plusHours(i / 2 * 7L), i % 4 == 0 ? "TRANSFER_OUT" : "TRANSFER_IN", 10 + i, "COMPLETED");
+        }
+        insert(userId, START.plusHours(30), "DEPOSIT", 1000, "FAILED");
+        snapshotRepository.writeSnapshots(START, NOW, 7);
+
+        for (int hours = -1; hours <= 7 * 21; hours++) {
+            LocalDateTime asOf = START.plusHours(hours);
+            Optional<LedgerSnapshot> snapshot = snapshotRepository.findLatestAtOrBefore(userId, asOf);
+            BalanceDelta delta = snapshotRepository.foldEvents(userId, snapshot, asOf);
+
+            assertEquals(naiveBalance(userId, asOf), snapshot.map(LedgerSnapshot::balance).orElse(0L) + delta.amountInCents(),
+                "as of " + asOf);
+            assertTrue(delta.events() < 7, "as of " + asOf);
+        }
+    }
+
+    @Test
+    void writeSnapshots_ShouldStopAtHorizonAndOldestPendingTransaction() {
+        int alice = createAccount("alice");
+        int bob = createAccount("bob");
+        for (int i = 0; i < 10; i++) {
+            insert(alice, START.plusDays(i), "DEPOSIT", 100, i == 3 ? "PENDING" : "COMPLETED");
+            insert(bob, START.plusDays(i), "DEPOSIT", 100, "COMPLETED");
+        }
+
+        // alice's pending transaction may still complete in front of her later events
+        assertEquals(3, snapshotRepository.writeSnapshots(START, START.plusDays(5), 2));
+        assertEquals(List.of(2L), snapshots(alice).stream().map(LedgerSnapshot::eventCount).toList());
+        assertEquals(List.of(2L, 4L), snapshots(bob).stream().map(LedgerSnapshot::eventCount).toList());
+    }
+
+    @Test
+    void writeSnapshots_ShouldSkipAccountsUnchangedSince() {
+        int userId = createAccount("carol");
+        for (int i = 0; i < 5; i++) {
+            insert(userId, START.plusDays(i), "DEPOSIT", 100, "COMPLETED");
+        }
+        jdbcTemplate.update("UPDATE account_balances SET updated_at = ?", Timestamp.valueOf(START));
+
+        assertEquals(0, snapshotRepository.writeSnapshots(START.plusDays(1), NOW, 1));
+        assertEquals(5, snapshotRepository.writeSnapshots(START, NOW, 1));
+    }
+
+    private List<LedgerSnapshot> snapshots(int userId) {
+        return jdbcTemplate.query(
+            "SELECT * FROM ledger_snapshots WHERE user_id = ? ORDER BY last_timestamp, last_transaction_id",
+            (rs, rowNum) -> new LedgerSnapshot(rs.getInt("user_id"), rs.getTimestamp("last_timestamp").toLocalDateTime(),
+                rs.getInt("last_transaction_id"), rs.getLong("balance"), rs.getLong("event_count")),
+            userId);
+    }
+
+    private long naiveBalance(int userId, LocalDateTime asOf) {
+        return jdbcTemplate.queryForObject("""
+            SELECT COALESCE(SUM(CASE WHEN transaction_type IN ('DEPOSIT', 'TRANSFER_IN') THEN amount ELSE -amount END), 0)
+            FROM transactions WHERE user_id = ? AND status = 'COMPLETED' AND timestamp <= ?
+            """, Long.class, userId, Timestamp.valueOf(asOf));
+    }
+
+    private int createAccount(String username) {
+        int userId = jdbcTemplate.queryForObject(
+            "INSERT INTO users (username, password_hash, email) VALUES (?, 'hash', ?) RETURNING user_id",
+            Integer.class, username, username + "@example.com");
+        jdbcTemplate.update("INSERT INTO account_balances (user_id, balance) VALUES (?, 0)", userId);
+        return userId;
+    }
+
+    private void insert(int userId, LocalDateTime timestamp, String type, long amount, String status) {
+        jdbcTemplate.update("""
+            INSERT INTO transactions (user_id, amount, transaction_type, timestamp, status)
+            VALUES (?, ?, ?::transaction_type, ?, ?::transaction_status)
+            """, userId, amount, type, Timestamp.valueOf(timestamp), status);
+    }
+}
@@ -0,0 +1,111 @@
+package com.array.banking.repository;
+
+import com.array.banking.EmbeddedPostgresTest;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs the Flyway migrations against a real (embedded) Postgres and checks the plans they are meant to enable
+public class SchemaMigrationTest extends EmbeddedPostgresTest {
+
+    private static JdbcTemplate sessionJdbc;
+
+    @BeforeAll
+    static void loadLedger() throws SQLException {
+        // One connection so session settings apply to the EXPLAINs
+        sessionJdbc = new JdbcTemplate(new SingleConnectionDataSource(dataSource.getConnection(), true));
+
+        sessionJdbc.update("INSERT INTO users (username, password_hash, email) VALUES ('alice', 'hash', 'alice@example.com')");
+        sessionJdbc.update("""
+            INSERT INTO transactions (user_id, amount, transaction_type, status)
+            SELECT 1, 100, (ARRAY['DEPOSIT', 'WITHDRAWAL', 'TRANSFER_IN', 'TRANSFER_OUT']::transaction_type[])[1 + g % 4],
+                   CASE WHEN g % 100 = 0 THEN 'PENDING'::transaction_status ELSE 'COMPLETED'::transaction_status END
+            FROM generate_series(1, 2000) AS g
+            """);
+        // Index-only scans need an up to date visibility map
+        sessionJdbc.execute("VACUUM ANALYZE transactions");
+        // The table is tiny, make the planner show the index it would use on a real ledger
+        sessionJdbc.execute("SET enable_seqscan = off");
+        sessionJdbc.execute("SET enable_bitmapscan = off");
+    }
+
+    @Test
+    void migrations_ShouldStoreTypeAndStatusAsNativeEnums() {
+        assertEquals("transaction_type", columnType("transaction_type"));
+        assertEquals("transaction_status", columnType("status"));
+    }
+
+    @Test
+    void balanceQuery_ShouldUseIndexOnlyScan() {
+        String plan = explain("""
+            SELECT COALESCE(SUM(CASE
+                WHEN transaction_type IN ('DEPOSIT', 'TRANSFER_IN') THEN amount
+                WHEN transaction_type IN ('WITHDRAWAL', 'TRANSFER_OUT') THEN -amount
+                ELSE 0
+            END), 0)
+            FROM transactions
+            WHERE user_id = 1 AND status = 'COMPLETED'
+            """);
+
+        assertTrue(plan.contains("Index Only Scan"), plan);
+        // Partition indexes are named after their columns
+        assertTrue(plan.contains("user_id_status_transaction_type_amount_idx"), plan);
+    }
+
+    @Test
+    void historyPage_ShouldUseCoveringIndex() {
+        String plan = explain("""
+            SELECT * FROM transactions
+            WHERE user_id = 1 AND (timestamp, transaction_id) < (now()::timestamp, 1000)
+            ORDER BY timestamp DESC, transaction_id DESC
+            LIMIT 21
+            """);
+
+        assertTrue(plan.contains("Index Only Scan"), plan);
+        assertTrue(plan.contains("user_id_timestamp_transaction_id_amoun"), plan);
+    }
+
+    @Test
+    void pendingLookup_ShouldUsePartialIndex() {
+        String plan = explain("SELECT transaction_id, timestamp FROM transactions WHERE status = 'PENDING' ORDER BY transaction_id");
+
+        assertTrue(plan.contains("Index Only Scan"), plan);
+        assertTrue(plan.contains("transaction_id_timestamp_idx"), plan);
+    }
+
+    @Test
+    void baseline_ShouldMigrateDatabaseCreatedFromOldSchema() throws IOException {
+        try (EmbeddedPostgres legacy = EmbeddedPostgres.builder().start()) {
+            // Stand-in for a database created by hand from the old schema.sql
+            Flyway.configure().dataSource(legacy.getPostgresDatabase()).target("1").load().migrate();
+            JdbcTemplate legacyJdbc = new JdbcTemplate(legacy.getPostgresDatabase());
+            legacyJdbc.execute("DROP TABLE flyway_schema_history");
+            legacyJdbc.update("INSERT INTO users (username, password_hash, email) VALUES ('bob', 'hash', 'bob@example.com')");
+            legacyJdbc.update("INSERT INTO transactions (user_id, amount, transaction_type, status) VALUES (1, 100, 'deposit', 'completed')");
+
+            Flyway.configure().dataSource(legacy.getPostgresDatabase())
+                .baselineOnMigrate(true).baselineVersion("1").load().migrate();
+
+            assertEquals("DEPOSIT", legacyJdbc.queryForObject("SELECT transaction_type::text FROM transactions", String.class));
+            assertEquals("COMPLETED", legacyJdbc.queryForObject("SELECT status::text FROM transactions", String.class));
+        }
+    }
+
+    private String columnType(String column) {
+        return sessionJdbc.queryForObject(
+            "SELECT udt_name FROM information_schema.columns WHERE table_name = 'transactions' AND column_name = ?",
+            String.class, column);
+    }
+
+    private String explain(String sql) {
+        return String.join("\n", sessionJdbc.queryForList("EXPLAIN " + sql, String.class));
+    }
+}
@@ -0,0 +1,127 @@
+package com.array.banking.repository;
+
+import com.array.banking.EmbeddedPostgresTest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Partition routing and pruning need a real (embedded) Postgres
+public class TransactionPartitionRepositoryTest extends EmbeddedPostgresTest {
+
+    private static TransactionPartitionRepository partitionRepository;
+    private static LedgerJdbcRepository ledgerJdbcRepository;
+
+    @BeforeAll
+    static void createRepositories() {
+        partitionRepository = new TransactionPartitionRepository(jdbcTemplate);
+        ledgerJdbcRepository = new LedgerJdbcRepository(jdbcTemplate);
+    }
+
+    @BeforeEach
+    void cleanUp() {
+        truncate("transactions", "account_balances", "users");
+    }
+
+    @Test
+    void schema_ShouldCreateCurrentAndUpcomingPartitions() {
+        YearMonth current = YearMonth.now();
+
+        assertFalse(partitionRepository.createMonthlyPartition(current));
+        assertFalse(partitionRepository.createMonthlyPartition(current.plusMonths(3)));
+    }
+
+    @Test
+    void createMonthlyPartition_ShouldRouteRowsOfThatMonth() {
+        int userId = createUser("alice");
+        LocalDateTime timestamp = LocalDateTime.of(2020, 2, 29, 23, 59, 59);
+        assertThrows(DataIntegrityViolationException.class, () -> insert(userId, timestamp, "COMPLETED"));
+
+        assertTrue(partitionRepository.createMonthlyPartition(YearMonth.of(2020, 2)));
+        assertFalse(partitionRepository.createMonthlyPartition(YearMonth.of(2020, 2)));
+        insert(userId, timestamp, "COMPLETED");
+
+        assertEquals("transactions_2020_02", jdbcTemplate.queryForObject(
+            "SELECT tableoid::regclass::text FROM transactions", String.class));
+    }
+
+    @Test
+    void historyRange_ShouldOnlyScanMatchingPartition() {
+        YearMonth current = YearMonth.now();
+        String plan = String.join("\n", jdbcTemplate.queryForList(
+            "EXPLAIN SELECT * FROM transactions WHERE user_id = 1 AND timestamp >= ? AND timestamp < ?",
+            String.class,
+            Timestamp.valueOf(current.atDay(1).atStartOfDay()),
+            Timestamp.valueOf(current.plusMonths(1).atDay(1).atStartOfDay())));
+
+        assertTrue(plan.contains("transactions_" + current.getYear() + "_" + String.format("%02d", current.getMonthValue())), plan);
+        assertFalse(plan.contains("transactions_" + current.plusMonths(1).getYear() + "_"
+            + String.format("%02d", current.plusMonths(1).getMonthValue())), plan);
+    }
+
+    @Test
+    void historyFirstPage_ShouldScanNewestPartitionsFirst() {
+        String plan = String.join("\n", jdbcTemplate.queryForList(
+            "EXPLAIN SELECT * FROM transactions WHERE user_id = 1 ORDER BY timestamp DESC, transaction_id DESC LIMIT 20",
+            String.class));
+
+        // An ordered Append can stop after the newest months, a Merge Append would probe every partition
+        assertFalse(plan.contains("Merge Append"), plan);
+    }
+
+    @Test
+    void completePendingTransactions_ShouldSettleBatchSpanningMonths() {
+        int userId = createUser("bob");
+        LocalDateTime thisMonth = LocalDateTime.now();
+        LocalDateTime nextMonth = thisMonth.plusMonths(1);
+        insert(userId, thisMonth, "PENDING");
+        insert(userId, nextMonth, "PENDING");
+
+        List<PendingTransaction> pending = ledgerJdbcRepository.findPendingTransactions();
+        assertEquals(2, pending.size());
+        assertEquals(List.of(userId), ledgerJdbcRepository.completePendingTransactions(pending));
+
+        assertEquals(200L, jdbcTemplate.queryForObject(
+            "SELECT balance FROM account_balances WHERE user_id = ?", Long.class, userId));
+        assertEquals(0, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM transactions WHERE status = 'PENDING'", Integer.class));
+    }
+
+    @Test
+    void insertCompletedDeposits_ShouldWriteRowsAndCreditBalancesOnce() {
+        int alice = createUser("alice");
+        int bob = createUser("bob");
+        insert(bob, LocalDateTime.now(), "PENDING");
+        ledgerJdbcRepository.completePendingTransactions(ledgerJdbcRepository.findPendingTransactions());
+
+        List<Integer> credited = ledgerJdbcRepository.insertCompletedDeposits(
+            List.of(new Deposit(bob, 50L), new Deposit(alice, 10L), new Deposit(bob, 5L)), LocalDateTime.now());
+
+        assertEquals(List.of(alice, bob), credited);
+        assertEquals(10L, jdbcTemplate.queryForObject(
+            "SELECT balance FROM account_balances WHERE user_id = ?", Long.class, alice));
+        assertEquals(155L, jdbcTemplate.queryForObject(
+            "SELECT balance FROM account_balances WHERE user_id = ?", Long.class, bob));
+        assertEquals(3, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM transactions WHERE transaction_type = 'DEPOSIT' AND status = 'COMPLETED' AND amount < 100", Integer.class));
+    }
+
+    private int createUser(String username) {
+        return jdbcTemplate.queryForObject(
+            "INSERT INTO users (username, password_hash, email) VALUES (?, 'hash', ?) RETURNING user_id",
+            Integer.class, username, username + "@example.com");
+    }
+
+    private void insert(int userId, LocalDateTime timestamp, String status) {
+        jdbcTemplate.update(
+            "INSERT INTO transactions (user_id, amount, transaction_type, timestamp, status) VALUES (?, 100, 'DEPOSIT', ?, ?::transaction_status)",
+            userId, Timestamp.valueOf(timestamp), status);
+    }
+}
@@ -0,0 +1,45 @@
+package com.array.banking.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClientAddressResolverTest {
+
+    private final ClientAddressResolver resolver = new ClientAddressResolver(List.of("127.0.0.1", "10.0.0.5"));
+
+    @Test
+    void resolve_ShouldIgnoreForwardedFor_FromUntrustedPeer() {
+        assertEquals("203.0.113.9", resolver.resolve(request("203.0.113.9", "1.2.3.4")));
+    }
+
+    @Test
+    void resolve_ShouldUseForwardedFor_FromTrustedProxy() {
+        assertEquals("198.51.100.7", resolver.resolve(request("127.0.0.1", "198.51.100.7")));
+    }
+
+    @Test
+    void resolve_ShouldTakeRightMostUntrustedHop() {
+        // The client prepended a fake address, the trusted proxies appended the real one
+        assertEquals("198.51.100.7", resolver.resolve(request("127.0.0.1", "1.2.3.4, 198.51.100.7,10.0.0.5")));
+    }
+
+    @Test
+    void resolve_ShouldFallBackToPeer_WhenHeaderMissingOrUnknown() {
+        assertEquals("127.0.0.1", resolver.resolve(request("127.0.0.1", null)));
+        assertEquals("127.0.0.1", resolver.resolve(request("127.0.0.1", "unknown")));
+        assertEquals("127.0.0.1", resolver.resolve(request("127.0.0.1", "10.0.0.5")));
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/banking/v1/balance");
+        request.setRemoteAddr(remoteAddr);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        return request;
+    }
+}
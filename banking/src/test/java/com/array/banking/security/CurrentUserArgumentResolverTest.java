@@ -0,0 +1,96 @@
+package com.array.banking.security;
+
+import com.array.banking.model.User;
+import com.array.banking.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CurrentUserArgumentResolverTest {
+
+    @Mock
+    private UserService userService;
+    
+    @InjectMocks
+    private CurrentUserArgumentResolver resolver;
+    
+    private User testUser;
+    private ServletWebRequest webRequest;
+    
+    @BeforeEach
+    void setUp() {
+        testUser = new User("testuser", "hashedpassword", "test@example.com");
+        testUser.setUserId(1);
+        webRequest = new ServletWebRequest(new MockHttpServletRequest());
+    }
+    
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+    
+    @Test
+    void resolveArgument_ShouldUsePrincipalEntity_WithoutLookup() {
+        BankingUserDetails principal = new BankingUserDetails(testUser, List.of(new SimpleGrantedAuthority("USER")));
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(principal, "", principal.getAuthorities()));
+        
+        Object result = resolver.resolveArgument(null, null, webRequest, null);
+        
+        assertSame(testUser, result);
+        verifyNoInteractions(userService);
+    }
+    
+    @Test
+    void resolveArgument_ShouldLookUpOncePerRequest_WhenPrincipalHasNoEntity() {
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken("testuser", "", List.of(new SimpleGrantedAuthority("USER"))));
+        when(userService.getUserByUsername("testuser")).thenReturn(Optional.of(testUser));
+        
+        Object first = resolver.resolveArgument(null, null, webRequest, null);
+        Object second = resolver.resolveArgument(null, null, webRequest, null);
+        
+        assertSame(testUser, first);
+        assertSame(testUser, second);
+        verify(userService, times(1)).getUserByUsername("testuser");
+    }
+    
+    @Test
+    void resolveArgument_ShouldResolveJwtPrincipalThroughUsernameLookup() {
+        JwtUserPrincipal principal = new JwtUserPrincipal(1, "testuser");
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(principal, "", List.of(new SimpleGrantedAuthority("USER"))));
+        when(userService.getUserByUsername("testuser")).thenReturn(Optional.of(testUser));
+        
+        Object result = resolver.resolveArgument(null, null, webRequest, null);
+        
+        assertSame(testUser, result);
+        verify(userService, never()).getUserById(any());
+    }
+    
+    @Test
+    void resolveArgument_ShouldRejectJwtPrincipal_WhenUsernameNowBelongsToAnotherUser() {
+        JwtUserPrincipal principal = new JwtUserPrincipal(2, "testuser");
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(principal, "", List.of(new SimpleGrantedAuthority("USER"))));
+        when(userService.getUserByUsername("testuser")).thenReturn(Optional.of(testUser));
+        
+        assertThrows(RuntimeException.class, () -> resolver.resolveArgument(null, null, webRequest, null));
+    }
+}
@@ -0,0 +1,140 @@
+package com.array.banking.security;
+
+import com.array.banking.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationContext;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class JwtTokenProviderTest {
+
+    private static final long VALIDITY = 3_600_000L;
+
+    @Mock
+    private ApplicationContext context;
+    
+    private TokenDenylist tokenDenylist;
+    
+    private MeterRegistry meterRegistry;
+    
+    private JwtTokenProvider jwtTokenProvider;
+    
+    private BankingUserDetails principal;
+    
+    @BeforeEach
+    void setUp() {
+        tokenDenylist = new TokenDenylist(VALIDITY);
+        meterRegistry = new SimpleMeterRegistry();
+        jwtTokenProvider = new JwtTokenProvider(context, tokenDenylist, meterRegistry);
+        ReflectionTestUtils.setField(jwtTokenProvider, "secretKey", "test_secret_key_that_is_long_enough_for_hmac");
+        ReflectionTestUtils.setField(jwtTokenProvider, "validityInMilliseconds", VALIDITY);
+        ReflectionTestUtils.setField(jwtTokenProvider, "stateless", true);
+        ReflectionTestUtils.setField(jwtTokenProvider, "verifiedCacheSize", 100L);
+        jwtTokenProvider.init();
+        
+        User user = new User("testuser", "hashedpassword", "test@example.com");
+        user.setUserId(42);
+        principal = new BankingUserDetails(user, List.of(new SimpleGrantedAuthority("USER")));
+    }
+    
+    @Test
+    void getAuthentication_ShouldBuildPrincipalFromClaims_WithoutUserLookup() {
+        String token = jwtTokenProvider.createToken(principal);
+        
+        assertTrue(jwtTokenProvider.validateToken(token));
+        Authentication authentication = jwtTokenProvider.getAuthentication(token);
+        
+        JwtUserPrincipal jwtPrincipal = assertInstanceOf(JwtUserPrincipal.class, authentication.getPrincipal());
+        assertEquals(42, jwtPrincipal.userId());
+        assertEquals("testuser", authentication.getName());
+        assertTrue(authentication.getAuthorities().contains(new SimpleGrantedAuthority("USER")));
+        verifyNoInteractions(context);
+    }
+    
+    @Test
+    void validateToken_ShouldRejectRevokedToken() {
+        String token = jwtTokenProvider.createToken(principal);
+        
+        jwtTokenProvider.revokeToken(token);
+        
+        assertFalse(jwtTokenProvider.validateToken(token));
+    }
+    
+    @Test
+    void validateToken_ShouldRejectTokensIssuedBeforeUserRevocation() {
+        String token = jwtTokenProvider.createToken(principal);
+        
+        tokenDenylist.revokeAllTokensForUser(42);
+        
+        assertFalse(jwtTokenProvider.validateToken(token));
+    }
+    
+    @Test
+    void validateToken_ShouldRejectTamperedToken() {
+        String token = jwtTokenProvider.createToken(principal);
+        
+        assertFalse(jwtTokenProvider.validateToken(token.substring(0, token.length() - 2) + "xx"));
+    }
+    
+    @Test
+    void authenticate_ShouldVerifySignatureOnce_ThenServeFromCache() {
+        String token = jwtTokenProvider.createToken(principal);
+        
+        assertNotNull(jwtTokenProvider.authenticate(token));
+        assertNotNull(jwtTokenProvider.authenticate(token));
+        assertNotNull(jwtTokenProvider.authenticate(token));
+        
+        assertEquals(1, meterRegistry.get("banking.jwt.verification").tag("result", "verified").timer().count());
+        assertEquals(2, meterRegistry.get("banking.jwt.verification").tag("result", "cached").timer().count());
+    }
+    
+    @Test
+    void authenticate_ShouldRejectRevokedToken_EvenWhenCached() {
+        String token = jwtTokenProvider.createToken(principal);
+        assertNotNull(jwtTokenProvider.authenticate(token));
+        
+        jwtTokenProvider.revokeToken(token);
+        
+        assertNull(jwtTokenProvider.authenticate(token));
+    }
+    
+    @Test
+    void authenticate_ShouldReturnNull_ForInvalidToken() {
+        assertNull(jwtTokenProvider.authenticate("not-a-jwt"));
+        
+        assertEquals(1, meterRegistry.get("banking.jwt.verification").tag("result", "rejected").timer().count());
+    }
+    
+    @Test
+    void authenticate_ShouldReturnNull_WhenLegacyTokenUserNoLongerExists() {
+        // Tokens issued before the uid claim are resolved through the user lookup
+        ReflectionTestUtils.setField(jwtTokenProvider, "stateless", false);
+        UserDetailsService userDetailsService = mock(UserDetailsService.class);
+        when(context.getBean(UserDetailsService.class)).thenReturn(userDetailsService);
+        when(userDetailsService.loadUserByUsername("testuser")).thenThrow(new UsernameNotFoundException("testuser"));
+        String token = jwtTokenProvider.createToken(principal);
+        
+        assertNull(jwtTokenProvider.authenticate(token));
+        assertEquals(1, meterRegistry.get("banking.jwt.verification").tag("result", "rejected").timer().count());
+    }
+    
+    @Test
+    void init_ShouldRegisterTimersForEveryResult() {
+        assertEquals(3, meterRegistry.find("banking.jwt.verification").timers().size());
+    }
+}
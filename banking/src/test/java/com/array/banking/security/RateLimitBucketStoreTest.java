@@ -0,0 +1,64 @@
+package com.array.banking.security;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.caffeine.CaffeineProxyManager;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimitBucketStoreTest {
+
+    private final RateLimitPolicy policy =
+        RateLimitPolicy.of("default", 5, 5, Duration.ofMinutes(1), 1, RateLimitKey.IP);
+
+    @Test
+    void localStore_ShouldReuseBucketForSameKey() {
+        LocalBucketStore store = new LocalBucketStore(100, Duration.ofMinutes(1));
+        
+        assertTrue(store.resolveBucket(policy, "10.0.0.1").tryConsume(5));
+        
+        assertFalse(store.resolveBucket(policy, "10.0.0.1").tryConsume(1));
+        assertTrue(store.resolveBucket(policy, "10.0.0.2").tryConsume(1));
+    }
+
+    @Test
+    void localStore_ShouldKeepSeparateBucketsPerPolicy() {
+        LocalBucketStore store = new LocalBucketStore(100, Duration.ofMinutes(1));
+        RateLimitPolicy other = RateLimitPolicy.of("transfer", 5, 5, Duration.ofMinutes(1), 1, RateLimitKey.USER);
+        
+        assertTrue(store.resolveBucket(policy, 42).tryConsume(5));
+        
+        assertTrue(store.resolveBucket(other, 42).tryConsume(5));
+        assertNotSame(store.resolveBucket(policy, 42), store.resolveBucket(policy, "42"));
+    }
+
+    @Test
+    void localStore_ShouldStayBounded_WhenClientsRotateAddresses() {
+        LocalBucketStore store = new LocalBucketStore(100, Duration.ofMinutes(1));
+        
+        for (int i = 0; i < 10_000; i++) {
+            store.resolveBucket(policy, "10.0." + (i / 256) + "." + (i % 256)).tryConsume(1);
+        }
+        
+        assertTrue(store.activeBuckets() <= 100, "held " + store.activeBuckets() + " buckets");
+    }
+
+    @Test
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    void proxyManagerStore_ShouldShareLimitAcrossNodes() {
+        // A Caffeine ProxyManager stands in for a shared backend such as Postgres or Redis
+        CaffeineProxyManager<String> sharedBackend = new CaffeineProxyManager<>(
+            (Caffeine) Caffeine.newBuilder().maximumSize(100), Duration.ofMinutes(1));
+        ProxyManagerBucketStore nodeA = new ProxyManagerBucketStore(sharedBackend);
+        ProxyManagerBucketStore nodeB = new ProxyManagerBucketStore(sharedBackend);
+        
+        assertTrue(nodeA.resolveBucket(policy, "10.0.0.1").tryConsume(3));
+        assertTrue(nodeB.resolveBucket(policy, "10.0.0.1").tryConsume(2));
+        
+        assertFalse(nodeA.resolveBucket(policy, "10.0.0.1").tryConsume(1));
+        assertFalse(nodeB.resolveBucket(policy, "10.0.0.1").tryConsume(1));
+        assertEquals(-1, nodeA.activeBuckets());
+    }
+}
@@ -0,0 +1,170 @@
+package com.array.banking.security;
+
+import com.array.banking.security.RateLimitPolicyResolver.RouteDefinition;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class RateLimitingFilterTest {
+
+    private final RateLimitPolicy defaultPolicy =
+        RateLimitPolicy.of("default", 100, 100, Duration.ofMinutes(1), 1, RateLimitKey.IP);
+    private final RateLimitPolicy transferPolicy =
+        RateLimitPolicy.of("transfer", 2, 2, Duration.ofMinutes(1), 1, RateLimitKey.USER);
+    private final RateLimitPolicy historyPolicy =
+        RateLimitPolicy.of("history", 10, 10, Duration.ofMinutes(1), 4, RateLimitKey.IP);
+
+    private RateLimitPolicyResolver resolver;
+    private RateLimitingFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        resolver = new RateLimitPolicyResolver(List.of(
+            new RouteDefinition(List.of("/banking/v1/transfer", "/ssr/transfer"), Set.of("POST"), transferPolicy),
+            new RouteDefinition(List.of("/banking/v1/transactions/**"), Set.of(), historyPolicy)),
+            defaultPolicy);
+        filter = new RateLimitingFilter(resolver, new LocalBucketStore(1000, Duration.ofMinutes(1)),
+            new ClientAddressResolver(List.of("127.0.0.1")), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void resolve_ShouldMatchLiteralPatternAndMethod() {
+        assertSame(transferPolicy, resolver.resolve(request("POST", "/banking/v1/transfer")));
+        assertSame(defaultPolicy, resolver.resolve(request("GET", "/banking/v1/transfer")));
+        assertSame(historyPolicy, resolver.resolve(request("GET", "/banking/v1/transactions")));
+        assertSame(historyPolicy, resolver.resolve(request("GET", "/banking/v1/transactions/feed")));
+        assertSame(defaultPolicy, resolver.resolve(request("GET", "/banking/v1/balance")));
+    }
+
+    @Test
+    void isStaticResource_ShouldMatchAssetsOnly() {
+        assertTrue(RateLimitingFilter.isStaticResource("/webjars/htmx.org/1.9.10/dist/htmx.min.js"));
+        assertTrue(RateLimitingFilter.isStaticResource("/css/styles.css"));
+        assertTrue(RateLimitingFilter.isStaticResource("/favicon.ico"));
+        assertFalse(RateLimitingFilter.isStaticResource("/banking/v1/transfer"));
+        assertFalse(RateLimitingFilter.isStaticResource("/ssr/transactions/feed"));
+    }
+    
+    @Test
+    void doFilter_ShouldSetRateLimitHeaders_WhenAllowed() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilterInternal(request("GET", "/banking/v1/transactions"), response, chain);
+
+        verify(chain).doFilter(any(), any());
+        assertEquals("10", response.getHeader(RateLimitingFilter.LIMIT_HEADER));
+        assertEquals("6", response.getHeader(RateLimitingFilter.REMAINING_HEADER));
+        assertEquals("10;w=60", response.getHeader(RateLimitingFilter.POLICY_HEADER));
+        assertNotNull(response.getHeader(RateLimitingFilter.RESET_HEADER));
+        assertNull(response.getHeader("Retry-After"));
+    }
+
+    @Test
+    void doFilter_ShouldRejectWithRetryAfter_WhenCostExceedsRemainingTokens() throws Exception {
+        FilterChain chain = mock(FilterChain.class);
+        filter.doFilterInternal(request("GET", "/banking/v1/transactions"), new MockHttpServletResponse(), chain);
+        filter.doFilterInternal(request("GET", "/banking/v1/transactions"), new MockHttpServletResponse(), chain);
+
+        // 2 tokens left, the request costs 4
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilterInternal(request("GET", "/banking/v1/transactions"), response, chain);
+
+        verify(chain, times(2)).doFilter(any(), any());
+        assertEquals(429, response.getStatus());
+        assertEquals("2", response.getHeader(RateLimitingFilter.REMAINING_HEADER));
+        assertTrue(response.getContentAsString().contains("\"status\":429"));
+        long retryAfter = Long.parseLong(response.getHeader("Retry-After"));
+        assertTrue(retryAfter > 0 && retryAfter <= 60);
+    }
+
+    @Test
+    void doFilter_ShouldLimitPerUser_ForUserKeyedPolicy() throws Exception {
+        FilterChain chain = mock(FilterChain.class);
+        
+        authenticateAs(1);
+        filterWithUserPolicies(request("POST", "/banking/v1/transfer"), new MockHttpServletResponse(), chain);
+        filterWithUserPolicies(request("POST", "/ssr/transfer"), new MockHttpServletResponse(), chain);
+        MockHttpServletResponse exhausted = new MockHttpServletResponse();
+        filterWithUserPolicies(request("POST", "/banking/v1/transfer"), exhausted, chain);
+        
+        // Same IP, different user
+        authenticateAs(2);
+        MockHttpServletResponse otherUser = new MockHttpServletResponse();
+        filterWithUserPolicies(request("POST", "/banking/v1/transfer"), otherUser, chain);
+
+        assertEquals(429, exhausted.getStatus());
+        assertEquals(200, otherUser.getStatus());
+        assertEquals("2", otherUser.getHeader(RateLimitingFilter.LIMIT_HEADER));
+        verify(chain, times(3)).doFilter(any(), any());
+    }
+
+    @Test
+    void doFilter_ShouldLimitByIpBeforeAuthentication_ForUserKeyedPolicy() throws Exception {
+        RateLimitPolicy tightDefault = RateLimitPolicy.of("default", 2, 2, Duration.ofMinutes(1), 1, RateLimitKey.IP);
+        RateLimitPolicy generousTransfer = RateLimitPolicy.of("transfer", 100, 100, Duration.ofMinutes(1), 1, RateLimitKey.USER);
+        filter = new RateLimitingFilter(new RateLimitPolicyResolver(List.of(
+            new RouteDefinition(List.of("/banking/v1/transfer"), Set.of("POST"), generousTransfer)), tightDefault),
+            new LocalBucketStore(1000, Duration.ofMinutes(1)), new ClientAddressResolver(List.of("127.0.0.1")),
+            new SimpleMeterRegistry());
+        FilterChain userPolicyStage = mock(FilterChain.class);
+
+        // Before authentication the IP pays the default policy, whatever users its requests claim to be
+        filter.doFilterInternal(request("POST", "/banking/v1/transfer"), new MockHttpServletResponse(), userPolicyStage);
+        filter.doFilterInternal(request("POST", "/banking/v1/transfer"), new MockHttpServletResponse(), userPolicyStage);
+        MockHttpServletResponse flooded = new MockHttpServletResponse();
+        filter.doFilterInternal(request("POST", "/banking/v1/transfer"), flooded, userPolicyStage);
+
+        assertEquals(429, flooded.getStatus());
+        verify(userPolicyStage, times(2)).doFilter(any(), any());
+    }
+
+    @Test
+    void userPolicyFilter_ShouldPassRequestsWithoutUserPolicy() throws Exception {
+        FilterChain chain = mock(FilterChain.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filterWithUserPolicies(request("GET", "/banking/v1/transactions"), response, chain);
+
+        verify(chain).doFilter(any(), any());
+        // Only the history policy was charged, by IP
+        assertEquals("6", response.getHeader(RateLimitingFilter.REMAINING_HEADER));
+    }
+
+    // Both stages, as in the security filter chain with the JWT filters between them
+    private void filterWithUserPolicies(MockHttpServletRequest request, MockHttpServletResponse response, FilterChain chain)
+            throws Exception {
+        filter.doFilter(request, response, (req, res) -> filter.userPolicyFilter().doFilter(req, res, chain));
+    }
+
+    private static MockHttpServletRequest request(String method, String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr("10.0.0.1");
+        return request;
+    }
+
+    private static void authenticateAs(int userId) {
+        JwtUserPrincipal principal = new JwtUserPrincipal(userId, "user" + userId);
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+    }
+}
@@ -0,0 +1,57 @@
+package com.array.banking.service;
+
+import com.array.banking.repository.AccountBalanceRepository;
+import com.array.banking.repository.BalanceDrift;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BalanceReconciliationServiceTest {
+
+    @Mock
+    private AccountBalanceRepository accountBalanceRepository;
+    
+    private MeterRegistry meterRegistry;
+    
+    private BalanceReconciliationService reconciliationService;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        reconciliationService = new BalanceReconciliationService(accountBalanceRepository, meterRegistry);
+    }
+    
+    @Test
+    void reconcile_ShouldReportDriftedAccounts() {
+        BalanceDrift drift = mock(BalanceDrift.class);
+        when(drift.getUserId()).thenReturn(1);
+        when(drift.getSnapshotBalance()).thenReturn(10000L);
+        when(drift.getLedgerBalance()).thenReturn(9000L);
+        when(accountBalanceRepository.findBalanceDrift()).thenReturn(List.of(drift));
+        
+        List<BalanceDrift> result = reconciliationService.reconcile();
+        
+        assertEquals(1, result.size());
+        assertEquals(1.0, meterRegistry.get("banking.balance.reconciliation.drifted_accounts").gauge().value());
+    }
+    
+    @Test
+    void reconcile_ShouldResetGauge_WhenNoDrift() {
+        when(accountBalanceRepository.findBalanceDrift()).thenReturn(List.of());
+        
+        List<BalanceDrift> result = reconciliationService.reconcile();
+        
+        assertTrue(result.isEmpty());
+        assertEquals(0.0, meterRegistry.get("banking.balance.reconciliation.drifted_accounts").gauge().value());
+    }
+}
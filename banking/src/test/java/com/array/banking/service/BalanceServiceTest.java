@@ -1,15 +1,18 @@
 package com.array.banking.service;
 
 import com.array.banking.model.User;
-import com.array.banking.repository.TransactionRepository;
+import com.array.banking.repository.AccountBalanceRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -18,66 +21,99 @@ import static org.mockito.Mockito.*;
 public class BalanceServiceTest {
 
     @Mock
-    private TransactionRepository transactionRepository;
+    private AccountBalanceRepository accountBalanceRepository;
+    
+    private Cache<Integer, Long> balanceCache;
     
-    @InjectMocks
     private BalanceService balanceService;
     
     private User testUser;
     
     @BeforeEach
     void setUp() {
+        balanceCache = Caffeine.newBuilder().build();
+        balanceService = new BalanceService(accountBalanceRepository, balanceCache, new SimpleMeterRegistry());
+        
         testUser = new User("testuser", "hashedpassword", "test@example.com");
         testUser.setUserId(1);
     }
     
     @Test
     void getCurrentBalanceInCents_ShouldReturnCorrectBalance() {
-        when(transactionRepository.calculateBalanceForUser(testUser.getUserId())).thenReturn(10000L);
+        when(accountBalanceRepository.findBalanceByUserId(testUser.getUserId())).thenReturn(Optional.of(10000L));
         
         Long balance = balanceService.getCurrentBalanceInCents(testUser);
         
         assertEquals(10000L, balance);
-        verify(transactionRepository).calculateBalanceForUser(testUser.getUserId());
+        verify(accountBalanceRepository).findBalanceByUserId(testUser.getUserId());
     }
     
     @Test
     void getCurrentBalanceInDollars_ShouldReturnCorrectBalance() {
-        when(transactionRepository.calculateBalanceForUser(testUser.getUserId())).thenReturn(10000L);
+        when(accountBalanceRepository.findBalanceByUserId(testUser.getUserId())).thenReturn(Optional.of(10000L));
         
         BigDecimal balance = balanceService.getCurrentBalanceInDollars(testUser);
         
         assertEquals(new BigDecimal("100.00"), balance);
-        verify(transactionRepository).calculateBalanceForUser(testUser.getUserId());
+        verify(accountBalanceRepository).findBalanceByUserId(testUser.getUserId());
     }
     
     @Test
     void hasSufficientBalance_ShouldReturnTrue_WhenBalanceIsGreaterThanAmount() {
-        when(transactionRepository.calculateBalanceForUser(testUser.getUserId())).thenReturn(10000L);
+        when(accountBalanceRepository.findBalanceByUserId(testUser.getUserId())).thenReturn(Optional.of(10000L));
         
         boolean result = balanceService.hasSufficientBalance(testUser, 5000L);
         
         assertTrue(result);
-        verify(transactionRepository).calculateBalanceForUser(testUser.getUserId());
+        verify(accountBalanceRepository).findBalanceByUserId(testUser.getUserId());
     }
     
     @Test
     void hasSufficientBalance_ShouldReturnTrue_WhenBalanceEqualsAmount() {
-        when(transactionRepository.calculateBalanceForUser(testUser.getUserId())).thenReturn(10000L);
+        when(accountBalanceRepository.findBalanceByUserId(testUser.getUserId())).thenReturn(Optional.of(10000L));
         
         boolean result = balanceService.hasSufficientBalance(testUser, 10000L);
         
         assertTrue(result);
-        verify(transactionRepository).calculateBalanceForUser(testUser.getUserId());
+        verify(accountBalanceRepository).findBalanceByUserId(testUser.getUserId());
     }
     
     @Test
     void hasSufficientBalance_ShouldReturnFalse_WhenBalanceIsLessThanAmount() {
-        when(transactionRepository.calculateBalanceForUser(testUser.getUserId())).thenReturn(5000L);
+        when(accountBalanceRepository.findBalanceByUserId(testUser.getUserId())).thenReturn(Optional.of(5000L));
         
         boolean result = balanceService.hasSufficientBalance(testUser, 10000L);
         
         assertFalse(result);
-        verify(transactionRepository).calculateBalanceForUser(testUser.getUserId());
+        verify(accountBalanceRepository).findBalanceByUserId(testUser.getUserId());
+    }
+    
+    @Test
+    void getCurrentBalanceInCents_ShouldReturnZero_WhenNoSnapshotExists() {
+        when(accountBalanceRepository.findBalanceByUserId(testUser.getUserId())).thenReturn(Optional.empty());
+        
+        Long balance = balanceService.getCurrentBalanceInCents(testUser);
+        
+        assertEquals(0L, balance);
+    }
+    
+    @Test
+    void getCurrentBalanceInCents_ShouldServeRepeatedReadsFromCache() {
+        when(accountBalanceRepository.findBalanceByUserId(testUser.getUserId())).thenReturn(Optional.of(10000L));
+        
+        balanceService.getCurrentBalanceInCents(testUser);
+        balanceService.getCurrentBalanceInDollars(testUser);
+        balanceService.hasSufficientBalance(testUser, 5000L);
+        
+        verify(accountBalanceRepository, times(1)).findBalanceByUserId(testUser.getUserId());
+    }
+    
+    @Test
+    void evictBalance_ShouldDropCachedBalance() {
+        balanceCache.put(testUser.getUserId(), 10000L);
+        
+        balanceService.evictBalance(testUser.getUserId());
+        
+        assertNull(balanceCache.getIfPresent(testUser.getUserId()));
     }
 }
@@ -1,33 +1,35 @@
 package com.array.banking.service;
 
-import com.array.banking.model.Transaction;
+import com.array.banking.EmbeddedPostgresTest;
+import com.array.banking.dto.PageResponse;
+import com.array.banking.dto.TransactionResponse;
 import com.array.banking.model.TransactionStatus;
 import com.array.banking.model.TransactionType;
 import com.array.banking.model.User;
-import com.array.banking.repository.TransactionRepository;
-import com.array.banking.repository.UserRepository;
 
-import org.junit.jupiter.api.AfterEach;
+import com.github.benmanes.caffeine.cache.Cache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.test.annotation.DirtiesContext;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-// This test class writes and flushes the real data to the database. It should only be ran in a test environment.
+// Runs the services against an embedded Postgres without a test transaction, so deposits and incoming
+// transfers are settled after their commit as they are in production
 @SpringBootTest
-@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
-public class BankingServiceIntegrationTest {
+public class BankingServiceIntegrationTest extends EmbeddedPostgresTest {
+
+  private static final Duration SETTLEMENT_TIMEOUT = Duration.ofSeconds(10);
 
   @Autowired
   private UserService userService;
@@ -39,41 +41,48 @@ public class BankingServiceIntegrationTest {
   private BalanceService balanceService;
 
   @Autowired
-  private UserRepository userRepository;
+  private SettlementService settlementService;
 
   @Autowired
-  private TransactionRepository transactionRepository;
+  private PasswordEncoder passwordEncoder;
 
   @Autowired
-  private PasswordEncoder passwordEncoder;
+  private Cache<String, Optional<CachedUser>> userCache;
+
+  @Autowired
+  private Cache<Integer, Long> balanceCache;
 
   private User sender;
   private User recipient;
 
+  @DynamicPropertySource
+  static void datasource(DynamicPropertyRegistry registry) {
+    registerDataSource(registry);
+  }
+
   @BeforeEach
   void setUp() {
+    // IDs restart with the tables, so cached users and balances of the previous test must go too
+    truncate("transactions", "account_balances", "users");
+    userCache.invalidateAll();
+    balanceCache.invalidateAll();
     sender = userService.createUser("sender", "password", "sender@example.com");
     recipient = userService.createUser("recipient", "password", "recipient@example.com");
   }
 
-  @AfterEach
-  void tearDown() {
-    userRepository.deleteAll();
-    transactionRepository.deleteAll();
-  }
-
   @Test
-  @Transactional
-  void testCompleteUserTransactionFlow() {
+  void testCompleteUserTransactionFlow() throws InterruptedException {
     // Initial deposit to sender
     Long senderBalance = transactionService.deposit(sender, new BigDecimal("500.00"));
 
     // Check balance was updated correctly
     assertEquals(50000L, senderBalance);
+    awaitSettlement();
     assertEquals(new BigDecimal("500.00"), balanceService.getCurrentBalanceInDollars(sender));
 
     // Transfer from sender to recipient
     transactionService.transfer(sender, recipient, new BigDecimal("200.00"));
+    awaitSettlement();
 
     // Verify balances after transfer
     assertEquals(new BigDecimal("300.00"), balanceService.getCurrentBalanceInDollars(sender));
@@ -90,9 +99,9 @@ public class BankingServiceIntegrationTest {
     assertEquals(new BigDecimal("200.00"), balanceService.getCurrentBalanceInDollars(sender));
 
     // Verify transaction history
-    Page<Transaction> senderTransactions = transactionService.getUserTransactionsPaginated(
+    PageResponse<TransactionResponse> senderTransactions = transactionService.getUserTransactionsPaginated(
         sender, PageRequest.of(0, 10));
-    Page<Transaction> recipientTransactions = transactionService.getUserTransactionsPaginated(
+    PageResponse<TransactionResponse> recipientTransactions = transactionService.getUserTransactionsPaginated(
         recipient, PageRequest.of(0, 10));
 
     // All sender transactions
@@ -105,16 +114,16 @@ public class BankingServiceIntegrationTest {
     boolean foundTransfer = false;
     boolean foundWithdrawal = false;
 
-    for (Transaction t : senderTransactions) {
-      if (t.getType() == TransactionType.DEPOSIT && t.getAmount() == 50000L) {
+    for (TransactionResponse t : senderTransactions.getContent()) {
+      if (t.getType() == TransactionType.DEPOSIT && t.getAmountInDollars().compareTo(new BigDecimal("500.00")) == 0) {
         foundDeposit = true;
         assertEquals(TransactionStatus.COMPLETED, t.getStatus());
       }
-      if (t.getType() == TransactionType.TRANSFER_OUT && t.getAmount() == 20000L) {
+      if (t.getType() == TransactionType.TRANSFER_OUT && t.getAmountInDollars().compareTo(new BigDecimal("200.00")) == 0) {
         foundTransfer = true;
         assertEquals(TransactionStatus.COMPLETED, t.getStatus());
       }
-      if (t.getType() == TransactionType.WITHDRAWAL && t.getAmount() == 10000L) {
+      if (t.getType() == TransactionType.WITHDRAWAL && t.getAmountInDollars().compareTo(new BigDecimal("100.00")) == 0) {
         foundWithdrawal = true;
         assertEquals(TransactionStatus.COMPLETED, t.getStatus());
       }
@@ -126,22 +135,22 @@ public class BankingServiceIntegrationTest {
   }
 
   @Test
-  @Transactional
-  void testInsufficientFundsTransactionFlow() {
+  void testInsufficientFundsTransactionFlow() throws InterruptedException {
     // Deposit small amount
     transactionService.deposit(sender, new BigDecimal("50.00"));
+    awaitSettlement();
 
     // Attempt transfer exceeding balance
     assertThrows(IllegalArgumentException.class,
         () -> transactionService.transfer(sender, recipient, new BigDecimal("100.00")));
 
     // Verify failed transfer in transactions
-    Page<Transaction> senderTransactions = transactionService.getUserTransactionsPaginated(
+    PageResponse<TransactionResponse> senderTransactions = transactionService.getUserTransactionsPaginated(
         sender, PageRequest.of(0, 10));
 
     boolean foundFailedTransfer = false;
-    for (Transaction t : senderTransactions) {
-      if (t.getType() == TransactionType.TRANSFER_OUT && t.getAmount() == 10000L) {
+    for (TransactionResponse t : senderTransactions.getContent()) {
+      if (t.getType() == TransactionType.TRANSFER_OUT && t.getAmountInDollars().compareTo(new BigDecimal("100.00")) == 0) {
         foundFailedTransfer = true;
         assertEquals(TransactionStatus.FAILED, t.getStatus());
       }
@@ -155,7 +164,6 @@ public class BankingServiceIntegrationTest {
   }
 
   @Test
-  @Transactional
   void testUserCreateAndAuthenticationFlow() {
     // Test user creation
     User newUser = userService.createUser("testuser", "password123", "test@example.com");
@@ -191,7 +199,6 @@ public class BankingServiceIntegrationTest {
   }
 
   @Test
-  @Transactional
   void testRandomUserSelection() {
     // Create a few users
     User user1 = userService.createUser("user1", "password", "user1@example.com");
@@ -225,4 +232,17 @@ public class BankingServiceIntegrationTest {
     assertTrue(foundUser1 && foundUser2 && foundUser3, "At least one random user should be found");
   }
 
-}
\ No newline at end of file
+  /**
+   * Flush the settlement queue and wait until no transaction is PENDING. The batch evicts the cached
+   * balances after its commit, so those are dropped here too rather than racing it.
+   */
+  private void awaitSettlement() throws InterruptedException {
+    settlementService.flush();
+    long deadline = System.nanoTime() + SETTLEMENT_TIMEOUT.toNanos();
+    while (jdbcTemplate.queryForObject("SELECT count(*) FROM transactions WHERE status = 'PENDING'", Long.class) > 0) {
+      assertTrue(System.nanoTime() < deadline, "Transactions still PENDING after " + SETTLEMENT_TIMEOUT);
+      Thread.sleep(10);
+    }
+    balanceCache.invalidateAll();
+  }
+}
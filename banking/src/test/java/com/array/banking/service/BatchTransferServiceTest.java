@@ -0,0 +1,157 @@
+package com.array.banking.service;
+
+import com.array.banking.dto.BatchTransferResponse;
+import com.array.banking.dto.BatchTransferResponse.ItemResult;
+import com.array.banking.dto.TransferRequest;
+import com.array.banking.model.TransactionStatus;
+import com.array.banking.model.User;
+import com.array.banking.repository.BatchTransferLegs;
+import com.array.banking.repository.LedgerJdbcRepository;
+import com.array.banking.repository.Payment;
+import com.array.banking.repository.TransferLegs;
+import com.array.banking.repository.UserIdentity;
+import com.array.banking.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BatchTransferServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private LedgerJdbcRepository ledgerJdbcRepository;
+
+    @Mock
+    private BalanceService balanceService;
+
+    @Mock
+    private SettlementService settlementService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MeterRegistry meterRegistry;
+    private BatchTransferService batchTransferService;
+    private User sender;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        batchTransferService = new BatchTransferService(userRepository, ledgerJdbcRepository, balanceService,
+            settlementService, new TransactionTemplate(transactionManager), meterRegistry, 3, new BigDecimal("1000000.00"));
+        sender = new User("payroll", "hash", "payroll@example.com");
+        sender.setUserId(1);
+    }
+
+    @Test
+    void transfer_ShouldWriteValidItemsInOneBatch_AndReportInvalidOnes() {
+        when(userRepository.findIdentitiesByUsernameIn(Set.of("alice", "carol")))
+            .thenReturn(List.of(identity("alice", 2)));
+        when(ledgerJdbcRepository.batchTransfer(eq(1), eq(List.of(new Payment(2, 1050L))), any()))
+            .thenReturn(Optional.of(new BatchTransferLegs(8950L, List.of(new TransferLegs(10, 11)))));
+
+        BatchTransferResponse response = batchTransferService.transfer(sender,
+            List.of(transfer("alice", "10.50"), transfer("carol", "5.00"), transfer("payroll", "1.00")));
+
+        assertEquals(1, response.getTransfersSucceeded());
+        assertEquals(2, response.getTransfersFailed());
+        assertEquals(new BigDecimal("10.50"), response.getTotalTransferred());
+        assertEquals(new BigDecimal("89.50"), response.getNewBalance());
+        List<ItemResult> results = response.getResults();
+        assertEquals(TransactionStatus.COMPLETED, results.get(0).getStatus());
+        assertEquals(10, results.get(0).getTransactionId());
+        assertEquals("Recipient not found", results.get(1).getMessage());
+        assertEquals("Cannot transfer funds to yourself", results.get(2).getMessage());
+        verify(balanceService).evictBalance(1);
+        verify(settlementService).submit(eq(11), any());
+        assertEquals(2.0, meterRegistry.get("banking.transfers.batch.items").tag("outcome", "failed").counter().count());
+    }
+
+    @Test
+    void transfer_ShouldFailEveryItem_WhenBalanceDoesNotCoverTotal() {
+        when(userRepository.findIdentitiesByUsernameIn(Set.of("alice", "bob")))
+            .thenReturn(List.of(identity("alice", 2), identity("bob", 3)));
+        when(ledgerJdbcRepository.batchTransfer(eq(1), any(), any())).thenReturn(Optional.empty());
+
+        BatchTransferResponse response = batchTransferService.transfer(sender,
+            List.of(transfer("alice", "60.00"), transfer("bob", "50.00")));
+
+        assertEquals(0, response.getTransfersSucceeded());
+        assertNull(response.getNewBalance());
+        assertTrue(response.getResults().stream().allMatch(result ->
+            result.getStatus() == TransactionStatus.FAILED
+                && result.getMessage().equals("Insufficient funds for the batch total of 110.00")));
+        verifyNoInteractions(balanceService, settlementService);
+    }
+
+    @Test
+    void transfer_ShouldSkipDatabase_WhenNoItemIsValid() {
+        BatchTransferResponse response = batchTransferService.transfer(sender,
+            List.of(transfer("alice", "0"), transfer("bob", "1.005"), transfer(" ", "1")));
+
+        assertEquals(3, response.getTransfersFailed());
+        assertEquals(List.of("Transfer amount must be greater than zero", "Amount can't have more than 2 decimal places",
+            "Recipient username is required"), response.getResults().stream().map(ItemResult::getMessage).toList());
+        verifyNoInteractions(userRepository, ledgerJdbcRepository);
+    }
+
+    @Test
+    void transfer_ShouldRejectAmountsThatWouldOverflowCents() {
+        // 21474836.48 is 2^31 cents, truncated to an int it used to wrap to a negative debit
+        BatchTransferResponse response = batchTransferService.transfer(sender,
+            List.of(transfer("alice", "21474836.48"), transfer("bob", "92233720368547758.07")));
+
+        assertEquals(2, response.getTransfersFailed());
+        assertTrue(response.getResults().stream().allMatch(result ->
+            result.getMessage().equals("Amount exceeds the maximum of 1000000.00")));
+        verifyNoInteractions(userRepository, ledgerJdbcRepository);
+    }
+
+    @Test
+    void transfer_ShouldRejectBatchesOverTheLimit() {
+        List<TransferRequest> transfers = List.of(transfer("a", "1"), transfer("b", "1"), transfer("c", "1"), transfer("d", "1"));
+
+        assertThrows(IllegalArgumentException.class, () -> batchTransferService.transfer(sender, transfers));
+        verifyNoInteractions(userRepository, ledgerJdbcRepository);
+    }
+
+    private static TransferRequest transfer(String recipientUsername, String amount) {
+        TransferRequest transfer = new TransferRequest();
+        transfer.setRecipientUsername(recipientUsername);
+        transfer.setAmount(new BigDecimal(amount));
+        return transfer;
+    }
+
+    private static UserIdentity identity(String username, int userId) {
+        return new UserIdentity() {
+            @Override
+            public Integer getUserId() {
+                return userId;
+            }
+
+            @Override
+            public String getUsername() {
+                return username;
+            }
+        };
+    }
+}
@@ -0,0 +1,174 @@
+package com.array.banking.service;
+
+import com.array.banking.dto.BulkIngestionResponse;
+import com.array.banking.repository.Deposit;
+import com.array.banking.repository.LedgerJdbcRepository;
+import com.array.banking.repository.UserIdentity;
+import com.array.banking.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BulkIngestionServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+    
+    @Mock
+    private LedgerJdbcRepository ledgerJdbcRepository;
+    
+    @Mock
+    private BalanceService balanceService;
+    
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    
+    private MeterRegistry meterRegistry;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+    
+    private BulkIngestionService bulkIngestionService(int chunkSize, int maxReportedErrors) {
+        return new BulkIngestionService(userRepository, ledgerJdbcRepository, balanceService,
+            new TransactionTemplate(transactionManager), new ObjectMapper(), meterRegistry,
+            chunkSize, maxReportedErrors, new BigDecimal("1000000.00"));
+    }
+    
+    @Test
+    void ingest_ShouldDepositValidCsvRows_AndReportInvalidOnes() throws IOException {
+        knownUsers("alice", 1, "bob", 2);
+        when(ledgerJdbcRepository.insertCompletedDeposits(any(), any())).thenReturn(List.of(1, 2));
+        
+        BulkIngestionResponse response = bulkIngestionService(100, 100).ingest(body("""
+            username,amount
+            alice,100.50
+            "bob", 20
+            carol,5.00
+            alice,-3
+            bob,1.005
+            alice
+            
+            bob,abc
+            """), RecordFormat.CSV);
+        
+        assertEquals(7, response.getRowsRead());
+        assertEquals(2, response.getRowsInserted());
+        assertEquals(5, response.getRowsFailed());
+        assertFalse(response.isErrorsTruncated());
+        assertEquals(List.of(4L, 5L, 6L, 7L, 9L),
+            response.getErrors().stream().map(BulkIngestionResponse.RowError::getLine).sorted().toList());
+        assertTrue(response.getErrors().stream().anyMatch(error -> error.getMessage().equals("Unknown user: carol")));
+        
+        verify(ledgerJdbcRepository).insertCompletedDeposits(eq(List.of(new Deposit(1, 10050L), new Deposit(2, 2000L))), any());
+        verify(balanceService).evictBalance(1);
+        verify(balanceService).evictBalance(2);
+        assertEquals(2.0, meterRegistry.get("banking.ingestion.rows").tag("outcome", "inserted").counter().count());
+        assertEquals(5.0, meterRegistry.get("banking.ingestion.rows").tag("outcome", "failed").counter().count());
+    }
+    
+    @Test
+    void ingest_ShouldParseNdjson() throws IOException {
+        knownUsers("alice", 1, "bob", 2);
+        when(ledgerJdbcRepository.insertCompletedDeposits(any(), any())).thenReturn(List.of(1, 2));
+        
+        BulkIngestionResponse response = bulkIngestionService(100, 100).ingest(body("""
+            {"username": "alice", "amount": 0.10}
+            {"username": "bob", "amount": "12"}
+            {"username": "alice", "amount":
+            """), RecordFormat.NDJSON);
+        
+        assertEquals(2, response.getRowsInserted());
+        assertEquals("Invalid JSON", response.getErrors().get(0).getMessage());
+        verify(ledgerJdbcRepository).insertCompletedDeposits(eq(List.of(new Deposit(1, 10L), new Deposit(2, 1200L))), any());
+    }
+    
+    @Test
+    void ingest_ShouldWriteInChunks_AndContinueAfterFailedChunk() throws IOException {
+        knownUsers("alice", 1, "bob", 2);
+        when(ledgerJdbcRepository.insertCompletedDeposits(any(), any()))
+            .thenThrow(new DataIntegrityViolationException("no partition of relation \"transactions\" found for row"))
+            .thenReturn(List.of(1, 2));
+        
+        BulkIngestionResponse response = bulkIngestionService(2, 100).ingest(body("""
+            alice,1
+            bob,2
+            alice,3
+            bob,4
+            """), RecordFormat.CSV);
+        
+        ArgumentCaptor<List<Deposit>> chunks = ArgumentCaptor.forClass(List.class);
+        verify(ledgerJdbcRepository, times(2)).insertCompletedDeposits(chunks.capture(), any());
+        assertEquals(List.of(new Deposit(1, 300L), new Deposit(2, 400L)), chunks.getAllValues().get(1));
+        assertEquals(2, response.getRowsInserted());
+        assertEquals(2, response.getRowsFailed());
+        assertTrue(response.getErrors().get(0).getMessage().startsWith("Chunk rolled back"));
+    }
+    
+    @Test
+    void ingest_ShouldCapReportedErrors() throws IOException {
+        BulkIngestionResponse response = bulkIngestionService(100, 2).ingest(body("""
+            x
+            y
+            z
+            """), RecordFormat.CSV);
+        
+        assertEquals(3, response.getRowsFailed());
+        assertEquals(2, response.getErrors().size());
+        assertTrue(response.isErrorsTruncated());
+        verifyNoInteractions(ledgerJdbcRepository);
+    }
+    
+    @Test
+    void format_ShouldFollowContentType() {
+        assertEquals(RecordFormat.NDJSON,
+            RecordFormat.of(MediaType.valueOf("application/x-ndjson;charset=UTF-8")));
+        assertEquals(RecordFormat.CSV, RecordFormat.of(MediaType.valueOf("text/csv")));
+    }
+    
+    private void knownUsers(String firstName, int firstId, String secondName, int secondId) {
+        when(userRepository.findIdentitiesByUsernameIn(anyCollection()))
+            .thenReturn(List.of(identity(firstName, firstId), identity(secondName, secondId)));
+    }
+    
+    private static UserIdentity identity(String username, int userId) {
+        return new UserIdentity() {
+            @Override
+            public Integer getUserId() {
+                return userId;
+            }
+            
+            @Override
+            public String getUsername() {
+                return username;
+            }
+        };
+    }
+    
+    private static ByteArrayInputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
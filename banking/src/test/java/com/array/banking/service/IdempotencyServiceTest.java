@@ -0,0 +1,115 @@
+package com.array.banking.service;
+
+import com.array.banking.dto.TransferResponse;
+import com.array.banking.repository.IdempotencyKeyRepository;
+import com.array.banking.repository.StoredResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class IdempotencyServiceTest {
+
+    private static final Duration TTL = Duration.ofHours(24);
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MeterRegistry meterRegistry;
+    private IdempotencyService idempotencyService;
+    private final AtomicInteger executions = new AtomicInteger();
+    private final SimpleTransactionStatus transactionStatus = new SimpleTransactionStatus();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(transactionStatus);
+        meterRegistry = new SimpleMeterRegistry();
+        idempotencyService = new IdempotencyService(idempotencyKeyRepository, new TransactionTemplate(transactionManager),
+            new ObjectMapper(), meterRegistry, TTL);
+    }
+
+    @Test
+    void execute_ShouldRunAndStoreSuccessfulResponse() {
+        when(idempotencyKeyRepository.claim(7, "key", "hash", TTL)).thenReturn(true);
+
+        ResponseEntity<?> response = idempotencyService.execute(7, "key", "hash", this::transfer);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, executions.get());
+        verify(idempotencyKeyRepository).complete(7, "key", 200,
+            "{\"message\":\"Transfer successful\",\"newBalance\":75.00,\"transactionId\":42}");
+        assertFalse(transactionStatus.isRollbackOnly());
+    }
+
+    @Test
+    void execute_ShouldReplayStoredResponse_WhenKeyWasUsed() {
+        when(idempotencyKeyRepository.claim(7, "key", "hash", TTL)).thenReturn(false);
+        when(idempotencyKeyRepository.find(7, "key"))
+            .thenReturn(Optional.of(new StoredResponse("hash", 200, "{\"transactionId\":42}")));
+
+        ResponseEntity<?> response = idempotencyService.execute(7, "key", "hash", this::transfer);
+
+        assertEquals(0, executions.get());
+        assertEquals("{\"transactionId\":42}", response.getBody());
+        assertEquals("true", response.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(1.0, meterRegistry.get("banking.idempotency.replays").counter().count());
+    }
+
+    @Test
+    void execute_ShouldRejectKeyReusedForDifferentRequest() {
+        when(idempotencyKeyRepository.claim(7, "key", "other", TTL)).thenReturn(false);
+        when(idempotencyKeyRepository.find(7, "key"))
+            .thenReturn(Optional.of(new StoredResponse("hash", 200, "{}")));
+
+        ResponseEntity<?> response = idempotencyService.execute(7, "key", "other", this::transfer);
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
+        assertEquals(0, executions.get());
+        assertEquals(0.0, meterRegistry.get("banking.idempotency.replays").counter().count());
+    }
+
+    @Test
+    void execute_ShouldRollBackClaim_WhenRequestFails() {
+        when(idempotencyKeyRepository.claim(7, "key", "hash", TTL)).thenReturn(true);
+
+        ResponseEntity<?> response = idempotencyService.execute(7, "key", "hash",
+            () -> ResponseEntity.badRequest().body("Insufficient funds for transfer"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(idempotencyKeyRepository, never()).complete(any(), any(), anyInt(), any());
+        // Nothing is stored, a retry with the key runs the transfer again
+        assertTrue(transactionStatus.isRollbackOnly());
+    }
+
+    @Test
+    void requestHash_ShouldSeparateFields() {
+        assertEquals(IdempotencyService.requestHash("bob", "10"), IdempotencyService.requestHash("bob", "10"));
+        assertNotEquals(IdempotencyService.requestHash("bob", "10"), IdempotencyService.requestHash("bob1", "0"));
+    }
+
+    private ResponseEntity<?> transfer() {
+        executions.incrementAndGet();
+        return ResponseEntity.ok(new TransferResponse("Transfer successful", new BigDecimal("75.00"), 42));
+    }
+}
@@ -0,0 +1,111 @@
+package com.array.banking.service;
+
+import com.array.banking.EmbeddedPostgresTest;
+import com.array.banking.dto.LedgerUpdateResponse;
+import com.array.banking.model.TransactionStatus;
+import com.array.banking.model.TransactionType;
+import com.array.banking.repository.LedgerEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class JdbcLedgerEventLogTest extends EmbeddedPostgresTest {
+
+    @BeforeEach
+    void cleanUp() {
+        truncate("ledger_event_log");
+    }
+
+    @Test
+    void log_ShouldKeepOffsetsAcrossRestartsAndInstances() {
+        JdbcLedgerEventLog relayingInstance = new JdbcLedgerEventLog(jdbcTemplate, 100);
+        relayingInstance.append(events(1, 3));
+        relayingInstance.append(events(4, 4));
+
+        // A restarted or second instance sees the same offsets
+        JdbcLedgerEventLog otherInstance = new JdbcLedgerEventLog(jdbcTemplate, 100);
+        assertEquals(4, otherInstance.endOffset());
+        List<LedgerEventLog.Entry> entries = otherInstance.read(2, 10);
+        assertEquals(List.of(2L, 3L), offsets(entries));
+        assertEquals(events(3, 4), entries.stream().map(LedgerEventLog.Entry::event).toList());
+        assertEquals(List.of(1L, 2L), eventIds(otherInstance.read(0, 2)));
+        assertTrue(otherInstance.read(4, 10).isEmpty());
+    }
+
+    @Test
+    void log_ShouldSkipTrimmedOffsets() {
+        JdbcLedgerEventLog log = new JdbcLedgerEventLog(jdbcTemplate, 3);
+        log.append(events(1, 4));
+        log.append(events(5, 5));
+
+        assertEquals(5, log.endOffset());
+        assertEquals(List.of(2L, 3L, 4L), offsets(log.read(0, 10)));
+        assertEquals(List.of(3L, 4L, 5L), eventIds(log.read(0, 10)));
+    }
+
+    @Test
+    void append_ShouldRollBackWithTheRelayTransaction() {
+        JdbcLedgerEventLog log = new JdbcLedgerEventLog(jdbcTemplate, 100);
+        log.append(events(1, 2));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            log.append(events(3, 4));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(2, log.endOffset());
+        log.append(events(3, 3));
+        assertEquals(List.of(1L, 2L, 3L), eventIds(log.read(0, 10)));
+    }
+
+    @Test
+    void fanoutOnEveryInstance_ShouldPushEventsRelayedByAnother() {
+        BalanceService balanceService = mock(BalanceService.class);
+        LedgerUpdateFanout first = new LedgerUpdateFanout(new JdbcLedgerEventLog(jdbcTemplate, 100), balanceService,
+            new SimpleMeterRegistry(), Duration.ofMinutes(30), 2);
+        LedgerUpdateFanout second = new LedgerUpdateFanout(new JdbcLedgerEventLog(jdbcTemplate, 100), balanceService,
+            new SimpleMeterRegistry(), Duration.ofMinutes(30), 2);
+        List<Integer> firstUpdates = new ArrayList<>();
+        List<Integer> secondUpdates = new ArrayList<>();
+        first.subscribe(7, update -> capture(firstUpdates, update));
+        second.subscribe(7, update -> capture(secondUpdates, update));
+
+        // Relayed by a third instance
+        new JdbcLedgerEventLog(jdbcTemplate, 100).append(events(1, 2));
+        first.dispatch();
+        second.dispatch();
+
+        assertEquals(List.of(1, 2), firstUpdates);
+        assertEquals(List.of(1, 2), secondUpdates);
+    }
+
+    private static List<SseEmitter.SseEventBuilder> capture(List<Integer> transactionIds, LedgerUpdateResponse update) {
+        transactionIds.add(update.getTransactionId());
+        return List.of(SseEmitter.event().data(update.getTransactionId()));
+    }
+
+    private static List<LedgerEvent> events(long firstId, long lastId) {
+        return LongStream.rangeClosed(firstId, lastId)
+            .mapToObj(id -> new LedgerEvent(id, (int) id, 7, 100L * id, TransactionType.DEPOSIT,
+                TransactionStatus.COMPLETED, LocalDateTime.of(2026, 1, 1, 0, 0).plusSeconds(id)))
+            .toList();
+    }
+
+    private static List<Long> eventIds(List<LedgerEventLog.Entry> entries) {
+        return entries.stream().map(entry -> entry.event().eventId()).toList();
+    }
+
+    private static List<Long> offsets(List<LedgerEventLog.Entry> entries) {
+        return entries.stream().map(LedgerEventLog.Entry::offset).toList();
+    }
+}
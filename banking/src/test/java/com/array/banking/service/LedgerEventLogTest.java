@@ -0,0 +1,103 @@
+package com.array.banking.service;
+
+import com.array.banking.model.TransactionStatus;
+import com.array.banking.model.TransactionType;
+import com.array.banking.repository.LedgerEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LedgerEventLogTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void inMemoryLog_ShouldTailFromOffset() {
+        InMemoryLedgerEventLog log = new InMemoryLedgerEventLog(100);
+        log.append(events(1, 5));
+
+        assertEquals(5, log.endOffset());
+        assertEquals(List.of(2L, 3L), eventIds(log.read(1, 2)));
+        assertEquals(List.of(1L, 2L), offsets(log.read(1, 2)));
+        assertTrue(log.read(5, 10).isEmpty());
+    }
+
+    @Test
+    void inMemoryLog_ShouldSkipTrimmedOffsets() {
+        InMemoryLedgerEventLog log = new InMemoryLedgerEventLog(3);
+        log.append(events(1, 4));
+        log.append(events(5, 5));
+
+        assertEquals(5, log.endOffset());
+        // Offsets 0 and 1 were overwritten, the consumer continues at the oldest retained event
+        assertEquals(List.of(2L, 3L, 4L), offsets(log.read(0, 10)));
+        assertEquals(List.of(3L, 4L, 5L), eventIds(log.read(0, 10)));
+    }
+
+    @Test
+    void fileLog_ShouldKeepOffsetsAcrossRestarts() throws IOException {
+        Path file = directory.resolve("events.ndjson");
+        try (FileLedgerEventLog log = new FileLedgerEventLog(file, objectMapper)) {
+            log.append(events(1, 3));
+            log.append(events(4, 4));
+        }
+
+        try (FileLedgerEventLog log = new FileLedgerEventLog(file, objectMapper)) {
+            assertEquals(4, log.endOffset());
+            List<LedgerEventLog.Entry> entries = log.read(2, 10);
+            assertEquals(List.of(2L, 3L), offsets(entries));
+            assertEquals(events(3, 4), entries.stream().map(LedgerEventLog.Entry::event).toList());
+
+            log.append(events(5, 5));
+            assertEquals(List.of(5L), eventIds(log.read(4, 10)));
+        }
+        assertEquals(5, Files.readAllLines(file).size());
+    }
+
+    @Test
+    void fileLog_ShouldDropIncompleteLastLine() throws IOException {
+        Path file = directory.resolve("events.ndjson");
+        try (FileLedgerEventLog log = new FileLedgerEventLog(file, objectMapper)) {
+            log.append(events(1, 2));
+        }
+        Files.write(file, "{\"eventId\":3,".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (FileLedgerEventLog log = new FileLedgerEventLog(file, objectMapper)) {
+            assertEquals(2, log.endOffset());
+            log.append(events(3, 3));
+            assertEquals(List.of(1L, 2L, 3L), eventIds(log.read(0, 10)));
+        }
+    }
+
+    private static List<LedgerEvent> events(long firstId, long lastId) {
+        return LongStream.rangeClosed(firstId, lastId)
+            .mapToObj(id -> new LedgerEvent(id, (int) id, 7, 100L * id, TransactionType.DEPOSIT,
+                TransactionStatus.COMPLETED, LocalDateTime.of(2026, 1, 1, 0, 0).plusSeconds(id)))
+            .toList();
+    }
+
+    private static List<Long> eventIds(List<LedgerEventLog.Entry> entries) {
+        return entries.stream().map(entry -> entry.event().eventId()).toList();
+    }
+
+    private static List<Long> offsets(List<LedgerEventLog.Entry> entries) {
+        return entries.stream().map(LedgerEventLog.Entry::offset).toList();
+    }
+}
@@ -0,0 +1,116 @@
+package com.array.banking.service;
+
+import com.array.banking.repository.BalanceDelta;
+import com.array.banking.repository.LedgerSnapshot;
+import com.array.banking.repository.LedgerSnapshotRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LedgerSnapshotServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+    @Mock
+    private LedgerSnapshotRepository snapshotRepository;
+
+    private MeterRegistry meterRegistry;
+    private MutableClock clock;
+    private LedgerSnapshotService ledgerSnapshotService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new MutableClock(NOW.toInstant(ZoneOffset.UTC));
+        ledgerSnapshotService = new LedgerSnapshotService(snapshotRepository, meterRegistry, 100, Duration.ofMinutes(1), clock);
+    }
+
+    @Test
+    void getBalanceAsOf_ShouldAddEventsAfterSnapshot() {
+        LocalDateTime asOf = NOW.minusDays(1);
+        Optional<LedgerSnapshot> snapshot = Optional.of(new LedgerSnapshot(1, asOf.minusHours(1), 42, 10000L, 300L));
+        when(snapshotRepository.findLatestAtOrBefore(1, asOf)).thenReturn(snapshot);
+        when(snapshotRepository.foldEvents(1, snapshot, asOf)).thenReturn(new BalanceDelta(-2500L, 3L));
+
+        assertEquals(7500L, ledgerSnapshotService.getBalanceAsOf(1, asOf));
+        assertEquals(3.0, meterRegistry.get("banking.balance.as_of.events").summary().totalAmount());
+    }
+
+    @Test
+    void getBalanceAsOf_ShouldFoldWholeHistoryWithoutSnapshot() {
+        when(snapshotRepository.findLatestAtOrBefore(1, NOW)).thenReturn(Optional.empty());
+        when(snapshotRepository.foldEvents(1, Optional.empty(), NOW)).thenReturn(new BalanceDelta(1234L, 5L));
+
+        assertEquals(1234L, ledgerSnapshotService.getBalanceAsOf(1, NOW));
+    }
+
+    @Test
+    void writeSnapshots_ShouldOnlyLookAtAccountsChangedSincePreviousRun() {
+        when(snapshotRepository.writeSnapshots(any(), any(), eq(100))).thenReturn(4, 1);
+
+        ledgerSnapshotService.writeSnapshots();
+        verify(snapshotRepository).writeSnapshots(LedgerSnapshotService.EPOCH, NOW.minusMinutes(1), 100);
+
+        clock.advance(Duration.ofMinutes(5));
+        ledgerSnapshotService.writeSnapshots();
+        verify(snapshotRepository).writeSnapshots(NOW.minusMinutes(1), NOW.plusMinutes(4), 100);
+
+        assertEquals(5.0, meterRegistry.get("banking.ledger.snapshots.written").counter().count());
+    }
+
+    @Test
+    void writeSnapshots_ShouldRetryFromSameRunAfterFailure() {
+        when(snapshotRepository.writeSnapshots(any(), any(), eq(100)))
+            .thenThrow(new IllegalStateException("connection refused"))
+            .thenReturn(0);
+
+        ledgerSnapshotService.writeSnapshots();
+        clock.advance(Duration.ofMinutes(5));
+        ledgerSnapshotService.writeSnapshots();
+
+        verify(snapshotRepository, times(2)).writeSnapshots(eq(LedgerSnapshotService.EPOCH), any(), eq(100));
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
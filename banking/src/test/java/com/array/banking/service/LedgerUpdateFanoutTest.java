@@ -0,0 +1,112 @@
+package com.array.banking.service;
+
+import com.array.banking.dto.LedgerUpdateResponse;
+import com.array.banking.model.TransactionStatus;
+import com.array.banking.model.TransactionType;
+import com.array.banking.repository.LedgerEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LedgerUpdateFanoutTest {
+
+    @Mock
+    private BalanceService balanceService;
+
+    private MeterRegistry meterRegistry;
+    private InMemoryLedgerEventLog eventLog;
+    private LedgerUpdateFanout fanout;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        eventLog = new InMemoryLedgerEventLog(100);
+        // Published before startup, never pushed
+        eventLog.append(List.of(event(1, 7, TransactionType.DEPOSIT, TransactionStatus.COMPLETED)));
+        fanout = new LedgerUpdateFanout(eventLog, balanceService, meterRegistry, Duration.ofMinutes(30), 2);
+    }
+
+    @Test
+    void dispatch_ShouldPushEachUsersUpdatesWithOneBalanceLookup() {
+        List<LedgerUpdateResponse> alice = new ArrayList<>();
+        List<LedgerUpdateResponse> bob = new ArrayList<>();
+        fanout.subscribe(7, capture(alice));
+        fanout.subscribe(8, capture(bob));
+        when(balanceService.getCurrentBalanceInCents(7)).thenReturn(12345L);
+        eventLog.append(List.of(
+            event(2, 7, TransactionType.DEPOSIT, TransactionStatus.COMPLETED),
+            event(3, 9, TransactionType.DEPOSIT, TransactionStatus.COMPLETED),
+            event(4, 7, TransactionType.WITHDRAWAL, TransactionStatus.FAILED)));
+
+        fanout.dispatch();
+        fanout.dispatch();
+
+        assertEquals(List.of(2, 4), alice.stream().map(LedgerUpdateResponse::getTransactionId).toList());
+        assertEquals(new BigDecimal("1.00"), alice.get(0).getBalanceDeltaInDollars());
+        assertEquals(new BigDecimal("0.00"), alice.get(1).getBalanceDeltaInDollars());
+        assertEquals(new BigDecimal("123.45"), alice.get(1).getBalanceInDollars());
+        assertTrue(bob.isEmpty());
+        verify(balanceService, times(1)).getCurrentBalanceInCents(7);
+        verifyNoMoreInteractions(balanceService);
+        assertEquals(2.0, meterRegistry.get("banking.events.updates.sent").counter().count());
+    }
+
+    @Test
+    void dispatch_ShouldSkipEventsWithoutSubscribers() {
+        eventLog.append(List.of(event(2, 7, TransactionType.DEPOSIT, TransactionStatus.COMPLETED)));
+        fanout.dispatch();
+
+        List<LedgerUpdateResponse> updates = new ArrayList<>();
+        fanout.subscribe(7, capture(updates));
+        fanout.dispatch();
+
+        assertTrue(updates.isEmpty());
+        verifyNoInteractions(balanceService);
+    }
+
+    @Test
+    void subscribe_ShouldCloseOldestStreamBeyondLimit() {
+        List<LedgerUpdateResponse> first = new ArrayList<>();
+        List<LedgerUpdateResponse> latest = new ArrayList<>();
+        fanout.subscribe(7, capture(first));
+        fanout.subscribe(7, capture(latest));
+        fanout.subscribe(7, capture(latest));
+
+        assertEquals(2, fanout.openStreams());
+        assertEquals(2.0, meterRegistry.get("banking.events.streams.open").gauge().value());
+
+        when(balanceService.getCurrentBalanceInCents(7)).thenReturn(0L);
+        eventLog.append(List.of(event(2, 7, TransactionType.DEPOSIT, TransactionStatus.COMPLETED)));
+        fanout.dispatch();
+
+        assertTrue(first.isEmpty());
+        assertEquals(2, latest.size());
+    }
+
+    private static Function<LedgerUpdateResponse, List<SseEmitter.SseEventBuilder>> capture(List<LedgerUpdateResponse> updates) {
+        return update -> {
+            updates.add(update);
+            return List.of(SseEmitter.event().name("transaction").data(update.getTransactionId()));
+        };
+    }
+
+    private static LedgerEvent event(long id, int userId, TransactionType type, TransactionStatus status) {
+        return new LedgerEvent(id, (int) id, userId, 100L, type, status, LocalDateTime.of(2026, 1, 1, 0, 0));
+    }
+}
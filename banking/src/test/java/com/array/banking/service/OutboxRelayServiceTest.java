@@ -0,0 +1,87 @@
+package com.array.banking.service;
+
+import com.array.banking.model.TransactionStatus;
+import com.array.banking.model.TransactionType;
+import com.array.banking.repository.LedgerEvent;
+import com.array.banking.repository.LedgerOutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OutboxRelayServiceTest {
+
+    @Mock
+    private LedgerOutboxRepository outboxRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MeterRegistry meterRegistry;
+    private InMemoryLedgerEventLog eventLog;
+    private OutboxRelayService outboxRelayService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        meterRegistry = new SimpleMeterRegistry();
+        eventLog = new InMemoryLedgerEventLog(100);
+        outboxRelayService = new OutboxRelayService(outboxRepository, eventLog, new TransactionTemplate(transactionManager),
+            meterRegistry, 2);
+    }
+
+    @Test
+    void relay_ShouldPublishBatchesUntilOutboxIsDrained() {
+        when(outboxRepository.tryLockRelay()).thenReturn(true);
+        when(outboxRepository.findOldest(2)).thenReturn(List.of(event(1), event(2)), List.of(event(3)));
+
+        outboxRelayService.relay();
+
+        assertEquals(List.of(1L, 2L, 3L), eventLog.read(0, 10).stream().map(entry -> entry.event().eventId()).toList());
+        verify(outboxRepository).delete(List.of(1L, 2L));
+        verify(outboxRepository).delete(List.of(3L));
+        verify(transactionManager, times(2)).commit(any());
+        assertEquals(3.0, meterRegistry.get("banking.outbox.events.published").counter().count());
+    }
+
+    @Test
+    void relay_ShouldSkipRun_WhenAnotherInstanceRelays() {
+        when(outboxRepository.tryLockRelay()).thenReturn(false);
+
+        outboxRelayService.relay();
+
+        verify(outboxRepository, never()).findOldest(anyInt());
+        assertEquals(0, eventLog.endOffset());
+    }
+
+    @Test
+    void relay_ShouldKeepEvents_WhenDeleteFails() {
+        when(outboxRepository.tryLockRelay()).thenReturn(true);
+        when(outboxRepository.findOldest(2)).thenReturn(List.of(event(1)));
+        when(outboxRepository.delete(List.of(1L))).thenThrow(new IllegalStateException("connection reset"));
+
+        outboxRelayService.relay();
+
+        // Rolled back, so the event is published again by the next run
+        verify(transactionManager).rollback(any());
+        assertEquals(0.0, meterRegistry.get("banking.outbox.events.published").counter().count());
+    }
+
+    private static LedgerEvent event(long id) {
+        return new LedgerEvent(id, (int) id, 1, 100L, TransactionType.DEPOSIT, TransactionStatus.COMPLETED,
+            LocalDateTime.of(2026, 1, 1, 0, 0));
+    }
+}
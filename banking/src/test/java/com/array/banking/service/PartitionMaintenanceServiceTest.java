@@ -0,0 +1,63 @@
+package com.array.banking.service;
+
+import com.array.banking.repository.TransactionPartitionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PartitionMaintenanceServiceTest {
+
+    @Mock
+    private TransactionPartitionRepository partitionRepository;
+    
+    private MeterRegistry meterRegistry;
+    
+    private PartitionMaintenanceService partitionMaintenanceService;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        Clock clock = Clock.fixed(Instant.parse("2026-11-15T10:00:00Z"), ZoneOffset.UTC);
+        partitionMaintenanceService = new PartitionMaintenanceService(partitionRepository, meterRegistry, 2, clock);
+    }
+    
+    @Test
+    void ensurePartitions_ShouldCreateCurrentAndUpcomingMonths() {
+        partitionMaintenanceService.ensurePartitions();
+        
+        verify(partitionRepository).createMonthlyPartition(YearMonth.of(2026, 11));
+        verify(partitionRepository).createMonthlyPartition(YearMonth.of(2026, 12));
+        verify(partitionRepository).createMonthlyPartition(YearMonth.of(2027, 1));
+        verify(partitionRepository, times(3)).createMonthlyPartition(any());
+        assertEquals(2.0, meterRegistry.get("banking.ledger.partitions.months_ahead").gauge().value());
+    }
+    
+    @Test
+    void ensurePartitions_ShouldContinue_WhenOneMonthFails() {
+        when(partitionRepository.createMonthlyPartition(any())).thenAnswer(invocation -> {
+            if (YearMonth.of(2026, 12).equals(invocation.getArgument(0))) {
+                throw new RuntimeException("connection refused");
+            }
+            return false;
+        });
+        
+        partitionMaintenanceService.ensurePartitions();
+        
+        verify(partitionRepository).createMonthlyPartition(YearMonth.of(2027, 1));
+        // Only the current month is covered without a gap
+        assertEquals(0.0, meterRegistry.get("banking.ledger.partitions.months_ahead").gauge().value());
+    }
+}
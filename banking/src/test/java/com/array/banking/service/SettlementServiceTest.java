@@ -0,0 +1,142 @@
+package com.array.banking.service;
+
+import com.array.banking.repository.LedgerJdbcRepository;
+import com.array.banking.repository.PendingTransaction;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SettlementServiceTest {
+
+    @Mock
+    private LedgerJdbcRepository ledgerJdbcRepository;
+    
+    @Mock
+    private BalanceService balanceService;
+    
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    
+    private MeterRegistry meterRegistry;
+    
+    private final LocalDateTime timestamp = LocalDateTime.of(2026, 10, 18, 12, 0);
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+    
+    private SettlementService settlementService(int batchSize, int queueCapacity) {
+        return new SettlementService(ledgerJdbcRepository, balanceService, new TransactionTemplate(transactionManager),
+            Runnable::run, meterRegistry, batchSize, queueCapacity, Duration.ofMinutes(1));
+    }
+    
+    @Test
+    void flush_ShouldSettleQueuedTransactionsInBatches() {
+        SettlementService settlementService = settlementService(2, 100);
+        when(ledgerJdbcRepository.completePendingTransactions(any())).thenReturn(List.of(1));
+        
+        settlementService.submit(10, timestamp);
+        settlementService.submit(11, timestamp);
+        settlementService.submit(12, timestamp);
+        assertEquals(3.0, meterRegistry.get("banking.settlement.queue.depth").gauge().value());
+        
+        settlementService.flush();
+        
+        verify(ledgerJdbcRepository).completePendingTransactions(List.of(pending(10), pending(11)));
+        verify(ledgerJdbcRepository).completePendingTransactions(List.of(pending(12)));
+        verify(balanceService, times(2)).evictBalance(1);
+        assertEquals(0, settlementService.getQueueDepth());
+        assertEquals(2, meterRegistry.get("banking.settlement.batch").timer().count());
+    }
+    
+    @Test
+    void submit_ShouldSettleOnCallerThread_WhenQueueIsFull() {
+        SettlementService settlementService = settlementService(1, 1);
+        when(ledgerJdbcRepository.completePendingTransactions(any())).thenReturn(List.of());
+        
+        settlementService.submit(10, timestamp);
+        settlementService.submit(11, timestamp);
+        
+        verify(ledgerJdbcRepository).completePendingTransactions(List.of(pending(10)));
+        assertEquals(1, settlementService.getQueueDepth());
+    }
+    
+    @Test
+    void flush_ShouldContinue_WhenBatchFails() {
+        SettlementService settlementService = settlementService(1, 100);
+        when(ledgerJdbcRepository.completePendingTransactions(List.of(pending(10)))).thenThrow(new RuntimeException("boom"));
+        when(ledgerJdbcRepository.completePendingTransactions(List.of(pending(11)))).thenReturn(List.of(2));
+        
+        settlementService.submit(10, timestamp);
+        settlementService.submit(11, timestamp);
+        settlementService.flush();
+        
+        verify(balanceService).evictBalance(2);
+        assertEquals(0, settlementService.getQueueDepth());
+    }
+    
+    @Test
+    void recoverPendingTransactions_ShouldRequeuePendingRows() {
+        SettlementService settlementService = settlementService(10, 100);
+        when(ledgerJdbcRepository.findPendingTransactions()).thenReturn(List.of(pending(5), pending(6)));
+        
+        settlementService.recoverPendingTransactions();
+        
+        assertEquals(2, settlementService.getQueueDepth());
+    }
+    
+    @Test
+    void sweep_ShouldSettleBatchThatFailedBefore() {
+        SettlementService settlementService = settlementService(10, 100);
+        when(ledgerJdbcRepository.completePendingTransactions(List.of(pending(10))))
+            .thenThrow(new RuntimeException("connection reset"))
+            .thenReturn(List.of(2));
+        when(ledgerJdbcRepository.findPendingTransactionsBefore(any())).thenReturn(List.of(pending(10)));
+        
+        settlementService.submit(10, timestamp);
+        settlementService.flush();
+        verify(balanceService, never()).evictBalance(any());
+        
+        settlementService.sweepPendingTransactions();
+        assertEquals(1, settlementService.getQueueDepth());
+        settlementService.flush();
+        
+        verify(ledgerJdbcRepository, times(2)).completePendingTransactions(List.of(pending(10)));
+        verify(balanceService).evictBalance(2);
+    }
+    
+    @Test
+    void sweep_ShouldOnlyRequeueRowsOlderThanMinAge() {
+        SettlementService settlementService = settlementService(10, 100);
+        when(ledgerJdbcRepository.findPendingTransactionsBefore(any())).thenReturn(List.of());
+        LocalDateTime before = LocalDateTime.now();
+        
+        settlementService.sweepPendingTransactions();
+        
+        ArgumentCaptor<LocalDateTime> cutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(ledgerJdbcRepository).findPendingTransactionsBefore(cutoff.capture());
+        assertFalse(cutoff.getValue().isAfter(before.minusMinutes(1).plusSeconds(5)));
+        assertEquals(0, settlementService.getQueueDepth());
+    }
+    
+    private PendingTransaction pending(int transactionId) {
+        return new PendingTransaction(transactionId, timestamp);
+    }
+}
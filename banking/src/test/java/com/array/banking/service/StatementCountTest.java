@@ -0,0 +1,191 @@
+package com.array.banking.service;
+
+import com.array.banking.EmbeddedPostgresTest;
+import com.array.banking.controller.BankingController;
+import com.array.banking.dto.CursorPage;
+import com.array.banking.dto.PageResponse;
+import com.array.banking.dto.TransactionResponse;
+import com.array.banking.dto.TransferRequest;
+import com.array.banking.model.User;
+import com.array.banking.repository.Deposit;
+import com.array.banking.repository.LedgerJdbcRepository;
+import com.array.banking.repository.UserRepository;
+import com.array.banking.security.CurrentUserArgumentResolver;
+import com.array.banking.security.JwtUserPrincipal;
+import com.github.benmanes.caffeine.cache.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Counts the statements Hibernate prepares for the hot paths, so a mapping change that brings back
+ * eager loading or cascading (and with it N+1 queries) fails the build. Statements sent through
+ * JdbcTemplate, like the transfer itself, aren't counted.
+ */
+@SpringBootTest
+public class StatementCountTest extends EmbeddedPostgresTest {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionExportService transactionExportService;
+
+    @Autowired
+    private BankingController bankingController;
+
+    @Autowired
+    private BalanceService balanceService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LedgerJdbcRepository ledgerJdbcRepository;
+
+    @Autowired
+    private CurrentUserArgumentResolver currentUserArgumentResolver;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private Cache<String, Optional<CachedUser>> userCache;
+
+    private Statistics statistics;
+    private User sender;
+    private User recipient;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registerDataSource(registry);
+    }
+
+    @BeforeEach
+    void setUp() {
+        truncate("transactions", "account_balances", "users");
+        sender = userRepository.save(new User("sender", "hash", "sender@example.com"));
+        recipient = userRepository.save(new User("recipient", "hash", "recipient@example.com"));
+
+        List<Deposit> deposits = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            deposits.add(new Deposit(sender.getUserId(), 1000L));
+        }
+        ledgerJdbcRepository.insertCompletedDeposits(deposits, LocalDateTime.now());
+        balanceService.evictBalance(sender.getUserId());
+        userCache.invalidateAll();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void historyPage_ShouldRunPageAndCountQueriesOnly() {
+        PageResponse<TransactionResponse> page = transactionService.getUserTransactionsPaginated(sender, PageRequest.of(0, 20));
+
+        assertEquals(20, page.getContent().size());
+        assertEquals(30, page.getTotalElements());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void historyFeed_ShouldRunOneQueryPerSlice() {
+        CursorPage<TransactionResponse> first = transactionService.getUserTransactionsAfter(sender, null, 20);
+        CursorPage<TransactionResponse> second = transactionService.getUserTransactionsAfter(sender, first.getNextCursor(), 20);
+
+        assertEquals(10, second.getContent().size());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void export_ShouldStreamRowsWithoutLoadingTheirUser() throws IOException {
+        long rows = transactionExportService.export(sender, null, null, RecordFormat.CSV, OutputStream.nullOutputStream());
+
+        assertEquals(30, rows);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityStatistics(User.class.getName()).getLoadCount());
+    }
+
+    @Test
+    void transfer_ShouldOnlyLoadBalanceAndRecipient() {
+        TransferRequest request = new TransferRequest();
+        request.setRecipientUsername("recipient");
+        request.setAmount(new BigDecimal("25.00"));
+
+        ResponseEntity<?> response = bankingController.transfer(request, sender, null);
+
+        assertTrue(response.getStatusCode().is2xxSuccessful(), String.valueOf(response.getBody()));
+        // Balance snapshot and recipient lookup, the ledger rows are written with JdbcTemplate
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getEntityLoadCount());
+
+        statistics.clear();
+        response = bankingController.transfer(request, sender, null);
+
+        assertTrue(response.getStatusCode().is2xxSuccessful(), String.valueOf(response.getBody()));
+        // The recipient now comes from the user cache, the balance was evicted by the first transfer
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void failedTransfer_ShouldInsertBothLegsWithoutTouchingUsers() {
+        assertThrows(IllegalArgumentException.class, () ->
+            transactionService.transfer(sender, recipient, new BigDecimal("1000.00")));
+
+        assertEquals(2, statistics.getEntityInsertCount());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, statistics.getEntityUpdateCount());
+    }
+
+    @Test
+    void currentUser_ShouldResolveJwtPrincipalFromUserCache() {
+        JwtUserPrincipal principal = new JwtUserPrincipal(sender.getUserId(), sender.getUsername());
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(principal, null, AuthorityUtils.createAuthorityList("USER")));
+
+        User first = (User) currentUserArgumentResolver.resolveArgument(null, null, new ServletWebRequest(new MockHttpServletRequest()), null);
+
+        assertEquals(sender.getUserId(), first.getUserId());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        User second = (User) currentUserArgumentResolver.resolveArgument(null, null, new ServletWebRequest(new MockHttpServletRequest()), null);
+
+        // A later request finds the user in the cache
+        assertEquals(sender.getUserId(), second.getUserId());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,116 @@
+package com.array.banking.service;
+
+import com.array.banking.model.Transaction;
+import com.array.banking.model.TransactionStatus;
+import com.array.banking.model.TransactionType;
+import com.array.banking.model.User;
+import com.array.banking.repository.TransactionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TransactionExportServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private MeterRegistry meterRegistry;
+    private TransactionExportService transactionExportService;
+    private User user;
+    private Transaction deposit;
+    private Transaction transfer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        transactionExportService = new TransactionExportService(transactionRepository, entityManager, objectMapper, meterRegistry);
+
+        user = new User("user", "password", "user@example.com");
+        user.setUserId(1);
+
+        deposit = new Transaction(user, 10050L, TransactionType.DEPOSIT, TransactionStatus.COMPLETED);
+        deposit.setTransactionId(7);
+        deposit.setTimestamp(LocalDateTime.of(2026, 1, 31, 23, 59, 0));
+
+        transfer = new Transaction(user, 5L, TransactionType.TRANSFER_OUT, TransactionStatus.PENDING);
+        transfer.setTransactionId(9);
+        transfer.setTimestamp(LocalDateTime.of(2026, 2, 1, 0, 0, 1, 500_000_000));
+    }
+
+    @Test
+    void export_ShouldWriteCsvAndDetachEveryRow() throws IOException {
+        AtomicBoolean closed = new AtomicBoolean();
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2026, 3, 1, 0, 0);
+        when(transactionRepository.streamByUserAndTimestampBetween(user, start, end))
+            .thenReturn(Stream.of(deposit, transfer).onClose(() -> closed.set(true)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = transactionExportService.export(user, start, end, RecordFormat.CSV, out);
+
+        assertEquals(2, rows);
+        assertEquals("""
+            transaction_id,timestamp,type,amount,status
+            7,2026-01-31T23:59:00,DEPOSIT,100.50,COMPLETED
+            9,2026-02-01T00:00:01.5,TRANSFER_OUT,0.05,PENDING
+            """, out.toString(StandardCharsets.UTF_8));
+        assertTrue(closed.get());
+        verify(entityManager).detach(deposit);
+        verify(entityManager).detach(transfer);
+        assertEquals(2.0, meterRegistry.get("banking.export.rows").counter().count());
+    }
+
+    @Test
+    void export_ShouldWriteOneJsonObjectPerLine() throws IOException {
+        when(transactionRepository.streamByUserAndTimestampBetween(eq(user), any(), any()))
+            .thenReturn(Stream.of(deposit, transfer));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        transactionExportService.export(user, null, null, RecordFormat.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("{\"transactionId\":7,\"amountInDollars\":100.50,\"type\":\"DEPOSIT\","
+            + "\"timestamp\":\"2026-01-31T23:59:00\",\"status\":\"COMPLETED\"}", lines[0]);
+        assertTrue(lines[1].startsWith("{\"transactionId\":9,"), lines[1]);
+    }
+
+    @Test
+    void export_ShouldLeaveMissingBoundsOpen() throws IOException {
+        when(transactionRepository.streamByUserAndTimestampBetween(eq(user), any(), any())).thenReturn(Stream.empty());
+        LocalDateTime before = LocalDateTime.now();
+
+        long rows = transactionExportService.export(user, null, null, RecordFormat.CSV, new ByteArrayOutputStream());
+
+        assertEquals(0, rows);
+        verify(transactionRepository).streamByUserAndTimestampBetween(eq(user), eq(TransactionExportService.EARLIEST),
+            argThat(end -> !end.isBefore(before)));
+        verifyNoInteractions(entityManager);
+    }
+}
@@ -1,10 +1,17 @@
 package com.array.banking.service;
 
+import com.array.banking.dto.CursorPage;
+import com.array.banking.dto.PageResponse;
+import com.array.banking.dto.TransactionCursor;
+import com.array.banking.dto.TransactionResponse;
 import com.array.banking.model.Transaction;
 import com.array.banking.model.TransactionStatus;
 import com.array.banking.model.TransactionType;
 import com.array.banking.model.User;
+import com.array.banking.repository.LedgerJdbcRepository;
 import com.array.banking.repository.TransactionRepository;
+import com.array.banking.repository.TransactionView;
+import com.array.banking.repository.TransferLegs;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -19,7 +26,9 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -31,9 +40,15 @@ public class TransactionServiceTest {
     @Mock
     private TransactionRepository transactionRepository;
     
+    @Mock
+    private LedgerJdbcRepository ledgerJdbcRepository;
+    
     @Mock
     private BalanceService balanceService;
     
+    @Mock
+    private SettlementService settlementService;
+    
     @InjectMocks
     private TransactionService transactionService;
     
@@ -57,29 +72,68 @@ public class TransactionServiceTest {
     }
     
     @Test
-    void getUserTransactionsPaginated_ShouldReturnTransactions() {
+    void getUserTransactionsPaginated_ShouldReturnCompactPageOfResponses() {
         Pageable pageable = PageRequest.of(0, 10);
-        List<Transaction> transactions = List.of(transaction);
-        Page<Transaction> page = new PageImpl<>(transactions, pageable, 1);
+        Page<TransactionView> page = new PageImpl<>(List.of(view(transaction)), pageable, 1);
         
-        when(transactionRepository.findByUserOrderByTimestampDescTransactionIdDesc(sender, pageable))
+        when(transactionRepository.findViewsByUserOrderByTimestampDescTransactionIdDesc(sender, pageable))
             .thenReturn(page);
         
-        Page<Transaction> result = transactionService.getUserTransactionsPaginated(sender, pageable);
+        PageResponse<TransactionResponse> result = transactionService.getUserTransactionsPaginated(sender, pageable);
         
         assertEquals(1, result.getTotalElements());
-        assertEquals(transaction, result.getContent().get(0));
-        verify(transactionRepository).findByUserOrderByTimestampDescTransactionIdDesc(sender, pageable);
+        assertEquals(1, result.getTotalPages());
+        assertEquals(10, result.getSize());
+        assertEquals(TransactionResponse.fromTransaction(transaction), result.getContent().get(0));
+        assertEquals(new BigDecimal("100.00"), result.getContent().get(0).getAmountInDollars());
+    }
+    
+    @Test
+    void getUserTransactionsAfter_ShouldReturnNextCursor_WhenMoreRowsExist() {
+        Transaction older = new Transaction(sender, 500L, TransactionType.DEPOSIT);
+        older.setTransactionId(0);
+        when(transactionRepository.findFirstHistoryPage(sender.getUserId(), 2))
+            .thenReturn(List.of(view(transaction), view(older)));
+        
+        CursorPage<TransactionResponse> result = transactionService.getUserTransactionsAfter(sender, null, 1);
+        
+        assertEquals(List.of(TransactionResponse.fromTransaction(transaction)), result.getContent());
+        assertTrue(result.hasNext());
+        TransactionCursor cursor = TransactionCursor.decode(result.getNextCursor());
+        assertEquals(transaction.getTimestamp(), cursor.timestamp());
+        assertEquals(transaction.getTransactionId(), cursor.transactionId());
+    }
+    
+    @Test
+    void getUserTransactionsAfter_ShouldSeekFromCursor_AndEndWithoutCursor() {
+        LocalDateTime timestamp = LocalDateTime.of(2025, 1, 1, 12, 0, 0, 123456000);
+        String cursor = new TransactionCursor(timestamp, 7).encode();
+        when(transactionRepository.findHistoryPageAfter(sender.getUserId(), timestamp, 7, 11))
+            .thenReturn(List.of(view(transaction)));
+        
+        CursorPage<TransactionResponse> result = transactionService.getUserTransactionsAfter(sender, cursor, 10);
+        
+        assertEquals(1, result.getContent().size());
+        assertNull(result.getNextCursor());
+        assertFalse(result.hasNext());
     }
     
     @Test
-    void completeAndSaveTransaction_ShouldCompleteTransaction() {
+    void getUserTransactionsAfter_ShouldRejectMalformedCursor() {
+        assertThrows(IllegalArgumentException.class, () ->
+            transactionService.getUserTransactionsAfter(sender, "not a cursor", 10)
+        );
+    }
+    
+    @Test
+    void completeAndSaveTransaction_ShouldSaveAsPending_AndSubmitForSettlement() {
         when(transactionRepository.save(any(Transaction.class))).thenReturn(transaction);
         
         Transaction result = transactionService.completeAndSaveTransaction(transaction);
         
-        assertEquals(TransactionStatus.COMPLETED, result.getStatus());
+        assertEquals(TransactionStatus.PENDING, result.getStatus());
         verify(transactionRepository).save(transaction);
+        verify(settlementService).submit(transaction.getTransactionId(), transaction.getTimestamp());
     }
     
     @Test
@@ -90,38 +144,25 @@ public class TransactionServiceTest {
         
         assertEquals(TransactionStatus.FAILED, result.getStatus());
         verify(transactionRepository).save(transaction);
+        verifyNoInteractions(settlementService);
     }
     
     @Test
-    void transfer_ShouldCompleteTransfer_WhenSufficientFunds() {
-        when(balanceService.hasSufficientBalance(eq(sender), anyLong())).thenReturn(true);
-        when(transactionRepository.save(any(Transaction.class)))
-            .thenAnswer(invocation -> invocation.getArgument(0));
-        
-        transactionService.transfer(sender, recipient, new BigDecimal("100.00"));
-        
-        verify(balanceService).hasSufficientBalance(eq(sender), eq(10000L));
-        verify(transactionRepository, times(2)).save(transactionCaptor.capture());
-        
-        List<Transaction> savedTransactions = transactionCaptor.getAllValues();
-        assertEquals(2, savedTransactions.size());
+    void transfer_ShouldDebitSenderAndSubmitIncomingLeg_WhenSufficientFunds() {
+        when(ledgerJdbcRepository.transfer(eq(1), eq(2), eq(10000L), any()))
+            .thenReturn(Optional.of(new TransferLegs(10, 11)));
         
-        Transaction outgoing = savedTransactions.get(0);
-        Transaction incoming = savedTransactions.get(1);
+        Integer result = transactionService.transfer(sender, recipient, new BigDecimal("100.00"));
         
-        assertEquals(TransactionType.TRANSFER_OUT, outgoing.getType());
-        assertEquals(TransactionType.TRANSFER_IN, incoming.getType());
-        assertEquals(sender, outgoing.getUser());
-        assertEquals(recipient, incoming.getUser());
-        assertEquals(TransactionStatus.COMPLETED, outgoing.getStatus());
-        assertEquals(TransactionStatus.COMPLETED, incoming.getStatus());
-        assertEquals(10000L, outgoing.getAmount());
-        assertEquals(10000L, incoming.getAmount());
+        assertEquals(10, result);
+        verify(balanceService).evictBalance(1);
+        verify(settlementService).submit(eq(11), any());
+        verifyNoInteractions(transactionRepository);
     }
     
     @Test
     void transfer_ShouldFailTransfer_WhenInsufficientFunds() {
-        when(balanceService.hasSufficientBalance(eq(sender), anyLong())).thenReturn(false);
+        when(ledgerJdbcRepository.transfer(eq(1), eq(2), eq(10000L), any())).thenReturn(Optional.empty());
         when(transactionRepository.save(any(Transaction.class)))
             .thenAnswer(invocation -> invocation.getArgument(0));
         
@@ -129,7 +170,6 @@ public class TransactionServiceTest {
             transactionService.transfer(sender, recipient, new BigDecimal("100.00"))
         );
         
-        verify(balanceService).hasSufficientBalance(eq(sender), eq(10000L));
         verify(transactionRepository, times(2)).save(transactionCaptor.capture());
         
         List<Transaction> savedTransactions = transactionCaptor.getAllValues();
@@ -142,6 +182,7 @@ public class TransactionServiceTest {
         assertEquals(TransactionType.TRANSFER_IN, incoming.getType());
         assertEquals(TransactionStatus.FAILED, outgoing.getStatus());
         assertEquals(TransactionStatus.FAILED, incoming.getStatus());
+        verifyNoInteractions(settlementService);
     }
     
     @Test
@@ -152,10 +193,11 @@ public class TransactionServiceTest {
         
         verifyNoInteractions(balanceService);
         verifyNoInteractions(transactionRepository);
+        verifyNoInteractions(ledgerJdbcRepository);
     }
     
     @Test
-    void deposit_ShouldCompleteDeposit() {
+    void deposit_ShouldSubmitDepositForSettlement() {
         when(balanceService.getCurrentBalanceInCents(sender)).thenReturn(5000L);
         when(transactionRepository.save(any(Transaction.class)))
             .thenAnswer(invocation -> invocation.getArgument(0));
@@ -170,42 +212,33 @@ public class TransactionServiceTest {
         assertEquals(TransactionType.DEPOSIT, savedTransaction.getType());
         assertEquals(sender, savedTransaction.getUser());
         assertEquals(10000L, savedTransaction.getAmount());
-        assertEquals(TransactionStatus.COMPLETED, savedTransaction.getStatus());
+        assertEquals(TransactionStatus.PENDING, savedTransaction.getStatus());
+        verify(settlementService).submit(any(), any());
     }
     
     @Test
-    void withdraw_ShouldCompleteWithdrawal_WhenSufficientFunds() {
-        when(balanceService.getCurrentBalanceInCents(sender)).thenReturn(20000L);
-        when(balanceService.hasSufficientBalance(eq(sender), anyLong())).thenReturn(true);
-        when(transactionRepository.save(any(Transaction.class)))
-            .thenAnswer(invocation -> invocation.getArgument(0));
+    void withdraw_ShouldDebitBalanceConditionally_WhenSufficientFunds() {
+        when(ledgerJdbcRepository.withdraw(eq(1), eq(10000L), any())).thenReturn(Optional.of(10000L));
         
         Long newBalance = transactionService.withdraw(sender, new BigDecimal("100.00"));
         
         assertEquals(10000L, newBalance);
-        verify(balanceService).getCurrentBalanceInCents(sender);
-        verify(balanceService).hasSufficientBalance(eq(sender), eq(10000L));
-        verify(transactionRepository).save(transactionCaptor.capture());
-        
-        Transaction savedTransaction = transactionCaptor.getValue();
-        assertEquals(TransactionType.WITHDRAWAL, savedTransaction.getType());
-        assertEquals(sender, savedTransaction.getUser());
-        assertEquals(10000L, savedTransaction.getAmount());
-        assertEquals(TransactionStatus.COMPLETED, savedTransaction.getStatus());
+        verify(balanceService).evictBalance(1);
+        verifyNoMoreInteractions(balanceService);
+        verifyNoInteractions(transactionRepository);
+        verifyNoInteractions(settlementService);
     }
     
     @Test
     void withdraw_ShouldFailWithdrawal_WhenInsufficientFunds() {
+        when(ledgerJdbcRepository.withdraw(eq(1), eq(10000L), any())).thenReturn(Optional.empty());
         when(balanceService.getCurrentBalanceInCents(sender)).thenReturn(5000L);
-        when(balanceService.hasSufficientBalance(eq(sender), anyLong())).thenReturn(false);
         when(transactionRepository.save(any(Transaction.class)))
             .thenAnswer(invocation -> invocation.getArgument(0));
         
         Long newBalance = transactionService.withdraw(sender, new BigDecimal("100.00"));
         
         assertEquals(5000L, newBalance);
-        verify(balanceService).getCurrentBalanceInCents(sender);
-        verify(balanceService).hasSufficientBalance(eq(sender), eq(10000L));
         verify(transactionRepository).save(transactionCaptor.capture());
         
         Transaction savedTransaction = transactionCaptor.getValue();
@@ -213,5 +246,46 @@ public class TransactionServiceTest {
         assertEquals(sender, savedTransaction.getUser());
         assertEquals(10000L, savedTransaction.getAmount());
         assertEquals(TransactionStatus.FAILED, savedTransaction.getStatus());
+        verify(balanceService, never()).evictBalance(any());
+        verifyNoInteractions(settlementService);
+    }
+    
+    @Test
+    void withdraw_ShouldRejectNonPositiveAmount() {
+        assertThrows(IllegalArgumentException.class, () ->
+            transactionService.withdraw(sender, new BigDecimal("-100.00"))
+        );
+        
+        verifyNoInteractions(ledgerJdbcRepository);
+        verifyNoInteractions(transactionRepository);
+    }
+
+    private static TransactionView view(Transaction transaction) {
+        return new TransactionView() {
+            @Override
+            public Integer getTransactionId() {
+                return transaction.getTransactionId();
+            }
+            
+            @Override
+            public Long getAmount() {
+                return transaction.getAmount();
+            }
+            
+            @Override
+            public TransactionType getType() {
+                return transaction.getType();
+            }
+            
+            @Override
+            public LocalDateTime getTimestamp() {
+                return transaction.getTimestamp();
+            }
+            
+            @Override
+            public TransactionStatus getStatus() {
+                return transaction.getStatus();
+            }
+        };
     }
 }
@@ -2,16 +2,21 @@ package com.array.banking.service;
 
 import com.array.banking.model.User;
 import com.array.banking.repository.UserRepository;
+import com.array.banking.security.TokenDenylist;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.Date;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,13 +32,19 @@ public class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
     
-    @InjectMocks
+    private Cache<String, Optional<CachedUser>> userCache;
+    
+    private TokenDenylist tokenDenylist;
+    
     private UserService userService;
     
     private User testUser;
     
     @BeforeEach
     void setUp() {
+        userCache = Caffeine.newBuilder().maximumSize(100).build();
+        tokenDenylist = new TokenDenylist(86_400_000L);
+        userService = new UserService(userRepository, passwordEncoder, userCache, tokenDenylist);
         testUser = new User("testuser", "hashedpassword", "test@example.com");
         testUser.setUserId(1);
     }
@@ -49,6 +60,101 @@ public class UserServiceTest {
         verify(userRepository).findByUsername("testuser");
     }
     
+    @Test
+    void getUserByUsername_ShouldQueryOnce_AndHandOutCopies() {
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        
+        User first = userService.getUserByUsername("testuser").orElseThrow();
+        first.setEmail("changed@example.com");
+        User second = userService.getUserByUsername("testuser").orElseThrow();
+        
+        assertEquals("test@example.com", second.getEmail());
+        assertEquals(1, second.getUserId());
+        verify(userRepository, times(1)).findByUsername("testuser");
+    }
+    
+    @Test
+    void getUserByUsername_ShouldCacheUnknownUsernames() {
+        when(userRepository.findByUsername("nobody")).thenReturn(Optional.empty());
+        
+        assertTrue(userService.getUserByUsername("nobody").isEmpty());
+        assertThrows(UsernameNotFoundException.class, () -> userService.loadUserByUsername("nobody"));
+        
+        verify(userRepository, times(1)).findByUsername("nobody");
+    }
+    
+    @Test
+    void createAndSaveUser_ShouldEvictCachedEntries() {
+        when(userRepository.findByUsername("newuser")).thenReturn(Optional.empty());
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        userService.getUserByUsername("newuser");
+        userService.getUserByUsername("testuser");
+        when(passwordEncoder.encode("password")).thenReturn("hashedpassword");
+        
+        userService.createUser("newuser", "password", "new@example.com");
+        // Renamed, the entry under the old username goes too
+        User renamed = new User("renamed", "hashedpassword", "test@example.com");
+        renamed.setUserId(1);
+        userService.saveUser(renamed);
+        
+        assertTrue(userCache.asMap().isEmpty());
+    }
+    
+    @Test
+    void changePassword_ShouldRevokeTokensIssuedBefore() {
+        Date issuedBefore = new Date(System.currentTimeMillis() - 1000);
+        when(userRepository.findById(1)).thenReturn(Optional.of(testUser));
+        when(passwordEncoder.matches("old", "hashedpassword")).thenReturn(true);
+        when(passwordEncoder.encode("newpassword")).thenReturn("newhash");
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        userService.getUserByUsername("testuser");
+        
+        userService.changePassword(1, "old", "newpassword");
+        
+        assertEquals("newhash", testUser.getPasswordHash());
+        verify(userRepository).save(testUser);
+        assertTrue(tokenDenylist.isRevoked("any-token", 1, issuedBefore));
+        // The cached copy with the old hash is gone
+        assertTrue(userCache.asMap().isEmpty());
+    }
+    
+    @Test
+    void changePassword_ShouldEvictAndRevokeOnlyAfterCommit() {
+        Date issuedBefore = new Date(System.currentTimeMillis() - 1000);
+        when(userRepository.findById(1)).thenReturn(Optional.of(testUser));
+        when(passwordEncoder.matches("old", "hashedpassword")).thenReturn(true);
+        when(passwordEncoder.encode("newpassword")).thenReturn("newhash");
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        userService.getUserByUsername("testuser");
+        
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            userService.changePassword(1, "old", "newpassword");
+            
+            // Still inside the transaction, the UPDATE isn't visible to other sessions yet
+            assertFalse(userCache.asMap().isEmpty());
+            assertFalse(tokenDenylist.isRevoked("any-token", 1, issuedBefore));
+            
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        
+        assertTrue(userCache.asMap().isEmpty());
+        assertTrue(tokenDenylist.isRevoked("any-token", 1, issuedBefore));
+    }
+    
+    @Test
+    void changePassword_ShouldKeepTokens_WhenCurrentPasswordIsWrong() {
+        when(userRepository.findById(1)).thenReturn(Optional.of(testUser));
+        when(passwordEncoder.matches("wrong", "hashedpassword")).thenReturn(false);
+        
+        assertThrows(IllegalArgumentException.class, () -> userService.changePassword(1, "wrong", "newpassword"));
+        
+        verify(userRepository, never()).save(any());
+        assertFalse(tokenDenylist.isRevoked("any-token", 1, new Date(System.currentTimeMillis() - 1000)));
+    }
+    
     @Test
     void getUserByEmail_ShouldReturnUser_WhenUserExists() {
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
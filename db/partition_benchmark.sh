@@ -0,0 +1,215 @@
+#!/bin/bash
+
+# Compares query latency of the single-table and the monthly partitioned transactions layouts.
+# Both are built side by side with the same rows and indexes in a scratch schema (partition_bench)
+# of the target database, the application tables are not touched.
+# Connects with the usual PG* variables, defaults match docker-compose.yml.
+# Times are the server side planning + execution time reported by EXPLAIN ANALYZE.
+
+set -e
+export PGHOST=${PGHOST:-localhost}
+export PGPORT=${PGPORT:-5432}
+export PGUSER=${PGUSER:-postgres}
+export PGPASSWORD=${PGPASSWORD:-password}
+export PGDATABASE=${PGDATABASE:-banking}
+
+ROWS=10000000
+MONTHS=36
+USERS=10000
+RUNS=20
+KEEP=false
+RESULTS_FILE="partition_benchmark_results.csv"
+
+# Parse command line arguments
+while getopts "r:m:u:n:o:k" opt; do
+  case ${opt} in
+    r )
+      ROWS=$OPTARG
+      ;;
+    m )
+      MONTHS=$OPTARG
+      ;;
+    u )
+      USERS=$OPTARG
+      ;;
+    n )
+      RUNS=$OPTARG
+      ;;
+    o )
+      RESULTS_FILE=$OPTARG
+      ;;
+    k )
+      KEEP=true
+      ;;
+    \? )
+      echo "Usage: $0 [-r rows] [-m months_of_history] [-u users] [-n runs_per_query] [-o results_csv] [-k keep_data]"
+      exit 1
+      ;;
+  esac
+done
+
+psql_quiet() {
+  psql -v ON_ERROR_STOP=1 -q -At "$@"
+}
+
+echo "==== Transactions Partitioning Benchmark ===="
+echo "Rows: $ROWS over $MONTHS months, $USERS users"
+echo "Runs per query: $RUNS"
+echo "Database: $PGUSER@$PGHOST:$PGPORT/$PGDATABASE"
+
+if [[ "$KEEP" = true ]] && [[ "$(psql_quiet -c "SELECT to_regclass('partition_bench.transactions') IS NOT NULL")" = "t" ]]; then
+  echo "Reusing data in schema partition_bench"
+else
+  echo "Generating data..."
+  SECONDS=0
+  psql_quiet <<SQL
+DROP SCHEMA IF EXISTS partition_bench CASCADE;
+CREATE SCHEMA partition_bench;
+SET search_path = partition_bench;
+
+CREATE TABLE transactions_single (
+    transaction_id INTEGER PRIMARY KEY,
+    user_id INTEGER NOT NULL,
+    amount BIGINT NOT NULL,
+    transaction_type VARCHAR(20) NOT NULL,
+    timestamp TIMESTAMP NOT NULL,
+    "status" VARCHAR(20) NOT NULL
+);
+
+CREATE TABLE transactions (
+    transaction_id INTEGER NOT NULL,
+    user_id INTEGER NOT NULL,
+    amount BIGINT NOT NULL,
+    transaction_type VARCHAR(20) NOT NULL,
+    timestamp TIMESTAMP NOT NULL,
+    "status" VARCHAR(20) NOT NULL,
+    PRIMARY KEY (transaction_id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+DO \$\$
+DECLARE
+    month DATE;
+BEGIN
+    FOR month IN SELECT generate_series(date_trunc('month', CURRENT_DATE) - make_interval(months => $MONTHS),
+                                        date_trunc('month', CURRENT_DATE) + INTERVAL '1 month',
+                                        INTERVAL '1 month')::date
+    LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF transactions FOR VALUES FROM (%L) TO (%L)',
+                       'transactions_' || to_char(month, 'YYYY_MM'), month, (month + INTERVAL '1 month')::date);
+    END LOOP;
+END;
+\$\$;
+
+-- IDs grow with time like the real sequence, roughly 0.1% of the rows are still PENDING
+INSERT INTO transactions_single
+SELECT g,
+       1 + (random() * ($USERS - 1))::int,
+       1 + (random() * 100000)::bigint,
+       (ARRAY['DEPOSIT', 'WITHDRAWAL', 'TRANSFER_IN', 'TRANSFER_OUT'])[1 + (random() * 3)::int],
+       CURRENT_TIMESTAMP::timestamp - make_interval(months => $MONTHS) * (1 - g::float8 / $ROWS),
+       CASE WHEN random() < 0.001 THEN 'PENDING' ELSE 'COMPLETED' END
+FROM generate_series(1, $ROWS) AS g;
+
+INSERT INTO transactions SELECT * FROM transactions_single;
+
+CREATE INDEX ON transactions_single(user_id, status, transaction_type, amount);
+CREATE INDEX ON transactions_single(user_id, timestamp DESC, transaction_id DESC);
+CREATE INDEX ON transactions(user_id, status, transaction_type, amount);
+CREATE INDEX ON transactions(user_id, timestamp DESC, transaction_id DESC);
+
+VACUUM ANALYZE transactions_single;
+VACUUM ANALYZE transactions;
+SQL
+  echo "Generated in ${SECONDS}s"
+fi
+
+psql_quiet -c "SELECT 'Size single: ' || pg_size_pretty(pg_total_relation_size('partition_bench.transactions_single'))
+  || ', partitioned: ' || pg_size_pretty(SUM(pg_total_relation_size(inhrelid)))
+  FROM pg_inherits WHERE inhparent = 'partition_bench.transactions'::regclass"
+
+# Planning + execution time in ms of one EXPLAIN ANALYZE run
+query_time() {
+  psql_quiet -c "SET search_path = partition_bench; EXPLAIN (ANALYZE) $1" \
+    | awk '/^(Planning|Execution) Time:/ { total += $3 } END { printf "%.3f", total }'
+}
+
+percentile() {
+  sort -n | awk -v p="$1" '{ values[NR] = $1 } END { i = int(NR * p / 100 + 0.999); if (i < 1) i = 1; print values[i] }'
+}
+
+# Run a query template RUNS times against both tables. {table}, {user} and {month} are substituted,
+# {month} is the first day of a random month with history
+benchmark_query() {
+  local name=$1
+  local template=$2
+  local table timings sql
+
+  for table in transactions_single transactions; do
+    timings=""
+    for run in $(seq 1 "$RUNS"); do
+      local user=$((RANDOM % USERS + 1))
+      local month
+      month=$(date -d "$(date +%Y-%m-01) -$((RANDOM % MONTHS + 1)) month" +%Y-%m-01)
+      sql=${template//\{table\}/$table}
+      sql=${sql//\{user\}/$user}
+      sql=${sql//\{month\}/$month}
+      timings+="$(query_time "$sql")"$'\n'
+    done
+    local p50 p95
+    p50=$(printf "%s" "$timings" | percentile 50)
+    p95=$(printf "%s" "$timings" | percentile 95)
+    local layout=single
+    [[ "$table" = "transactions" ]] && layout=partitioned
+    printf "%-22s %-12s p50=%10s ms  p95=%10s ms\n" "$name" "$layout" "$p50" "$p95"
+    echo "$(date -u +%Y-%m-%dT%H:%M:%SZ),$ROWS,$name,$layout,$p50,$p95" >> "$RESULTS_FILE"
+  done
+}
+
+if [[ ! -f "$RESULTS_FILE" ]]; then
+  echo "timestamp,rows,query,layout,p50_ms,p95_ms" > "$RESULTS_FILE"
+fi
+
+echo ""
+echo "Running queries..."
+
+# First history page, as TransactionRepository.findFirstHistoryPage
+benchmark_query "history_first_page" \
+  "SELECT * FROM {table} WHERE user_id = {user} ORDER BY timestamp DESC, transaction_id DESC LIMIT 21"
+
+# One month of a user's history
+benchmark_query "history_month" \
+  "SELECT * FROM {table} WHERE user_id = {user} AND timestamp >= '{month}' AND timestamp < DATE '{month}' + INTERVAL '1 month'
+   ORDER BY timestamp DESC, transaction_id DESC"
+
+# Monthly totals across all users
+benchmark_query "monthly_report" \
+  "SELECT transaction_type, COUNT(*), SUM(amount) FROM {table}
+   WHERE timestamp >= '{month}' AND timestamp < DATE '{month}' + INTERVAL '1 month' GROUP BY transaction_type"
+
+# Settlement style lookup of recent PENDING rows
+benchmark_query "pending_this_month" \
+  "SELECT transaction_id FROM {table} WHERE status = 'PENDING' AND timestamp >= date_trunc('month', CURRENT_DATE)"
+
+# Full-history balance, as TransactionRepository.calculateBalanceForUser, touches every partition
+benchmark_query "balance_full_history" \
+  "SELECT COALESCE(SUM(CASE WHEN transaction_type IN ('DEPOSIT', 'TRANSFER_IN') THEN amount ELSE -amount END), 0)
+   FROM {table} WHERE user_id = {user} AND status = 'COMPLETED'"
+
+# Vacuum after a month of updates, the partitioned layout only needs to visit the current month
+echo ""
+echo "Vacuum after updating the current month..."
+CURRENT_PARTITION="transactions_$(date +%Y_%m)"
+for table in transactions_single "$CURRENT_PARTITION"; do
+  psql_quiet -c "UPDATE partition_bench.$table SET status = 'COMPLETED' WHERE timestamp >= date_trunc('month', CURRENT_DATE) AND status = 'PENDING'"
+  start=$(date +%s%N)
+  psql_quiet -c "VACUUM partition_bench.$table"
+  elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+  printf "%-22s %-24s %10s ms\n" "vacuum" "$table" "$elapsed"
+done
+
+if [[ "$KEEP" = false ]]; then
+  psql_quiet -c "DROP SCHEMA partition_bench CASCADE"
+fi
+
+echo ""
+echo "Results appended to $RESULTS_FILE"
@@ -0,0 +1,80 @@
+-- Migrates an existing database from the single transactions table to the monthly partitioned
+-- layout of db/migration/V1__baseline.sql. Databases created by the Flyway migrations don't need this.
+-- Run it before the first start with Flyway, which then baselines the database at V1 and applies the rest.
+--
+--   psql -v ON_ERROR_STOP=1 -h localhost -U postgres -d banking -f db/partition_transactions.sql
+--
+-- Stop the application first: the rows are copied in one transaction and writes made during the copy
+-- would block on the rename, then fail. Reads keep working until the final rename.
+-- The copy rewrites the whole table, allow for roughly twice its size in free disk space.
+-- The old table is kept as transactions_legacy until it is dropped by hand after verification.
+
+BEGIN;
+
+-- Move the old table and everything named after it out of the way
+ALTER TABLE transactions RENAME TO transactions_legacy;
+ALTER INDEX transactions_pkey RENAME TO transactions_legacy_pkey;
+ALTER INDEX idx_transactions_balance_calculation RENAME TO idx_transactions_legacy_balance_calculation;
+ALTER INDEX IF EXISTS idx_transactions_user_history RENAME TO idx_transactions_legacy_user_history;
+
+-- Same definition as V1__baseline.sql, reusing the existing sequence so transaction IDs continue where they left off
+CREATE TABLE transactions (
+    transaction_id INTEGER NOT NULL DEFAULT nextval('transactions_transaction_id_seq'),
+    user_id INTEGER NOT NULL REFERENCES users(user_id),
+    amount BIGINT NOT NULL,
+    transaction_type VARCHAR(20) NOT NULL,
+    timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    "status" VARCHAR(20) NOT NULL,
+    PRIMARY KEY (transaction_id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+ALTER SEQUENCE transactions_transaction_id_seq OWNED BY transactions.transaction_id;
+
+-- Same as V1__baseline.sql
+CREATE OR REPLACE FUNCTION create_transactions_partition(month_start DATE) RETURNS BOOLEAN AS $$
+DECLARE
+    partition_start DATE := date_trunc('month', month_start)::date;
+    partition_name TEXT := 'transactions_' || to_char(partition_start, 'YYYY_MM');
+BEGIN
+    -- Serialise concurrent callers, e.g. several instances starting at once
+    PERFORM pg_advisory_xact_lock(hashtext('create_transactions_partition'));
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+    EXECUTE format('CREATE TABLE %I PARTITION OF transactions FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, partition_start, (partition_start + INTERVAL '1 month')::date);
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- One partition per month from the oldest transaction up to three months ahead
+SELECT create_transactions_partition(month::date)
+FROM generate_series(
+    date_trunc('month', LEAST((SELECT MIN(timestamp) FROM transactions_legacy), CURRENT_TIMESTAMP::timestamp)),
+    date_trunc('month', GREATEST((SELECT MAX(timestamp) FROM transactions_legacy),
+                                 CURRENT_TIMESTAMP::timestamp + INTERVAL '3 months')),
+    INTERVAL '1 month') AS month;
+
+-- Copy before creating the indexes, building them once afterwards is much faster than maintaining them per row
+INSERT INTO transactions (transaction_id, user_id, amount, transaction_type, timestamp, status)
+SELECT transaction_id, user_id, amount, transaction_type, timestamp, status
+FROM transactions_legacy;
+
+CREATE INDEX idx_transactions_balance_calculation ON transactions(user_id, status, transaction_type, amount);
+CREATE INDEX idx_transactions_user_history ON transactions(user_id, timestamp DESC, transaction_id DESC);
+
+-- Fails the migration, rolling everything back, if a row went missing
+DO $$
+BEGIN
+    IF (SELECT COUNT(*) FROM transactions) <> (SELECT COUNT(*) FROM transactions_legacy) THEN
+        RAISE EXCEPTION 'Row count mismatch between transactions and transactions_legacy';
+    END IF;
+END;
+$$;
+
+COMMIT;
+
+ANALYZE transactions;
+
+-- After verifying the application against the new table:
+-- DROP TABLE transactions_legacy;
@@ -1,11 +1,11 @@
 export const formatTransaction = (transaction) => {
   const postiveTransaction = {
     color: 'primary.main',
-    currency: `$${transaction.amount.toFixed(2)}`
+    currency: `$${transaction.amountInDollars.toFixed(2)}`
   }
   const negativeTransaction = {
     color: 'error.main',
-    currency: `-$${transaction.amount.toFixed(2)}`
+    currency: `-$${transaction.amountInDollars.toFixed(2)}`
   }
 
   switch (transaction.type) {
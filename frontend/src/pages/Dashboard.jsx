@@ -4,7 +4,7 @@ import {
   Paper, Button, CircularProgress 
 } from '@mui/material';
 import { Link as RouterLink } from 'react-router-dom';
-import { fetchBalance, fetchTransactions } from '../services/bankingService';
+import { fetchBalance, fetchTransactions, subscribeToLedgerUpdates } from '../services/bankingService';
 import ErrorAlert from '../components/ErrorAlert';
 import { formatTransaction, transactionBorderColor } from '../components/TransactionFormatter';
 
@@ -38,6 +38,22 @@ const Dashboard = () => {
     loadData();
   }, []);
 
+  // Apply pushed updates instead of reloading the balance and history
+  useEffect(() => {
+    return subscribeToLedgerUpdates((update) => {
+      setBalance(update.balanceInDollars);
+      setRecentTransactions((transactions) => {
+        if (transactions.some(transaction => transaction.transactionId === update.transactionId)) {
+          return transactions.map(transaction => transaction.transactionId === update.transactionId
+            ? { ...transaction, status: update.status }
+            : transaction);
+        }
+        const { transactionId, amountInDollars, type, timestamp, status } = update;
+        return [{ transactionId, amountInDollars, type, timestamp, status }, ...transactions].slice(0, 5);
+      });
+    });
+  }, []);
+
   if (loading) {
     return (
       <Box sx={{ display: 'flex', justifyContent: 'center', mt: 4 }}>
@@ -102,7 +118,7 @@ const Dashboard = () => {
                         <Grid item>
                           <Typography variant="body2">
                             {transaction.type || 
-                              (transaction.amount > 0 ? 'Received' : 'Sent')}
+                              (transaction.amountInDollars > 0 ? 'Received' : 'Sent')}
                           </Typography>
                           <Typography variant="caption" color="textSecondary">
                             {new Date(transaction.timestamp).toLocaleDateString()}
@@ -31,3 +31,59 @@ export const transferFunds = async (recipientUsername, amount) => {
     throw error;
   }
 };
+
+/**
+ * Follow the user's ledger updates pushed by GET /banking/v1/events.
+ * EventSource can't send the Authorization header, so the stream is read with fetch and
+ * reconnected after it ends. Returns a function that stops it.
+ */
+export const subscribeToLedgerUpdates = (onUpdate) => {
+  const controller = new AbortController();
+
+  const connect = async () => {
+    while (!controller.signal.aborted) {
+      try {
+        const response = await fetch(`${api.defaults.baseURL}/banking/v1/events`, {
+          headers: {
+            Accept: 'text/event-stream',
+            Authorization: `Bearer ${localStorage.getItem('token')}`,
+          },
+          signal: controller.signal,
+        });
+        if (!response.ok) {
+          throw new Error(`Event stream failed with status ${response.status}`);
+        }
+
+        const reader = response.body.pipeThrough(new TextDecoderStream()).getReader();
+        let buffer = '';
+        for (;;) {
+          const { value, done } = await reader.read();
+          if (done) {
+            break;
+          }
+          buffer += value;
+          // Events are separated by a blank line, only the data of "transaction" events is used
+          let separator;
+          while ((separator = buffer.indexOf('\n\n')) >= 0) {
+            const lines = buffer.slice(0, separator).split('\n');
+            buffer = buffer.slice(separator + 2);
+            if (lines.includes('event:transaction')) {
+              const data = lines.filter(line => line.startsWith('data:')).map(line => line.slice(5)).join('\n');
+              onUpdate(JSON.parse(data));
+            }
+          }
+        }
+      } catch (error) {
+        if (controller.signal.aborted) {
+          return;
+        }
+        console.error('Ledger event stream error:', error);
+      }
+      // Back off before reconnecting, like EventSource does
+      await new Promise(resolve => setTimeout(resolve, 3000));
+    }
+  };
+
+  connect();
+  return () => controller.abort();
+};
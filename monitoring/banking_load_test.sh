@@ -5,9 +5,10 @@ BASE_URL="http://localhost:8080/ssr"
 CONCURRENCY=100
 NUM_ITERATIONS=100
 VERBOSE=false
+RUN_LABEL="default"
 
 # Parse command line arguments
-while getopts "c:n:u:v" opt; do
+while getopts "c:n:u:l:v" opt; do
   case ${opt} in
     c )
       CONCURRENCY=$OPTARG
@@ -18,11 +19,14 @@ while getopts "c:n:u:v" opt; do
     u )
       BASE_URL=$OPTARG
       ;;
+    l )
+      RUN_LABEL=$OPTARG
+      ;;
     v )
       VERBOSE=true
       ;;
     \? )
-      echo "Usage: $0 [-c concurrency] [-n iterations] [-u base_url] [-v]"
+      echo "Usage: $0 [-c concurrency] [-n iterations] [-u base_url] [-l run_label] [-v]"
       exit 1
       ;;
   esac
@@ -40,14 +44,24 @@ extract_cookies() {
   grep -i "Set-Cookie:" <<< "$response" | sed 's/Set-Cookie: //i' | tr -d '\r'
 }
 
+# curl wrapper that records the request time (seconds) for the latency percentiles
+timed_curl() {
+  local output
+  output=$(curl -w '\n__TIME_TOTAL__%{time_total}' "$@")
+  echo "${output##*__TIME_TOTAL__}" >> "$TIMINGS_FILE"
+  echo "${output%__TIME_TOTAL__*}"
+}
+
 echo "==== Banking Application Load Test ===="
 echo "Concurrency: $CONCURRENCY"
 echo "Iterations per user: $NUM_ITERATIONS"
 echo "Base URL: $BASE_URL"
+echo "Run label: $RUN_LABEL"
 
 # Initialize a temporary directory for storing cookies in memory
 COOKIE_MEM_DIR=$(mktemp -d)
 trap 'rm -rf "$COOKIE_MEM_DIR"' EXIT
+TIMINGS_FILE="$COOKIE_MEM_DIR/timings"
 
 # Register users in parallel
 register_users() {
@@ -79,7 +93,7 @@ run_user_session() {
   # Login
   log "[$username] Logging in"
   local cookie_header="$(cat "$cookie_path")"
-  local response=$(curl -s -L -i -X POST "$BASE_URL/login" \
+  local response=$(timed_curl -s -L -i -X POST "$BASE_URL/login" \
     -H "Cookie: $cookie_header" \
     -d "username=$username&password=Password123!" \
     -H "Content-Type: application/x-www-form-urlencoded")
@@ -88,13 +102,13 @@ run_user_session() {
   # View dashboard
   log "[$username] Viewing dashboard"
   cookie_header="$(cat "$cookie_path")"
-  response=$(curl -s -L -i -H "Cookie: $cookie_header" "$BASE_URL/dashboard")
+  response=$(timed_curl -s -L -i -H "Cookie: $cookie_header" "$BASE_URL/dashboard")
   echo "$(extract_cookies "$response")" > "$cookie_path"
   
   # Transfer money
   log "[$username] Transferring money to $recipient"
   cookie_header="$(cat "$cookie_path")"
-  response=$(curl -s -L -i -X POST "$BASE_URL/transfer" \
+  response=$(timed_curl -s -L -i -X POST "$BASE_URL/transfer" \
     -H "Cookie: $cookie_header" \
     -d "recipientUsername=$recipient&amount=50.00" \
     -H "Content-Type: application/x-www-form-urlencoded")
@@ -103,19 +117,19 @@ run_user_session() {
   # Check transactions
   log "[$username] Checking transactions"
   cookie_header="$(cat "$cookie_path")"
-  response=$(curl -s -L -i -H "Cookie: $cookie_header" "$BASE_URL/transactions")
+  response=$(timed_curl -s -L -i -H "Cookie: $cookie_header" "$BASE_URL/transactions")
   echo "$(extract_cookies "$response")" > "$cookie_path"
   
   # Check paginated transactions
   log "[$username] Checking paginated transactions"
   cookie_header="$(cat "$cookie_path")"
-  response=$(curl -s -L -i -H "Cookie: $cookie_header" "$BASE_URL/transactions?page=0&size=5")
+  response=$(timed_curl -s -L -i -H "Cookie: $cookie_header" "$BASE_URL/transactions?size=5")
   echo "$(extract_cookies "$response")" > "$cookie_path"
   
   # Another transfer
   log "[$username] Making another transfer"
   cookie_header="$(cat "$cookie_path")"
-  response=$(curl -s -L -i -X POST "$BASE_URL/transfer" \
+  response=$(timed_curl -s -L -i -X POST "$BASE_URL/transfer" \
     -H "Cookie: $cookie_header" \
     -d "recipientUsername=$recipient&amount=25.00" \
     -H "Content-Type: application/x-www-form-urlencoded")
@@ -124,7 +138,7 @@ run_user_session() {
   # Logout
   log "[$username] Logging out"
   cookie_header="$(cat "$cookie_path")"
-  response=$(curl -s -L -i -H "Cookie: $cookie_header" "$BASE_URL/logout")
+  response=$(timed_curl -s -L -i -H "Cookie: $cookie_header" "$BASE_URL/logout")
   echo "$(extract_cookies "$response")" > "$cookie_path"
 }
 
@@ -135,8 +149,8 @@ register_users $CONCURRENCY
 echo "Starting load test with $CONCURRENCY concurrent users..."
 start_time=$(date +%s)
 
-export -f run_user_session log extract_cookies
-export BASE_URL VERBOSE CONCURRENCY COOKIE_MEM_DIR
+export -f run_user_session log extract_cookies timed_curl
+export BASE_URL VERBOSE CONCURRENCY COOKIE_MEM_DIR TIMINGS_FILE
 
 # Use GNU Parallel to run concurrent sessions if available
 if command -v parallel &>/dev/null; then
@@ -170,3 +184,21 @@ echo "==== Load Test Completed ===="
 echo "Duration: $duration seconds"
 echo "Total requests: $total_requests"
 echo "Requests per second: $(bc <<< "scale=2; $total_requests / $duration")"
+
+# Latency percentiles, nearest-rank over every timed request
+percentile() {
+  local p=$1
+  local count=$(wc -l < "$SORTED_TIMINGS")
+  local rank=$(( (count * p + 99) / 100 ))
+  (( rank < 1 )) && rank=1
+  sed -n "${rank}p" "$SORTED_TIMINGS"
+}
+SORTED_TIMINGS="$COOKIE_MEM_DIR/timings.sorted"
+sort -n "$TIMINGS_FILE" > "$SORTED_TIMINGS"
+p50=$(percentile 50)
+p99=$(percentile 99)
+echo "Latency p50: ${p50}s"
+echo "Latency p99: ${p99}s"
+
+# One line per run so platform and virtual thread runs can be compared side by side
+echo "$RUN_LABEL,$CONCURRENCY,$NUM_ITERATIONS,$duration,$total_requests,$p50,$p99" >> load_test_results.csv
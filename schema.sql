@@ -1,27 +0,0 @@
--- Potential Optimizations:
--- 1. Use ENUM type for transaction_type
-
--- Create users table
-CREATE TABLE users (
-    user_id SERIAL PRIMARY KEY,
-    username VARCHAR(50) UNIQUE NOT NULL,
-    password_hash VARCHAR(255) NOT NULL, -- Store hashed passwords only
-    email VARCHAR(100) UNIQUE NOT NULL,
-    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
-);
-
--- TODO: Use ENUM type for transaction_type after getting ORM to work with it
-CREATE TYPE transaction_type AS ENUM ('deposit', 'withdrawal', 'transfer_in', 'transfer_out');
-
--- Create transactions table
-CREATE TABLE transactions (
-    transaction_id SERIAL PRIMARY KEY,
-    user_id INTEGER NOT NULL REFERENCES users(user_id),
-    amount BIGINT NOT NULL,
-    transaction_type VARCHAR(20) NOT NULL,
-    timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
-    "status" VARCHAR(20) NOT NULL
-);
-
--- Index to optimize calculation of user balance
-CREATE INDEX idx_transactions_balance_calculation ON transactions(user_id, status, transaction_type, amount);